@@ -0,0 +1,81 @@
+package net.ml.unsafe.collections.memory;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare data access through direct buffers against unsafe
+ *
+ * @author micha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectBufferMemoryBenchmark {
+    private static final int LONGS = 1024;
+
+    @Param({"UNSAFE", "BUFFER"})
+    public String type;
+
+    @Param({"16", "512"})
+    public int size;
+
+    private Memory memory;
+    private long address;
+    private long longs;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        memory = MemoryFactory.getMemory(type);
+        address = memory.malloc(size);
+        longs = memory.malloc(LONGS * Long.BYTES);
+        bytes = new byte[size];
+
+        for (int i = 0; i < LONGS; ++i) {
+            memory.putLong(longs + (long) i * Long.BYTES, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        memory.free(address);
+        memory.free(longs);
+    }
+
+    @Benchmark
+    public byte[] putGet() {
+        memory.put(address, bytes);
+        memory.get(address, bytes, 0, size);
+        return bytes;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGS)
+    public long getLong() {
+        long sum = 0;
+
+        for (int i = 0; i < LONGS; ++i) {
+            sum += memory.getLong(longs + (long) i * Long.BYTES);
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGS)
+    public long mallocFree() {
+        long addr = 0;
+
+        for (int i = 0; i < LONGS; ++i) {
+            addr = memory.malloc(size);
+            memory.free(addr);
+        }
+
+        return addr;
+    }
+}
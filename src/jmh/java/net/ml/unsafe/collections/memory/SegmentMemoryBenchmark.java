@@ -0,0 +1,70 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.memory.blocks.MemoryBlock;
+import net.ml.unsafe.collections.memory.blocks.MemoryBlockBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare array block access through memory segments against unsafe
+ *
+ * Segment memory is only available on java 22 and later, run with -jvmArgsAppend --enable-native-access=ALL-UNNAMED
+ *
+ * @author micha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentMemoryBenchmark {
+    private static final int CAPACITY = 1024;
+
+    @Param({"UNSAFE", "SEGMENT"})
+    public String type;
+
+    private MemoryBlock<Integer> block;
+
+    @Setup
+    public void setup() {
+        if (!MemoryFactory.isRegistered(type))
+            throw new IllegalStateException("Memory type is not available on this runtime: " + type);
+
+        block = MemoryBlockBuilder.<Integer>builder()
+                .classType(Integer.class)
+                .capacity(CAPACITY)
+                .memory(MemoryFactory.getMemory(type))
+                .build();
+
+        for (int i = 0; i < CAPACITY; ++i) {
+            block.put(i, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        block.free();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CAPACITY)
+    public void put() {
+        for (int i = 0; i < CAPACITY; ++i) {
+            block.put(i, i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CAPACITY)
+    public long get() {
+        long sum = 0;
+
+        for (int i = 0; i < CAPACITY; ++i) {
+            sum += block.get(i);
+        }
+
+        return sum;
+    }
+}
@@ -0,0 +1,48 @@
+package net.ml.unsafe.collections.memory;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare small allocations from slabs against direct unsafe allocations
+ *
+ * @author micha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlabMemoryBenchmark {
+    private static final int BATCH = 1024;
+
+    @Param({"UNSAFE", "SLAB"})
+    public String type;
+
+    @Param({"16", "64", "512"})
+    public int size;
+
+    private final long[] addresses = new long[BATCH];
+    private Memory memory;
+
+    @Setup
+    public void setup() {
+        memory = MemoryFactory.getMemory(type);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long mallocFree() {
+        for (int i = 0; i < BATCH; ++i) {
+            addresses[i] = memory.malloc(size);
+        }
+
+        for (int i = 0; i < BATCH; ++i) {
+            memory.free(addresses[i]);
+        }
+
+        return addresses[BATCH - 1];
+    }
+}
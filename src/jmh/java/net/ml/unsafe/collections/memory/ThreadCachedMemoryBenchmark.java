@@ -0,0 +1,57 @@
+package net.ml.unsafe.collections.memory;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare concurrent small allocations through thread caches against slabs and unsafe
+ *
+ * Run with -t to vary the number of allocating threads
+ *
+ * @author micha
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ThreadCachedMemoryBenchmark {
+    private static final int BATCH = 256;
+
+    @Param({"UNSAFE", "SLAB", "THREAD_CACHED"})
+    public String type;
+
+    @Param({"64"})
+    public int size;
+
+    private Memory memory;
+
+    @Setup
+    public void setup() {
+        memory = MemoryFactory.getMemory(type);
+    }
+
+    @State(Scope.Thread)
+    public static class Addresses {
+        final long[] addresses = new long[BATCH];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long mallocFree(Addresses state) {
+        long[] addresses = state.addresses;
+
+        for (int i = 0; i < BATCH; ++i) {
+            addresses[i] = memory.malloc(size);
+        }
+
+        for (int i = 0; i < BATCH; ++i) {
+            memory.free(addresses[i]);
+        }
+
+        return addresses[BATCH - 1];
+    }
+}
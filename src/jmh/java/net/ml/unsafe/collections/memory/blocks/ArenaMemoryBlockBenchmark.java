@@ -0,0 +1,53 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import net.ml.unsafe.collections.memory.UnsafeMemory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare filling and freeing a reference block with its own arena against freeing each object
+ *
+ * @author micha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaMemoryBlockBenchmark {
+    private static final int SIZE = 1 << 14;
+
+    @Param({"false", "true"})
+    public boolean arena;
+
+    private MemoryBlock<Long> block;
+
+    @Setup
+    public void setup() {
+        block = MemoryBlockBuilder.<Long>builder()
+                .capacity(SIZE)
+                .memory(new UnsafeMemory())
+                .arena(arena)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        block.free();
+    }
+
+    @Benchmark
+    public int fillFree() {
+        block.realloc(SIZE);
+
+        for (int i = 0; i < SIZE; ++i) {
+            block.put(i, (long) i);
+        }
+
+        int size = block.size();
+        block.free();
+        return size;
+    }
+}
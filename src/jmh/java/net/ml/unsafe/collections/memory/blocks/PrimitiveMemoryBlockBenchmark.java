@@ -0,0 +1,62 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import net.ml.unsafe.collections.memory.UnsafeMemory;
+import net.ml.unsafe.collections.serialize.ByteSerializerFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare storing longs in an array block with the fixed width serializer against kryo
+ *
+ * @author micha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveMemoryBlockBenchmark {
+    private static final int SIZE = 1 << 10;
+
+    @Param({"false", "true"})
+    public boolean fixedWidth;
+
+    private MemoryBlock<Long> block;
+    private int index;
+
+    @Setup
+    public void setup() {
+        MemoryBlockBuilder.Builder<Long> builder = MemoryBlockBuilder.<Long>builder()
+                .classType(Long.class)
+                .capacity(SIZE)
+                .memory(new UnsafeMemory());
+
+        //kryo needs room for the class id and the widest variable length long
+        if (!fixedWidth) builder.classType(null).classSize(Long.BYTES + 3).serializer(ByteSerializerFactory.getSerializer());
+
+        block = builder.build();
+
+        for (int i = 0; i < SIZE; ++i) {
+            block.put(i, (long) i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        block.free();
+    }
+
+    @Benchmark
+    public Long get() {
+        index = (index + 1) & (SIZE - 1);
+        return block.get(index);
+    }
+
+    @Benchmark
+    public void put() {
+        index = (index + 1) & (SIZE - 1);
+        block.put(index, (long) index);
+    }
+}
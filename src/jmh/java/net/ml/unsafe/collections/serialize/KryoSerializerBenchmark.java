@@ -0,0 +1,67 @@
+package net.ml.unsafe.collections.serialize;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare serializing small objects through reused kryo contexts against new streams per call
+ *
+ * @author micha
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KryoSerializerBenchmark {
+    @Param({"KRYO_SERIALIZER", "KRYO_POOLED_SERIALIZER"})
+    public ByteSerializerType type;
+
+    private final Kryo kryo = new Kryo();
+    private final Long value = 42L;
+
+    private ByteSerializer<Long> serializer;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        serializer = ByteSerializerFactory.getSerializer(type);
+        bytes = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Long deserialize() {
+        return serializer.deserialize(bytes);
+    }
+
+    @Benchmark
+    public byte[] serializeStreams() throws IOException {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
+             Output output = new Output(out)) {
+            kryo.writeClassAndObject(output, value);
+            output.flush();
+            return out.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public Object deserializeStreams() throws IOException {
+        try (ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+             Input input = new Input(in)) {
+            return kryo.readClassAndObject(input);
+        }
+    }
+}
@@ -3,10 +3,25 @@ package net.ml.unsafe.collections.map;
 import net.ml.unsafe.collections.list.MemoryBlockArrayList;
 import net.ml.unsafe.collections.memory.blocks.ArrayReferenceMemoryBlock;
 import net.ml.unsafe.collections.memory.blocks.MemoryBlock;
+import net.ml.unsafe.collections.memory.blocks.MemoryReclaimer;
 
 import java.util.*;
 import java.util.stream.IntStream;
 
+/**
+ * Hash map storing its buckets in a memory block
+ *
+ * Buckets are lists over memory blocks of their own, stored in the table block as serialized
+ * handles. They allocate from the default memory, so a reclaimable table block only reclaims
+ * the table itself, never the entries of its buckets. The buckets cannot be made reclaimable
+ * either, as the block built for a bucket becomes unreachable as soon as its handle is stored,
+ * which would reclaim the entries while copies of the handle still point at them. Instead a
+ * reclaimable map registers itself with the {@link MemoryReclaimer}, which walks the table
+ * freeing every bucket and then the table once the map is unreachable. Otherwise release the
+ * entries with {@link #clear()} before dropping the map.
+ *
+ * @author micha
+ */
 public class MemoryBlockHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V> {
     private static final int MAXIMUM_CAPACITY = 1 << 30;
     private static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
@@ -35,8 +50,24 @@ public class MemoryBlockHashMap<K, V> extends AbstractMap<K, V> implements Map<K
     }
 
     public MemoryBlockHashMap(MemoryBlock<List<Entry<K,V>>> memory, int initialCapacity, float loadFactor) {
-        if (memory.size() != 0)
-            throw new IllegalArgumentException("Illegal initial memory size > 0: " + memory.size());
+        this(memory, initialCapacity, loadFactor, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param memory the empty table block, owned by the map
+     * @param initialCapacity the initial number of buckets
+     * @param loadFactor the number of entries per bucket before the table grows
+     * @param reclaimable whether or not to free the buckets and table once the map is unreachable
+     */
+    public MemoryBlockHashMap(MemoryBlock<List<Entry<K,V>>> memory, int initialCapacity, float loadFactor,
+                              boolean reclaimable) {
+        //blocks always allocate their initial capacity, which must not hold any bucket yet
+        for (List<Entry<K,V>> bucket : memory) {
+            if (bucket != null)
+                throw new IllegalArgumentException("Illegal initial memory holding buckets");
+        }
         if (initialCapacity < 0)
             throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
         if (initialCapacity > MAXIMUM_CAPACITY)
@@ -46,8 +77,28 @@ public class MemoryBlockHashMap<K, V> extends AbstractMap<K, V> implements Map<K
 
         this.memory = memory;
         this.loadFactor = loadFactor;
-        this.threshold = tableSizeFor(initialCapacity);
-        resize();
+        allocate(0, tableSizeFor(initialCapacity));
+
+        if (reclaimable) registerReclaimable(this, memory);
+    }
+
+    /**
+     * Free the buckets and then the table once the map is unreachable, the same as {@link #clear()}
+     *
+     * Static so the action holds the table only, never the map
+     *
+     * @param map the map
+     * @param table the table block of the map
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    private static <K, V> void registerReclaimable(MemoryBlockHashMap<K, V> map, MemoryBlock<List<Entry<K,V>>> table) {
+        MemoryReclaimer.register(map, () -> {
+            for (List<Entry<K,V>> bucket : table) {
+                if (bucket != null) bucket.clear();
+            }
+            table.free();
+        });
     }
 
     private static int tableSizeFor(int cap) {
@@ -159,43 +210,58 @@ public class MemoryBlockHashMap<K, V> extends AbstractMap<K, V> implements Map<K
         return entrySet == null ? (entrySet = new EntrySet()) : entrySet;
     }
 
+    /**
+     * Double the number of buckets, moving the entries whose index changed
+     */
     private void resize() {
-        int size = size();
-        int newCap;
+        int oldCap = memory.size();
 
-        if (size > 0) {
-            if (size >= MAXIMUM_CAPACITY) {
-                threshold = Integer.MAX_VALUE;
-                return;
-            }
-            else if ((newCap = size << 1) < MAXIMUM_CAPACITY &&
-                    size >= DEFAULT_INITIAL_CAPACITY)
-                threshold <<= 1; // double threshold
-        }
-        else if (threshold > 0) // initial capacity was placed in threshold
-            newCap = threshold;
-        else {               // zero initial threshold signifies using defaults
-            newCap = DEFAULT_INITIAL_CAPACITY;
-            threshold = (int) (DEFAULT_LOAD_FACTOR * DEFAULT_INITIAL_CAPACITY);
-        }
-        if (threshold == 0) {
-            float ft = (float) newCap * loadFactor;
-            threshold = (newCap < MAXIMUM_CAPACITY && ft < (float) MAXIMUM_CAPACITY ?
-                    (int) ft : Integer.MAX_VALUE);
+        if (oldCap >= MAXIMUM_CAPACITY) {
+            threshold = Integer.MAX_VALUE;
+            return;
         }
 
-        if (newCap > size) {
-            memory.realloc(newCap);
-            IntStream.range(size, newCap)
-                    .forEach(i -> {
-                        MemoryBlock<Entry<K,V>> bucket = ArrayReferenceMemoryBlock.<Entry<K,V>>builder().build();
-                        memory.put(i, new MemoryBlockArrayList<>(bucket));
-                    });
+        allocate(oldCap, oldCap << 1);
+
+        //entries either stay or move up by the old capacity, as the mask gained a single bit
+        for (int i = 0; i < oldCap; ++i) {
+            List<Entry<K,V>> bucket = memory.get(i);
+            List<Entry<K,V>> moved = memory.get(i + oldCap);
+
+            for (Iterator<Entry<K,V>> entries = bucket.iterator(); entries.hasNext();) {
+                Entry<K,V> entry = entries.next();
+                if ((hash(entry.getKey()) & oldCap) == 0) continue;
+
+                entries.remove();
+                moved.add(entry);
+            }
+
+            if (!moved.isEmpty()) {
+                memory.replace(i, bucket);
+                memory.replace(i + oldCap, moved);
+            }
         }
     }
 
+    /**
+     * Grow the table, filling the new indexes with empty buckets
+     *
+     * @param oldCap the number of buckets in use
+     * @param newCap the number of buckets, a power of two
+     */
+    private void allocate(int oldCap, int newCap) {
+        memory.realloc(newCap);
+        IntStream.range(oldCap, newCap).forEach(i -> memory.put(i, newBucket()));
+
+        float ft = (float) newCap * loadFactor;
+        threshold = newCap < MAXIMUM_CAPACITY && ft < (float) MAXIMUM_CAPACITY ?
+                (int) ft : Integer.MAX_VALUE;
+    }
+
     private V replaceVal(K key, V oldVal, V newVal) {
-        List<Entry<K,V>> bucket = getBucket(hash(key));
+        if (memory.size() == 0) return null;
+
+        List<Entry<K,V>> bucket = getBucket(indexFor(hash(key)));
         Entry<K,V> node;
 
         for (int i = 0; i < bucket.size(); ++i) {
@@ -224,7 +290,10 @@ public class MemoryBlockHashMap<K, V> extends AbstractMap<K, V> implements Map<K
     }
 
     private V putVal(K key, V value, boolean onlyIfAbsent) {
-        int index = hash(key);
+        //the table is freed by clear
+        if (memory.size() == 0) allocate(0, DEFAULT_INITIAL_CAPACITY);
+
+        int index = indexFor(hash(key));
         List<Entry<K,V>> bucket = getBucket(index);
         Entry<K,V> node;
 
@@ -241,22 +310,30 @@ public class MemoryBlockHashMap<K, V> extends AbstractMap<K, V> implements Map<K
         }
 
         bucket.add(new Node<>(key, value));
-        memory.put(index, bucket);
+        //the bucket read from the table is a copy, store its new size
+        memory.replace(index, bucket);
         ++modifications;
         if (++size > threshold) resize();
         return null;
     }
 
     private Entry<K,V> removeEntry(Object key, Object value) {
-        List<Entry<K,V>> bucket = getBucket(hash(key));
+        if (memory.size() == 0) return null;
+
+        int index = indexFor(hash(key));
+        List<Entry<K,V>> bucket = getBucket(index);
         Entry<K,V> node;
 
         for (int i = 0; i < bucket.size(); ++i) {
             node = bucket.get(i);
             if (Objects.equals(node.getKey(), key) &&
                 (value == null || Objects.equals(node.getValue(), value))) {
+                Entry<K,V> removed = bucket.remove(i);
+                //the bucket read from the table is a copy, store its new size
+                memory.replace(index, bucket);
+                ++modifications;
                 --size;
-                return bucket.remove(i);
+                return removed;
             }
         }
 
@@ -264,25 +341,44 @@ public class MemoryBlockHashMap<K, V> extends AbstractMap<K, V> implements Map<K
     }
 
     private Entry<K,V> getEntry(Object key) {
-        for (Entry<K,V> node : getBucket(hash(key))) {
+        if (memory.size() == 0) return null;
+
+        for (Entry<K,V> node : getBucket(indexFor(hash(key)))) {
             if (Objects.equals(node.getKey(), key)) return node;
         }
 
         return null;
     }
 
-    private List<Entry<K,V>> getBucket(int hash) {
-        int index = (size - 1) & hash;
-
+    private List<Entry<K,V>> getBucket(int index) {
         List<Entry<K, V>> bucket = memory.get(index);
         if (bucket == null) {
-            bucket = new MemoryBlockArrayList<>(ArrayReferenceMemoryBlock.<Entry<K,V>>builder().build());
+            bucket = newBucket();
             memory.put(index, bucket);
         }
 
         return bucket;
     }
 
+    /**
+     * Create an empty bucket on the default memory, see the class documentation on reclamation
+     *
+     * @return the bucket
+     */
+    private List<Entry<K,V>> newBucket() {
+        return new MemoryBlockArrayList<>(ArrayReferenceMemoryBlock.<Entry<K,V>>builder().build());
+    }
+
+    /**
+     * Get the index of the bucket of a hash
+     *
+     * @param hash the hash of a key
+     * @return the index in the table
+     */
+    private int indexFor(int hash) {
+        return (memory.size() - 1) & hash;
+    }
+
     private static int hash(Object key) {
         int h;
         return (key == null) ? 0 : (h = key.hashCode()) ^ (h >>> 16);
@@ -1,5 +1,6 @@
 package net.ml.unsafe.collections.map;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -8,7 +9,8 @@ import java.util.Map;
 import java.util.Objects;
 
 @Getter
-@NoArgsConstructor
+//private so kryo creates nodes through reflection, its generated accessors cannot reach package private classes from java 9
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
 @AllArgsConstructor
 final class Node<K,V> implements Map.Entry<K,V> {
     private K key;
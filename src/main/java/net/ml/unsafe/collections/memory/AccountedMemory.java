@@ -0,0 +1,235 @@
+package net.ml.unsafe.collections.memory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Manages chunks of memory while counting allocations cheaply enough to leave on under load
+ *
+ * Every allocation is prefixed by a header holding its size so frees can be counted without
+ * a shared map. Live allocations and live allocations per power of two size class are striped
+ * counters owned by this instance. The bytes in use are a single counter so every increase
+ * sees the exact total, and the peak is raised whenever that total passes it, so even the
+ * shortest spike is kept.
+ *
+ * Optionally one in every sample rate allocations records the stack trace of its caller
+ * until it is freed, which points at the sites of leaks without tracking every allocation.
+ *
+ * @author micha
+ */
+public final class AccountedMemory extends ForwardingMemory {
+    public static final int NO_SAMPLING = 0;
+
+    private static final int HEADER = Long.BYTES;
+    private static final int SAMPLED = 1;
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[Integer.SIZE];
+    private final AtomicLong peakBytes = new AtomicLong();
+    private final Map<Long, Throwable> sampled = new ConcurrentHashMap<>();
+    private final int sampleRate;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to count allocations of
+     */
+    public AccountedMemory(Memory memory) {
+        this(memory, NO_SAMPLING);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to count allocations of
+     * @param sampleRate record the call site of one in this many allocations, or no sampling
+     */
+    public AccountedMemory(Memory memory, int sampleRate) {
+        super(memory);
+
+        if (sampleRate < 0)
+            throw new IllegalArgumentException("Sample rate cannot be negative: " + sampleRate);
+
+        this.sampleRate = sampleRate;
+
+        for (int i = 0; i < histogram.length; ++i) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Take a snapshot of the counters
+     *
+     * @return the snapshot
+     */
+    public AllocationStats stats() {
+        long[] counts = new long[histogram.length];
+
+        for (int i = 0; i < counts.length; ++i) {
+            counts[i] = histogram[i].sum();
+        }
+
+        return new AllocationStats(bytes.get(), allocations.sum(), peakBytes.get(), counts);
+    }
+
+    /**
+     * Get the call sites of the sampled allocations which are still live
+     *
+     * @return the map of sampled addresses to the stack traces of their allocation
+     */
+    public Map<Long, Throwable> sampledAllocations() {
+        return Collections.unmodifiableMap(sampled);
+    }
+
+    /**
+     * Find if there are leaks in the memory
+     *
+     * @return whether or not there are live allocations
+     */
+    public boolean hasMemoryLeaks() {
+        return allocations.sum() > 0;
+    }
+
+    /**
+     * Allocate memory while counting it
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory while counting it
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        if (size < 0)
+            throw new IllegalArgumentException("Cannot allocate negative memory: " + size);
+
+        long addr = memory.malloc(size + HEADER, flags) + HEADER;
+        memory.putInt(addr - HEADER, size);
+
+        allocations.increment();
+        histogram[AllocationStats.sizeClassOf(size)].increment();
+        addBytes(size);
+
+        boolean sample = sampleRate != NO_SAMPLING && ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+        memory.putInt(addr - Integer.BYTES, sample ? SAMPLED : 0);
+        if (sample) sampled.put(addr, callSite("Allocated " + size + " bytes @" + addr));
+
+        return addr;
+    }
+
+    /**
+     * Increase the size of a memory allocation while counting the change
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation while counting the change
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        int allocated = memory.getInt(address - HEADER);
+        long addr = memory.realloc(address - HEADER, allocated + HEADER, size + HEADER, flags) + HEADER;
+        memory.putInt(addr - HEADER, size);
+
+        histogram[AllocationStats.sizeClassOf(allocated)].decrement();
+        histogram[AllocationStats.sizeClassOf(size)].increment();
+        addBytes(size - allocated);
+
+        if (addr != address && memory.getInt(addr - Integer.BYTES) == SAMPLED)
+            sampled.put(addr, sampled.remove(address));
+
+        return addr;
+    }
+
+    /**
+     * Release the allocated memory while counting it
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        int size = memory.getInt(address - HEADER);
+        if (memory.getInt(address - Integer.BYTES) == SAMPLED) sampled.remove(address);
+
+        memory.free(address - HEADER);
+
+        allocations.decrement();
+        histogram[AllocationStats.sizeClassOf(size)].decrement();
+        bytes.addAndGet(-size);
+    }
+
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * Freeing always updates the counters, whatever the underlying memory does
+     *
+     * @return true
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return true;
+    }
+
+    /**
+     * Capture the stack trace of the caller, without the frames of this memory
+     *
+     * @param message the message of the call site
+     * @return the call site
+     */
+    private static Throwable callSite(String message) {
+        Throwable site = new Throwable(message);
+        StackTraceElement[] trace = site.getStackTrace();
+
+        int from = 0;
+        while (from < trace.length && trace[from].getClassName().equals(AccountedMemory.class.getName())) {
+            ++from;
+        }
+
+        site.setStackTrace(Arrays.copyOfRange(trace, from, trace.length));
+        return site;
+    }
+
+    /**
+     * Count bytes in use, raising the peak when an increase passes it
+     *
+     * @param delta the change in bytes in use
+     */
+    private void addBytes(long delta) {
+        long inUse = bytes.addAndGet(delta);
+        if (delta <= 0) return;
+
+        //only contends on the peak while it is being raised
+        long peak;
+        while (inUse > (peak = peakBytes.get()) && !peakBytes.compareAndSet(peak, inUse)) { }
+    }
+}
@@ -0,0 +1,38 @@
+package net.ml.unsafe.collections.memory;
+
+/**
+ * Flags changing how memory is prepared when allocated
+ *
+ * Flags are combined as a bit set, {@link #ZEROED} being the default of plain allocations
+ *
+ * @author micha
+ */
+public final class AllocationFlags {
+    private AllocationFlags() {}
+
+    /**
+     * Zero the allocated bytes
+     */
+    public static final int ZEROED = 0;
+
+    /**
+     * Leave the allocated bytes as they are, for callers which overwrite all of them
+     */
+    public static final int UNINITIALIZED = 1;
+
+    /**
+     * Touch every page of the allocation up front so the first access does not fault
+     */
+    public static final int PRE_TOUCH = 1 << 1;
+
+    /**
+     * Check if a flag is set
+     *
+     * @param flags the combined flags
+     * @param flag the flag to check for
+     * @return whether or not the flag is set
+     */
+    public static boolean isSet(int flags, int flag) {
+        return (flags & flag) != 0;
+    }
+}
@@ -0,0 +1,42 @@
+package net.ml.unsafe.collections.memory;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Snapshot of the allocation counters of an accounted memory
+ *
+ * Counters are read one after another without stopping allocations so a snapshot taken
+ * under load is only consistent to within the operations in flight
+ *
+ * @author micha
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class AllocationStats {
+    private final long bytes;
+    private final long allocations;
+    private final long peakBytes;
+    private final long[] histogram;
+
+    /**
+     * Get the number of live allocations in a size class
+     *
+     * @param sizeClass the size class, holding sizes up to 2^sizeClass bytes
+     * @return the number of live allocations
+     */
+    public long allocations(int sizeClass) {
+        return histogram[sizeClass];
+    }
+
+    /**
+     * Find the size class of a number of bytes
+     *
+     * @param size the number of bytes
+     * @return the smallest power of two exponent that holds the bytes
+     */
+    public static int sizeClassOf(int size) {
+        return size <= 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
@@ -0,0 +1,205 @@
+package net.ml.unsafe.collections.memory;
+
+import java.util.Arrays;
+
+/**
+ * Manages chunks of memory as an arena released all at once
+ *
+ * Allocations are carved in order out of chunks reserved from the underlying memory and freeing
+ * a single allocation does nothing, the arena is instead reset to release every chunk at once.
+ * Blocks allocating from an arena skip freeing their objects one by one, so a whole collection
+ * backed by one arena is torn down by resetting it, in time proportional to the number of
+ * chunks rather than the number of objects. Allocations larger than a chunk get a chunk of
+ * their own. Not thread safe, use an arena per collection.
+ *
+ * @author micha
+ */
+public final class ArenaMemory extends ForwardingMemory implements AutoCloseable {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final int ALIGNMENT = Long.BYTES;
+
+    private final int chunkSize;
+
+    private long[] chunks = new long[8];
+    private int chunkCount;
+    private long next;
+    private long end;
+    private long allocated;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to reserve chunks from
+     */
+    public ArenaMemory(Memory memory) {
+        this(memory, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to reserve chunks from
+     * @param chunkSize the number of bytes reserved at a time
+     */
+    public ArenaMemory(Memory memory, int chunkSize) {
+        super(memory);
+
+        if (chunkSize < ALIGNMENT)
+            throw new IllegalArgumentException("Chunk size too small: " + chunkSize);
+
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get the number of bytes allocated since the last reset
+     *
+     * @return the number of bytes
+     */
+    public long allocated() {
+        return allocated;
+    }
+
+    /**
+     * Allocate memory from the current chunk, reserving a new chunk when full
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("Cannot allocate negative memory: " + size);
+
+        long aligned = align(size);
+        allocated += aligned;
+
+        if (aligned > chunkSize) return reserve(size);
+
+        if (end == 0 || next + aligned > end) {
+            next = reserve(chunkSize);
+            end = next + chunkSize;
+        }
+
+        long addr = next;
+        next += aligned;
+        return addr;
+    }
+
+    /**
+     * Allocate memory from the current chunk, reserving a new chunk when full
+     *
+     * @param size the number of bytes to allocate
+     * @param flags ignored, see {@link #malloc(int)}
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        return malloc(size);
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Grows in place when the allocation is the last one carved and the chunk has room,
+     * otherwise the old allocation is left in the arena until the next reset
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        if (size <= prevSize) return address;
+
+        if (address + align(prevSize) == next && address + align(size) <= end) {
+            allocated += align(size) - align(prevSize);
+            next = address + align(size);
+            return address;
+        }
+
+        long addr = malloc(size);
+        memory.copy(address, addr, prevSize);
+        return addr;
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Grows in place when the allocation is the last one carved and the chunk has room,
+     * otherwise the old allocation is left in the arena until the next reset
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags ignored, see {@link #realloc(long, int, int)}
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        return realloc(address, prevSize, size);
+    }
+
+    /**
+     * Does nothing, allocations are released when the arena is reset
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {}
+
+    /**
+     * Allocations are only released as a whole
+     *
+     * @return false
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return false;
+    }
+
+    /**
+     * Release every chunk, invalidating every allocation made from the arena
+     */
+    public void reset() {
+        for (int i = 0; i < chunkCount; ++i) {
+            memory.free(chunks[i]);
+        }
+
+        chunkCount = 0;
+        next = end = allocated = 0;
+    }
+
+    /**
+     * Releases every chunk when used in try with resources
+     */
+    @Override
+    public void close() {
+        reset();
+    }
+
+    /**
+     * Reserve a chunk from the underlying memory
+     *
+     * @param size the number of bytes in the chunk
+     * @return the address of the chunk
+     */
+    private long reserve(int size) {
+        if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount * 2);
+
+        long chunk = memory.malloc(size);
+        chunks[chunkCount++] = chunk;
+        return chunk;
+    }
+
+    /**
+     * Round a number of bytes up to the alignment
+     *
+     * @param size the number of bytes
+     * @return the aligned number of bytes
+     */
+    private static long align(int size) {
+        return ((long) size + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
@@ -0,0 +1,306 @@
+package net.ml.unsafe.collections.memory;
+
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Manages chunks of memory within a budget of bytes
+ *
+ * Allocations reserve their bytes from the budget before reaching the underlying memory so
+ * the bytes in use never exceed the hard limit. Crossing the soft watermark asks the evictor,
+ * if any, to free the bytes above it. An allocation which would exceed the limit is handled by
+ * the policy, failing immediately, waiting for frees up to a timeout, or asking the evictor to
+ * free the shortfall first. Every allocation is prefixed by a header holding its size so frees
+ * return the right number of bytes, the header is not counted against the budget.
+ *
+ * @author micha
+ */
+public final class BudgetedMemory extends ForwardingMemory {
+    private static final int HEADER = Long.BYTES;
+
+    private final AtomicLong used = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition freed = lock.newCondition();
+    private final long limit;
+    private final long watermark;
+    private final Policy policy;
+    private final long timeoutNanos;
+    private final LongConsumer evictor;
+
+    private volatile int waiters;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to allocate from
+     * @param limit the maximum number of bytes in use
+     * @param watermark the number of bytes in use from which the evictor is asked to free, defaults to the limit
+     * @param policy what to do when an allocation would exceed the limit, defaults to fail fast
+     * @param timeout how long to wait for frees under the block policy
+     * @param evictor called with a number of bytes to free, optional except under the evict policy
+     */
+    @Builder
+    public BudgetedMemory(Memory memory, long limit, long watermark, Policy policy, Duration timeout, LongConsumer evictor) {
+        super(Optional.ofNullable(memory).orElse(MemoryFactory.getMemory()));
+
+        if (limit <= 0)
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        if (watermark < 0 || watermark > limit)
+            throw new IllegalArgumentException("Watermark must be within the limit: " + watermark);
+        if (policy == Policy.EVICT && evictor == null)
+            throw new IllegalArgumentException("Evict policy requires an evictor");
+
+        this.limit = limit;
+        this.watermark = watermark == 0 ? limit : watermark;
+        this.policy = Optional.ofNullable(policy).orElse(Policy.FAIL_FAST);
+        this.timeoutNanos = Optional.ofNullable(timeout).orElse(Duration.ZERO).toNanos();
+        this.evictor = evictor;
+    }
+
+    /**
+     * Get the number of bytes in use
+     *
+     * @return the number of bytes
+     */
+    public long used() {
+        return used.get();
+    }
+
+    /**
+     * Check if the bytes in use are above the soft watermark
+     *
+     * @return whether or not the watermark is exceeded
+     */
+    public boolean isAboveWatermark() {
+        return used.get() > watermark;
+    }
+
+    /**
+     * Allocate memory within the budget
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     *
+     * @throws OutOfMemoryError the allocation does not fit in the budget
+     */
+    @Override
+    public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory within the budget
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     *
+     * @throws OutOfMemoryError the allocation does not fit in the budget
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        if (size < 0)
+            throw new IllegalArgumentException("Cannot allocate negative memory: " + size);
+
+        reserve(size);
+
+        try {
+            long addr = memory.malloc(size + HEADER, flags) + HEADER;
+            memory.putInt(addr - HEADER, size);
+            return addr;
+        } catch (RuntimeException | Error ex) {
+            release(size);
+            throw ex;
+        }
+    }
+
+    /**
+     * Increase the size of a memory allocation within the budget
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     *
+     * @throws OutOfMemoryError the increase does not fit in the budget
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation within the budget
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     *
+     * @throws OutOfMemoryError the increase does not fit in the budget
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        int allocated = memory.getInt(address - HEADER);
+        long delta = (long) size - allocated;
+
+        if (delta > 0) reserve(delta);
+
+        long addr;
+
+        try {
+            addr = memory.realloc(address - HEADER, allocated + HEADER, size + HEADER, flags) + HEADER;
+        } catch (RuntimeException | Error ex) {
+            if (delta > 0) release(delta);
+            throw ex;
+        }
+
+        memory.putInt(addr - HEADER, size);
+        if (delta < 0) release(-delta);
+        return addr;
+    }
+
+    /**
+     * Release the allocated memory back to the budget
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        int size = memory.getInt(address - HEADER);
+        memory.free(address - HEADER);
+        release(size);
+    }
+
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * Freeing always returns the bytes to the budget, whatever the underlying memory does
+     *
+     * @return true
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return true;
+    }
+
+    /**
+     * Reserve bytes from the budget, applying the policy when they do not fit
+     *
+     * @param bytes the number of bytes to reserve
+     *
+     * @throws OutOfMemoryError the bytes do not fit in the budget
+     */
+    private void reserve(long bytes) {
+        if (!tryReserve(bytes)) {
+            switch (policy) {
+                case BLOCK:
+                    awaitReserve(bytes);
+                    break;
+                case EVICT:
+                    evictor.accept(used.get() + bytes - limit);
+                    if (!tryReserve(bytes)) throw exceeded(bytes);
+                    break;
+                default:
+                    throw exceeded(bytes);
+            }
+        }
+
+        long inUse = used.get();
+
+        if (evictor != null && inUse > watermark && inUse - bytes <= watermark)
+            evictor.accept(inUse - watermark);
+    }
+
+    /**
+     * Reserve bytes from the budget if they fit
+     *
+     * @param bytes the number of bytes to reserve
+     * @return whether or not the bytes were reserved
+     */
+    private boolean tryReserve(long bytes) {
+        long current;
+
+        do {
+            current = used.get();
+            if (current + bytes > limit) return false;
+        } while (!used.compareAndSet(current, current + bytes));
+
+        return true;
+    }
+
+    /**
+     * Wait for frees until the bytes fit in the budget or the timeout passes
+     *
+     * @param bytes the number of bytes to reserve
+     *
+     * @throws OutOfMemoryError the bytes did not fit before the timeout
+     */
+    private void awaitReserve(long bytes) {
+        long remaining = timeoutNanos;
+
+        lock.lock();
+        ++waiters;
+
+        try {
+            while (!tryReserve(bytes)) {
+                if (remaining <= 0) throw exceeded(bytes);
+                remaining = freed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw exceeded(bytes);
+        } finally {
+            --waiters;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return bytes to the budget, waking any waiting allocations
+     *
+     * @param bytes the number of bytes to return
+     */
+    private void release(long bytes) {
+        used.addAndGet(-bytes);
+
+        if (waiters > 0) {
+            lock.lock();
+
+            try {
+                freed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Create the error for bytes which do not fit in the budget
+     *
+     * @param bytes the number of bytes requested
+     * @return the error
+     */
+    private OutOfMemoryError exceeded(long bytes) {
+        return new OutOfMemoryError("Memory budget exceeded, requested " + bytes + " bytes with " +
+                used.get() + " of " + limit + " in use");
+    }
+
+    /**
+     * What to do when an allocation would exceed the limit
+     *
+     * @author micha
+     */
+    public enum Policy {
+        FAIL_FAST,
+        BLOCK,
+        EVICT
+    }
+}
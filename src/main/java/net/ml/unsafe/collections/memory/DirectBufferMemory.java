@@ -0,0 +1,446 @@
+package net.ml.unsafe.collections.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Manages chunks of memory as direct byte buffers without unsafe
+ *
+ * Every allocation is its own direct buffer and addresses are translated rather than native,
+ * the high bits of an address select the buffer and the low bits are the offset within it.
+ * Freed buffers are returned to the operating system when they are garbage collected so
+ * small allocations are best pooled into larger buffers, see {@link MemoryType#BUFFER}.
+ *
+ * Volatile and atomic accesses fall back to the synchronized defaults of memory.
+ *
+ * @author micha
+ */
+public final class DirectBufferMemory implements Memory {
+    private static final int OFFSET_BITS = 31;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final long FILL_PATTERN = 0x0101010101010101L;
+    private static final int INITIAL_BUFFERS = 16;
+
+    private final Deque<Integer> freedIndexes = new ArrayDeque<>();
+    private volatile ByteBuffer[] buffers = new ByteBuffer[INITIAL_BUFFERS];
+    private int nextIndex = 1;
+
+    /**
+     * Allocate memory as a new direct buffer
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public synchronized long malloc(int size) {
+        int index = freedIndexes.isEmpty() ? nextIndex++ : freedIndexes.pop();
+        ByteBuffer[] current = buffers;
+
+        if (index == current.length) {
+            ByteBuffer[] grown = new ByteBuffer[current.length << 1];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+
+        current[index] = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        //publish the buffer to readers through the volatile write
+        buffers = current;
+
+        return (long) index << OFFSET_BITS;
+    }
+
+    /**
+     * Increase the size of a memory allocation by copying into a new direct buffer
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        long addr = malloc(size);
+        copy(address, addr, Math.min(prevSize, size));
+        free(address);
+        return addr;
+    }
+
+    /**
+     * Release the direct buffer of the allocation
+     *
+     * @param address the address to release
+     */
+    @Override
+    public synchronized void free(long address) {
+        if (offset(address) != 0)
+            throw new IllegalArgumentException("not an allocated address " + address);
+
+        //fails for addresses that are not allocated
+        buffer(address);
+
+        int index = index(address);
+        buffers[index] = null;
+        freedIndexes.push(index);
+    }
+
+    /**
+     * Place the bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes) {
+        slice(address, bytes.length).put(bytes);
+    }
+
+    /**
+     * Place a range of bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes, int offset, int length) {
+        slice(address, length).put(bytes, offset, length);
+    }
+
+    /**
+     * Place the remaining bytes of a buffer into memory, advancing its position
+     *
+     * @param address the address to store the bytes
+     * @param buffer the buffer holding the bytes to store
+     */
+    @Override
+    public void put(long address, ByteBuffer buffer) {
+        slice(address, buffer.remaining()).put(buffer);
+    }
+
+    /**
+     * Swap the bytes of two addresses
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to swap
+     */
+    @Override
+    public void swap(long addressA, long addressB, int size) {
+        byte[] tmp = get(addressB, size);
+        copy(addressA, addressB, size);
+        put(addressA, tmp);
+    }
+
+    /**
+     * Copy the bytes of one address into another
+     *
+     * @param addressA the address to copy from
+     * @param addressB the address to copy to
+     * @param size the number of bytes to copy
+     */
+    @Override
+    public void copy(long addressA, long addressB, int size) {
+        slice(addressB, size).put(slice(addressA, size));
+    }
+
+    /**
+     * Move the bytes of one address into another where the two ranges may overlap
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    @Override
+    public void move(long addressA, long addressB, int size) {
+        //direct to direct buffer copies handle overlapping ranges like memmove
+        copy(addressA, addressB, size);
+    }
+
+    /**
+     * Set every byte in a range to a value
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    @Override
+    public void fill(long address, int size, byte value) {
+        ByteBuffer buffer = buffer(address);
+        int offset = offset(address);
+        long word = (value & 0xFFL) * FILL_PATTERN;
+        int i = 0;
+
+        for (; i <= size - Long.BYTES; i += Long.BYTES) {
+            buffer.putLong(offset + i, word);
+        }
+
+        for (; i < size; ++i) {
+            buffer.put(offset + i, value);
+        }
+    }
+
+    /**
+     * Check if the bytes of two addresses are equal
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return whether or not the bytes are equal
+     */
+    @Override
+    public boolean equals(long addressA, long addressB, int size) {
+        return slice(addressA, size).equals(slice(addressB, size));
+    }
+
+    /**
+     * Compare the bytes of two addresses lexicographically as unsigned values
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return negative, zero or positive as the first bytes are less, equal or greater than the second
+     */
+    @Override
+    public int compare(long addressA, long addressB, int size) {
+        ByteBuffer bufferA = buffer(addressA);
+        ByteBuffer bufferB = buffer(addressB);
+        int offsetA = offset(addressA);
+        int offsetB = offset(addressB);
+
+        for (int i = 0; i < size; ++i) {
+            byte a = bufferA.get(offsetA + i);
+            byte b = bufferB.get(offsetB + i);
+
+            if (a != b) return Integer.compare(Byte.toUnsignedInt(a), Byte.toUnsignedInt(b));
+        }
+
+        return 0;
+    }
+
+    /**
+     * Get the bytes at the address
+     *
+     * @param address the start address of the bytes
+     * @param size the number of bytes to retrieve
+     * @return the bytes retrieved
+     */
+    @Override
+    public byte[] get(long address, int size) {
+        byte[] bytes = new byte[size];
+        slice(address, size).get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Get the bytes at the address into an existing array
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    @Override
+    public void get(long address, byte[] bytes, int offset, int length) {
+        slice(address, length).get(bytes, offset, length);
+    }
+
+    /**
+     * Get the bytes at the address into the remaining space of a buffer, advancing its position
+     *
+     * @param address the start address of the bytes
+     * @param buffer the buffer to hold the retrieved bytes
+     */
+    @Override
+    public void get(long address, ByteBuffer buffer) {
+        buffer.put(slice(address, buffer.remaining()));
+    }
+
+    /**
+     * Get the byte at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public byte getByte(long address) {
+        return buffer(address).get(offset(address));
+    }
+
+    /**
+     * Place a byte into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putByte(long address, byte value) {
+        buffer(address).put(offset(address), value);
+    }
+
+    /**
+     * Get the short at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public short getShort(long address) {
+        return buffer(address).getShort(offset(address));
+    }
+
+    /**
+     * Place a short into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putShort(long address, short value) {
+        buffer(address).putShort(offset(address), value);
+    }
+
+    /**
+     * Get the int at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getInt(long address) {
+        return buffer(address).getInt(offset(address));
+    }
+
+    /**
+     * Place an int into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putInt(long address, int value) {
+        buffer(address).putInt(offset(address), value);
+    }
+
+    /**
+     * Get the long at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLong(long address) {
+        return buffer(address).getLong(offset(address));
+    }
+
+    /**
+     * Place a long into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLong(long address, long value) {
+        buffer(address).putLong(offset(address), value);
+    }
+
+    /**
+     * Get the float at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public float getFloat(long address) {
+        return buffer(address).getFloat(offset(address));
+    }
+
+    /**
+     * Place a float into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putFloat(long address, float value) {
+        buffer(address).putFloat(offset(address), value);
+    }
+
+    /**
+     * Get the double at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public double getDouble(long address) {
+        return buffer(address).getDouble(offset(address));
+    }
+
+    /**
+     * Place a double into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putDouble(long address, double value) {
+        buffer(address).putDouble(offset(address), value);
+    }
+
+    /**
+     * Get a view of a range of memory positioned at its start
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes in the range
+     * @return the view of the range
+     */
+    private ByteBuffer slice(long address, int size) {
+        int offset = offset(address);
+        ByteBuffer view = buffer(address).duplicate();
+
+        view.position(offset);
+        view.limit(offset + size);
+        return view;
+    }
+
+    /**
+     * Get the buffer holding an address
+     *
+     * @param address the address
+     * @return the buffer
+     *
+     * @throws IllegalArgumentException the address is not in an allocated buffer
+     */
+    private ByteBuffer buffer(long address) {
+        ByteBuffer[] current = buffers;
+        int index = index(address);
+
+        if (index <= 0 || index >= current.length || current[index] == null)
+            throw new IllegalArgumentException("not a mapped address " + address);
+
+        return current[index];
+    }
+
+    /**
+     * Get the buffer index of an address
+     *
+     * @param address the address
+     * @return the index of the buffer
+     */
+    private static int index(long address) {
+        return (int) (address >>> OFFSET_BITS);
+    }
+
+    /**
+     * Get the offset of an address within its buffer
+     *
+     * @param address the address
+     * @return the offset in the buffer
+     */
+    private static int offset(long address) {
+        return (int) (address & OFFSET_MASK);
+    }
+}
@@ -0,0 +1,132 @@
+package net.ml.unsafe.collections.memory;
+
+/**
+ * Manages chunks of memory while emitting flight recorder events for allocations
+ *
+ * Allocations and reallocations of at least the minimum size are committed as events when
+ * enabled in the recording, subject to the usual flight recorder thresholds, so off-heap
+ * allocation profiles land in the same recordings as gc and cpu profiles. Costs next to
+ * nothing while no recording has the events enabled. Needs a runtime with flight recorder.
+ *
+ * @author micha
+ */
+public final class FlightRecorderMemory extends ForwardingMemory {
+    public static final int DEFAULT_MIN_SIZE = 1 << 12;
+
+    private final int minSize;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to record the allocations of
+     */
+    public FlightRecorderMemory(Memory memory) {
+        this(memory, DEFAULT_MIN_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to record the allocations of
+     * @param minSize the number of bytes from which allocations are committed
+     */
+    public FlightRecorderMemory(Memory memory, int minSize) {
+        super(memory);
+        this.minSize = minSize;
+    }
+
+    /**
+     * Allocate memory while recording it
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory while recording it
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        MallocEvent event = new MallocEvent();
+        event.begin();
+
+        long addr = memory.malloc(size, flags);
+        event.end();
+
+        if (size >= minSize && event.shouldCommit()) {
+            event.address = addr;
+            event.size = size;
+            event.commit();
+        }
+
+        return addr;
+    }
+
+    /**
+     * Increase the size of a memory allocation while recording it
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation while recording it
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        ReallocEvent event = new ReallocEvent();
+        event.begin();
+
+        long addr = memory.realloc(address, prevSize, size, flags);
+        event.end();
+
+        if (size >= minSize && event.shouldCommit()) {
+            event.address = addr;
+            event.previousAddress = address;
+            event.previousSize = prevSize;
+            event.size = size;
+            event.commit();
+        }
+
+        return addr;
+    }
+
+    /**
+     * Release the allocated memory while recording it
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        FreeEvent event = new FreeEvent();
+        event.begin();
+
+        memory.free(address);
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.address = address;
+            event.commit();
+        }
+    }
+}
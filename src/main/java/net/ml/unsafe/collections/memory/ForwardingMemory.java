@@ -0,0 +1,475 @@
+package net.ml.unsafe.collections.memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Forwards every memory operation to an underlying memory
+ *
+ * Base for memories which only change some operations, such as allocation,
+ * while passing the rest through untouched
+ *
+ * @author micha
+ */
+public abstract class ForwardingMemory implements Memory {
+    protected final Memory memory;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to forward to
+     */
+    protected ForwardingMemory(Memory memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * Allocate memory
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        return memory.malloc(size);
+    }
+
+    /**
+     * Allocate memory
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        return memory.malloc(size, flags);
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the original number of bytes allocated
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        return memory.realloc(address, prevSize, size);
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the original number of bytes allocated
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        return memory.realloc(address, prevSize, size, flags);
+    }
+
+    /**
+     * Release the allocated memory
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        memory.free(address);
+    }
+
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * @return whether or not the underlying memory releases each allocation when freed
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return memory.releasesOnFree();
+    }
+
+    /**
+     * Check if addresses are native pointers
+     *
+     * @return whether or not addresses are native pointers
+     */
+    @Override
+    public boolean hasNativeAddresses() {
+        return memory.hasNativeAddresses();
+    }
+
+    /**
+     * Place the bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes) {
+        memory.put(address, bytes);
+    }
+
+    /**
+     * Place a range of bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes, int offset, int length) {
+        memory.put(address, bytes, offset, length);
+    }
+
+    /**
+     * Place the remaining bytes of a buffer into memory, advancing its position
+     *
+     * @param address the address to store the bytes
+     * @param buffer the buffer holding the bytes to store
+     */
+    @Override
+    public void put(long address, ByteBuffer buffer) {
+        memory.put(address, buffer);
+    }
+
+    /**
+     * Swap the bytes of two addresses
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to swap
+     */
+    @Override
+    public void swap(long addressA, long addressB, int size) {
+        memory.swap(addressA, addressB, size);
+    }
+
+    /**
+     * Copy the bytes of one address into another
+     *
+     * @param addressA the address to copy from
+     * @param addressB the address to copy to
+     * @param size the number of bytes to copy
+     */
+    @Override
+    public void copy(long addressA, long addressB, int size) {
+        memory.copy(addressA, addressB, size);
+    }
+
+    /**
+     * Move the bytes of one address into another where the two ranges may overlap
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    @Override
+    public void move(long addressA, long addressB, int size) {
+        memory.move(addressA, addressB, size);
+    }
+
+    /**
+     * Set every byte in a range to a value
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    @Override
+    public void fill(long address, int size, byte value) {
+        memory.fill(address, size, value);
+    }
+
+    /**
+     * Check if the bytes of two addresses are equal
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return whether or not the bytes are equal
+     */
+    @Override
+    public boolean equals(long addressA, long addressB, int size) {
+        return memory.equals(addressA, addressB, size);
+    }
+
+    /**
+     * Compare the bytes of two addresses lexicographically as unsigned values
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return negative, zero or positive as the first bytes are less, equal or greater than the second
+     */
+    @Override
+    public int compare(long addressA, long addressB, int size) {
+        return memory.compare(addressA, addressB, size);
+    }
+
+    /**
+     * Get the bytes at the address
+     *
+     * @param address the start address of the bytes
+     * @param size the number of bytes to retrieve
+     * @return the bytes retrieved
+     */
+    @Override
+    public byte[] get(long address, int size) {
+        return memory.get(address, size);
+    }
+
+    /**
+     * Get the bytes at the address into an existing array
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    @Override
+    public void get(long address, byte[] bytes, int offset, int length) {
+        memory.get(address, bytes, offset, length);
+    }
+
+    /**
+     * Get the bytes at the address into the remaining space of a buffer, advancing its position
+     *
+     * @param address the start address of the bytes
+     * @param buffer the buffer to hold the retrieved bytes
+     */
+    @Override
+    public void get(long address, ByteBuffer buffer) {
+        memory.get(address, buffer);
+    }
+
+    /**
+     * Get the byte at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public byte getByte(long address) {
+        return memory.getByte(address);
+    }
+
+    /**
+     * Place a byte into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putByte(long address, byte value) {
+        memory.putByte(address, value);
+    }
+
+    /**
+     * Get the short at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public short getShort(long address) {
+        return memory.getShort(address);
+    }
+
+    /**
+     * Place a short into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putShort(long address, short value) {
+        memory.putShort(address, value);
+    }
+
+    /**
+     * Get the int at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getInt(long address) {
+        return memory.getInt(address);
+    }
+
+    /**
+     * Place a int into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putInt(long address, int value) {
+        memory.putInt(address, value);
+    }
+
+    /**
+     * Get the long at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLong(long address) {
+        return memory.getLong(address);
+    }
+
+    /**
+     * Place a long into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLong(long address, long value) {
+        memory.putLong(address, value);
+    }
+
+    /**
+     * Get the float at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public float getFloat(long address) {
+        return memory.getFloat(address);
+    }
+
+    /**
+     * Place a float into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putFloat(long address, float value) {
+        memory.putFloat(address, value);
+    }
+
+    /**
+     * Get the double at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public double getDouble(long address) {
+        return memory.getDouble(address);
+    }
+
+    /**
+     * Place a double into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putDouble(long address, double value) {
+        memory.putDouble(address, value);
+    }
+
+    /**
+     * Get the int at the address with volatile semantics
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getIntVolatile(long address) {
+        return memory.getIntVolatile(address);
+    }
+
+    /**
+     * Place a int into memory with volatile semantics
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntVolatile(long address, int value) {
+        memory.putIntVolatile(address, value);
+    }
+
+    /**
+     * Place a int into memory with ordered semantics, the store is not reordered with prior stores
+     * but may become visible to other threads lazily
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntOrdered(long address, int value) {
+        memory.putIntOrdered(address, value);
+    }
+
+    /**
+     * Atomically replace the int at the address if it holds the expected value
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapInt(long address, int expected, int value) {
+        return memory.compareAndSwapInt(address, expected, value);
+    }
+
+    /**
+     * Get the long at the address with volatile semantics
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLongVolatile(long address) {
+        return memory.getLongVolatile(address);
+    }
+
+    /**
+     * Place a long into memory with volatile semantics
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongVolatile(long address, long value) {
+        memory.putLongVolatile(address, value);
+    }
+
+    /**
+     * Place a long into memory with ordered semantics, the store is not reordered with prior stores
+     * but may become visible to other threads lazily
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongOrdered(long address, long value) {
+        memory.putLongOrdered(address, value);
+    }
+
+    /**
+     * Atomically replace the long at the address if it holds the expected value
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapLong(long address, long expected, long value) {
+        return memory.compareAndSwapLong(address, expected, value);
+    }
+}
@@ -0,0 +1,25 @@
+package net.ml.unsafe.collections.memory;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.MemoryAddress;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a release of memory
+ *
+ * @author micha
+ */
+@Name("net.ml.unsafe.collections.Free")
+@Label("Free")
+@Category({"Unsafe Collections", "Memory"})
+@Description("Release of memory, disabled by default as frees carry no size to filter on")
+@Enabled(false)
+final class FreeEvent extends Event {
+    @Label("Address")
+    @MemoryAddress
+    long address;
+}
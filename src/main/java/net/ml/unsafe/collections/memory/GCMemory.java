@@ -2,116 +2,553 @@ package net.ml.unsafe.collections.memory;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.LongStream;
 
+/**
+ * Manages chunks of memory on the heap in large byte array pages
+ *
+ * The high bits of an address select the page and the low bits are the offset within it.
+ * Allocations are carved from the current page and followed by an unallocated guard gap,
+ * allocations larger than a page get a page of their own. Addresses are never reused and a
+ * page is dropped once all of its allocations are freed. Every page tracks which of its bytes
+ * are allocated so any access outside of a live allocation fails like it would off-heap.
+ *
+ * The pages are shared by all instances so addresses can be passed between them.
+ *
+ * @author micha
+ */
 @Slf4j
 public final class GCMemory implements Memory {
-    private static final Map<Long, Byte> memory = new ConcurrentHashMap<>();
-    private static final Map<Long, Integer> allocated = new ConcurrentHashMap<>();
+    public static final int PAGE_SIZE = 1 << 20;
 
-    private static AtomicLong currentAddress = new AtomicLong(newAddress());
+    private static final int OFFSET_BITS = 31;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final int ALIGNMENT = Long.BYTES;
+    private static final int GUARD = 1;
+    private static final Object lock = new Object();
 
+    private static volatile Page[] pages = new Page[16];
+    private static int nextPage = 1;
+    private static Page current;
+
+    /**
+     * Allocate memory from the current page or a page of its own if too large
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
     @Override
     public long malloc(int size) {
-        long addr = nextAddress(size);
-        checkAddressUnique(addr, size);
+        if (size < 0)
+            throw new IllegalArgumentException("Cannot allocate negative memory: " + size);
 
-        decomposeBytes(addr, new byte[size], false);
-        allocated.put(addr, size);
-        return addr;
+        int stride = (size + GUARD + ALIGNMENT - 1) & -ALIGNMENT;
+
+        synchronized (lock) {
+            Page page = current;
+
+            if (stride > PAGE_SIZE) {
+                page = newPage(size);
+            } else if (page == null || page.cursor + stride > PAGE_SIZE) {
+                if (page != null && page.allocations.isEmpty()) pages[page.index] = null;
+
+                page = newPage(PAGE_SIZE);
+                current = page;
+            }
+
+            int offset = page.cursor;
+            page.allocate(offset, size);
+            page.cursor += stride;
+            return page.address(offset);
+        }
     }
 
+    /**
+     * Move a memory allocation to a new address with the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
     @Override
     public long realloc(long address, int prevSize, int size) {
-        if (!memory.containsKey(address))
+        if (!isAllocated(address))
             return malloc(size);
 
-        long addr = nextAddress(size);
-        checkAddressUnique(addr, size);
-
-        byte[] bytes = decomposeAddress(address, prevSize);
-        byte[] expanded = new byte[size];
-        System.arraycopy(bytes, 0, expanded, 0, prevSize);
+        long addr = malloc(size);
+        copy(address, addr, Math.min(prevSize, size));
         free(address);
-
-        decomposeBytes(addr, expanded, false);
-        allocated.put(addr, size);
         return addr;
     }
 
+    /**
+     * Release the allocated memory, dropping its page once it has no allocations left
+     *
+     * @param address the address to release
+     */
     @Override
     public void free(long address) {
-        checkAddress(address);
+        synchronized (lock) {
+            Page page = page(address);
+            page.release(offset(address));
 
-        LongStream.range(address, address + allocated.get(address)).forEach(memory::remove);
-        allocated.remove(address);
+            if (page.allocations.isEmpty() && page != current)
+                pages[page.index] = null;
+        }
     }
 
+    /**
+     * Place the bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the bytes to store
+     */
     @Override
     public void put(long address, byte[] bytes) {
-        decomposeBytes(address, bytes, true);
+        put(address, bytes, 0, bytes.length);
     }
 
+    /**
+     * Place a range of bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
     @Override
-    public void swap(long addressA, long addressB, int size) {
-        byte[] bytesA = decomposeAddress(addressA, size);
-        byte[] bytesB = decomposeAddress(addressB, size);
+    public void put(long address, byte[] bytes, int offset, int length) {
+        System.arraycopy(bytes, offset, data(address, length), offset(address), length);
+    }
 
-        decomposeBytes(addressB, bytesA, true);
-        decomposeBytes(addressA, bytesB, true);
+    /**
+     * Swap the bytes of two addresses
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to swap
+     */
+    @Override
+    public void swap(long addressA, long addressB, int size) {
+        byte[] tmp = get(addressB, size);
+        copy(addressA, addressB, size);
+        put(addressA, tmp);
     }
 
+    /**
+     * Copy the bytes of one address into another
+     *
+     * @param addressA the address to copy from
+     * @param addressB the address to copy to
+     * @param size the number of bytes to copy
+     */
     @Override
     public void copy(long addressA, long addressB, int size) {
-        decomposeBytes(addressB, decomposeAddress(addressA, size), true);
+        System.arraycopy(data(addressA, size), offset(addressA), data(addressB, size), offset(addressB), size);
+    }
+
+    /**
+     * Move the bytes of one address into another where the two ranges may overlap
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    @Override
+    public void move(long addressA, long addressB, int size) {
+        //array copies handle overlapping ranges like memmove
+        copy(addressA, addressB, size);
     }
 
+    /**
+     * Set every byte in a range to a value
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    @Override
+    public void fill(long address, int size, byte value) {
+        int offset = offset(address);
+        Arrays.fill(data(address, size), offset, offset + size, value);
+    }
+
+    /**
+     * Get the bytes at the address
+     *
+     * @param address the start address of the bytes
+     * @param size the number of bytes to retrieve
+     * @return the bytes retrieved
+     */
     @Override
     public byte[] get(long address, int size) {
-        return decomposeAddress(address, size);
+        byte[] bytes = new byte[size];
+        get(address, bytes, 0, size);
+        return bytes;
     }
 
-    private static long newAddress() {
-        return 1;
+    /**
+     * Get the bytes at the address into an existing array
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    @Override
+    public void get(long address, byte[] bytes, int offset, int length) {
+        System.arraycopy(data(address, length), offset(address), bytes, offset, length);
     }
 
-    private long nextAddress(int size) {
-        return currentAddress.getAndAdd(size);
+    /**
+     * Get the byte at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public byte getByte(long address) {
+        return data(address, Byte.BYTES)[offset(address)];
     }
 
-    private void decomposeBytes(long address, byte[] bytes, boolean check) {
-        if (check) checkAddress(address);
+    /**
+     * Place a byte into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putByte(long address, byte value) {
+        data(address, Byte.BYTES)[offset(address)] = value;
+    }
 
-        for (int i = 0; i < bytes.length; ++i, ++address) {
-            memory.put(address, bytes[i]);
-        }
+    /**
+     * Get the short at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public short getShort(long address) {
+        return view(address, Short.BYTES).getShort(offset(address));
     }
 
-    private byte[] decomposeAddress(long address, int size) {
-        byte[] bytes = new byte[size];
+    /**
+     * Place a short into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putShort(long address, short value) {
+        view(address, Short.BYTES).putShort(offset(address), value);
+    }
+
+    /**
+     * Get the int at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getInt(long address) {
+        return view(address, Integer.BYTES).getInt(offset(address));
+    }
+
+    /**
+     * Place an int into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putInt(long address, int value) {
+        view(address, Integer.BYTES).putInt(offset(address), value);
+    }
+
+    /**
+     * Get the long at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLong(long address) {
+        return view(address, Long.BYTES).getLong(offset(address));
+    }
+
+    /**
+     * Place a long into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLong(long address, long value) {
+        view(address, Long.BYTES).putLong(offset(address), value);
+    }
+
+    /**
+     * Check if an address is the start of a live allocation
+     *
+     * @param address the address
+     * @return whether or not the address is allocated
+     */
+    private static boolean isAllocated(long address) {
+        Page[] current = pages;
+        int index = index(address);
+
+        if (index <= 0 || index >= current.length || current[index] == null)
+            return false;
 
-        for (int i = 0; i < size; ++i, ++address) {
-            checkAddress(address);
-            bytes[i] = memory.get(address);
+        synchronized (lock) {
+            return current[index].allocations.containsKey(offset(address));
         }
+    }
 
-        return bytes;
+    /**
+     * Get the page array holding a range after checking the range is allocated
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes in the range
+     * @return the data of the page
+     */
+    private static byte[] data(long address, int size) {
+        return checked(address, size).data;
     }
 
-    private void checkAddressUnique(long address, int size) {
-        LongStream.range(address, address + size).forEach(this::checkAddressUnique);
+    /**
+     * Get the native order view of the page holding a range after checking the range is allocated
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes in the range
+     * @return the view of the page
+     */
+    private static ByteBuffer view(long address, int size) {
+        return checked(address, size).view;
     }
 
-    private void checkAddressUnique(long address) {
-        if (memory.containsKey(address))
-            throw new RuntimeException("Address already in use " + address);
+    /**
+     * Get the page holding a range after checking the range is allocated
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes in the range
+     * @return the page
+     *
+     * @throws IllegalArgumentException the range is not allocated
+     */
+    private static Page checked(long address, int size) {
+        Page page = page(address);
+
+        if (!page.isLive(offset(address), size))
+            throw new IllegalArgumentException("not a mapped address " + address);
+
+        return page;
     }
 
-    private void checkAddress(long address) {
-        if (!memory.containsKey(address))
+    /**
+     * Get the page holding an address
+     *
+     * @param address the address
+     * @return the page
+     *
+     * @throws IllegalArgumentException the address is not in a page
+     */
+    private static Page page(long address) {
+        Page[] current = pages;
+        int index = index(address);
+
+        if (index <= 0 || index >= current.length || current[index] == null)
             throw new IllegalArgumentException("not a mapped address " + address);
+
+        return current[index];
+    }
+
+    /**
+     * Add a new page to the page table, must hold the lock
+     *
+     * @param size the number of bytes in the page
+     * @return the page
+     */
+    private static Page newPage(int size) {
+        Page[] table = pages;
+        int index = nextPage++;
+
+        if (index == table.length) {
+            table = Arrays.copyOf(table, table.length << 1);
+        }
+
+        Page page = new Page(index, size);
+        table[index] = page;
+        //publish the page to readers through the volatile write
+        pages = table;
+        return page;
+    }
+
+    /**
+     * Get the page index of an address
+     *
+     * @param address the address
+     * @return the index of the page
+     */
+    private static int index(long address) {
+        return (int) (address >>> OFFSET_BITS);
+    }
+
+    /**
+     * Get the offset of an address within its page
+     *
+     * @param address the address
+     * @return the offset in the page
+     */
+    private static int offset(long address) {
+        return (int) (address & OFFSET_MASK);
+    }
+
+    /**
+     * Byte array page with the allocations carved out of it
+     *
+     * The allocation map is only used under the lock, the live bitmap is only written under
+     * the lock and is read without it for the range checks of data access
+     *
+     * @author micha
+     */
+    private static final class Page {
+        private final int index;
+        private final byte[] data;
+        private final ByteBuffer view;
+        private final long[] live;
+        private final Map<Integer, Integer> allocations = new HashMap<>();
+
+        private int cursor;
+
+        /**
+         * Constructor
+         *
+         * @param index the index of the page in the page table
+         * @param size the number of bytes in the page
+         */
+        Page(int index, int size) {
+            this.index = index;
+            this.data = new byte[size];
+            this.view = ByteBuffer.wrap(data).order(ByteOrder.nativeOrder());
+            this.live = new long[(size + Long.SIZE - 1) / Long.SIZE];
+        }
+
+        /**
+         * Get the address of an offset in the page
+         *
+         * @param offset the offset in the page
+         * @return the address
+         */
+        long address(int offset) {
+            return (long) index << OFFSET_BITS | offset;
+        }
+
+        /**
+         * Record an allocation
+         *
+         * @param offset the offset of the allocation
+         * @param size the number of bytes allocated
+         */
+        void allocate(int offset, int size) {
+            if (size > 0 && !isFree(offset, size))
+                throw new RuntimeException("Address already in use " + address(offset));
+
+            allocations.put(offset, size);
+            mark(offset, size, true);
+        }
+
+        /**
+         * Release an allocation
+         *
+         * @param offset the offset of the allocation
+         *
+         * @throws IllegalArgumentException the offset is not the start of an allocation
+         */
+        void release(int offset) {
+            Integer size = allocations.remove(offset);
+
+            if (size == null)
+                throw new IllegalArgumentException("not a mapped address " + address(offset));
+
+            mark(offset, size, false);
+        }
+
+        /**
+         * Check if every byte in a range is allocated
+         *
+         * @param offset the offset of the range
+         * @param size the number of bytes in the range
+         * @return whether or not the range is allocated
+         */
+        boolean isLive(int offset, int size) {
+            if (offset + size > data.length) return false;
+
+            for (int i = offset; i < offset + size; ) {
+                int word = i >>> 6;
+                int bits = Math.min(Long.SIZE - (i & 63), offset + size - i);
+                long mask = mask(i, bits);
+
+                if ((live[word] & mask) != mask) return false;
+                i += bits;
+            }
+
+            return true;
+        }
+
+        /**
+         * Check if no byte in a range is allocated
+         *
+         * @param offset the offset of the range
+         * @param size the number of bytes in the range
+         * @return whether or not the range is free
+         */
+        private boolean isFree(int offset, int size) {
+            if (offset + size > data.length) return false;
+
+            for (int i = offset; i < offset + size; ) {
+                int bits = Math.min(Long.SIZE - (i & 63), offset + size - i);
+
+                if ((live[i >>> 6] & mask(i, bits)) != 0) return false;
+                i += bits;
+            }
+
+            return true;
+        }
+
+        /**
+         * Set or clear the allocated bits of a range
+         *
+         * @param offset the offset of the range
+         * @param size the number of bytes in the range
+         * @param allocated whether the range is allocated
+         */
+        private void mark(int offset, int size, boolean allocated) {
+            for (int i = offset; i < offset + size; ) {
+                int bits = Math.min(Long.SIZE - (i & 63), offset + size - i);
+                long mask = mask(i, bits);
+
+                live[i >>> 6] = allocated ? live[i >>> 6] | mask : live[i >>> 6] & ~mask;
+                i += bits;
+            }
+        }
+
+        /**
+         * Get the mask of bits within a single word of the bitmap
+         *
+         * @param from the first bit
+         * @param bits the number of bits, up to the end of the word
+         * @return the mask
+         */
+        private static long mask(int from, int bits) {
+            long mask = bits == Long.SIZE ? -1L : (1L << bits) - 1;
+            return mask << (from & 63);
+        }
     }
 }
@@ -0,0 +1,240 @@
+package net.ml.unsafe.collections.memory;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manages large chunks of memory in anonymous mappings backed by transparent huge pages
+ *
+ * Allocations of at least the threshold are mapped on their own, aligned to a huge page and
+ * advised to use huge pages so large blocks take fewer tlb misses, and can be locked into ram
+ * so they are never swapped. Smaller allocations go to the underlying memory which must use
+ * native addresses. When huge pages or locking are unavailable the mapping is used as is,
+ * and when mappings are unavailable altogether every allocation goes to the underlying memory.
+ *
+ * @author micha
+ */
+@Slf4j
+public final class HugePageMemory extends ForwardingMemory {
+    public static final int HUGE_PAGE_SIZE = 1 << 21;
+    public static final int DEFAULT_THRESHOLD = HUGE_PAGE_SIZE;
+
+    private static final int PAGE_SIZE = 4096;
+
+    private static final int PROT_READ = 0x1;
+    private static final int PROT_WRITE = 0x2;
+    private static final int MAP_PRIVATE = 0x2;
+    private static final int MAP_ANONYMOUS = 0x20;
+    private static final int MADV_HUGEPAGE = 14;
+    private static final long MAP_FAILED = -1;
+
+    private static final LibC libc = loadLibC();
+
+    private final Map<Long, Long> mappings = new ConcurrentHashMap<>();
+    private final int threshold;
+    private final boolean lock;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory for allocations smaller than a huge page
+     */
+    public HugePageMemory(Memory memory) {
+        this(memory, DEFAULT_THRESHOLD, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory for allocations smaller than the threshold
+     * @param threshold the number of bytes from which allocations are mapped
+     * @param lock whether or not to lock mappings into ram
+     */
+    public HugePageMemory(Memory memory, int threshold, boolean lock) {
+        super(memory);
+
+        if (threshold <= 0)
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+
+        this.threshold = threshold;
+        this.lock = lock;
+    }
+
+    /**
+     * Check if mappings can be made on this platform
+     *
+     * @return whether or not large allocations are mapped
+     */
+    public static boolean isAvailable() {
+        return libc != null;
+    }
+
+    /**
+     * Allocate memory in a mapping of its own if large enough
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory in a mapping of its own if large enough
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        return size >= threshold && isAvailable() ? map(size, flags) : memory.malloc(size, flags);
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Stays in place while the mapping has the capacity for the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Stays in place while the mapping has the capacity for the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        Long capacity = mappings.get(address);
+
+        if (capacity == null && (size < threshold || !isAvailable()))
+            return memory.realloc(address, prevSize, size, flags);
+
+        if (capacity != null && size <= capacity) {
+            if (size > prevSize && !AllocationFlags.isSet(flags, AllocationFlags.UNINITIALIZED))
+                memory.fill(address + prevSize, size - prevSize, (byte) 0);
+            return address;
+        }
+
+        long addr = malloc(size, flags);
+        memory.copy(address, addr, Math.min(prevSize, size));
+        free(address);
+        return addr;
+    }
+
+    /**
+     * Release the allocated memory, unmapping it if mapped
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        Long capacity = mappings.remove(address);
+
+        if (capacity == null) {
+            memory.free(address);
+        } else if (libc.munmap(address, capacity) != 0) {
+            throw new IllegalStateException("Unable to unmap " + address + ", errno " + Native.getLastError());
+        }
+    }
+
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * Freeing always unmaps the mappings of large allocations, whatever the underlying memory does
+     *
+     * @return true
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return true;
+    }
+
+    /**
+     * Map a huge page aligned region for an allocation
+     *
+     * Maps an extra huge page so the region can be aligned, then unmaps the excess either side
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with, mappings are always zeroed
+     * @return the start address of the mapping
+     */
+    private long map(int size, int flags) {
+        long capacity = ((long) size + HUGE_PAGE_SIZE - 1) & -HUGE_PAGE_SIZE;
+        long length = capacity + HUGE_PAGE_SIZE;
+        long raw = libc.mmap(0, length, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0);
+
+        if (raw == MAP_FAILED)
+            throw new OutOfMemoryError("Unable to map " + size + " bytes, errno " + Native.getLastError());
+
+        long addr = (raw + HUGE_PAGE_SIZE - 1) & -HUGE_PAGE_SIZE;
+        if (addr > raw) libc.munmap(raw, addr - raw);
+        if (raw + length > addr + capacity) libc.munmap(addr + capacity, raw + length - addr - capacity);
+
+        if (libc.madvise(addr, capacity, MADV_HUGEPAGE) != 0)
+            log.debug("Huge pages unavailable for @{}[{}], errno {}", addr, capacity, Native.getLastError());
+
+        if (lock && libc.mlock(addr, capacity) != 0)
+            log.warn("Unable to lock @{}[{}] into memory, errno {}", addr, capacity, Native.getLastError());
+
+        if (AllocationFlags.isSet(flags, AllocationFlags.PRE_TOUCH)) {
+            for (long page = addr; page < addr + capacity; page += PAGE_SIZE) {
+                memory.putByte(page, (byte) 0);
+            }
+        }
+
+        mappings.put(addr, capacity);
+        return addr;
+    }
+
+    /**
+     * Load the c library if this platform supports the mappings
+     *
+     * @return the c library, or null if not supported
+     */
+    private static LibC loadLibC() {
+        if (!Platform.isLinux() || !Platform.is64Bit()) return null;
+
+        try {
+            return Native.load(Platform.C_LIBRARY_NAME, LibC.class);
+        } catch (LinkageError ex) {
+            log.debug("Unable to load the c library, huge pages disabled", ex);
+            return null;
+        }
+    }
+
+    /**
+     * The memory management functions of the c library, pointers are passed as longs
+     *
+     * @author micha
+     */
+    interface LibC extends Library {
+        long mmap(long address, long length, int prot, int flags, int fd, long offset);
+
+        int munmap(long address, long length);
+
+        int madvise(long address, long length, int advice);
+
+        int mlock(long address, long length);
+    }
+}
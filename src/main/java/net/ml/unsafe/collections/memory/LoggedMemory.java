@@ -4,6 +4,8 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.ByteBuffer;
+
 /**
  * Manages chunks of memory while logging accesses
  *
@@ -31,8 +33,20 @@ public final class LoggedMemory implements Memory{
      */
     @Override
     public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory while logging the addresses and sizes
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
         log.debug("Allocating [{}]", size);
-        long addr = memory.malloc(size);
+        long addr = memory.malloc(size, flags);
         log.debug("Allocated @{}[{}]", addr, size);
 
         return addr;
@@ -48,8 +62,22 @@ public final class LoggedMemory implements Memory{
      */
     @Override
     public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation while logging the addresses and sizes
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
         log.debug("Reallocating @{}[{}] to [{}]", address, prevSize, size);
-        long addr = memory.realloc(address, prevSize, size);
+        long addr = memory.realloc(address, prevSize, size, flags);
         log.debug("Reallocated @{}[{}] to @{}[{}]", address, prevSize, addr, size);
 
         return addr;
@@ -66,6 +94,26 @@ public final class LoggedMemory implements Memory{
         log.debug("Freed @{}", address);
     }
 
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * @return whether or not the underlying memory releases each allocation when freed
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return memory.releasesOnFree();
+    }
+
+    /**
+     * Check if addresses are native pointers
+     *
+     * @return whether or not addresses are native pointers
+     */
+    @Override
+    public boolean hasNativeAddresses() {
+        return memory.hasNativeAddresses();
+    }
+
     /**
      * Place the bytes into memory while logging the addresses and sizes
      *
@@ -78,6 +126,33 @@ public final class LoggedMemory implements Memory{
         log.debug("Stored @{}[{}]", address, bytes.length);
     }
 
+    /**
+     * Place a range of bytes into memory while logging the addresses and sizes
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes, int offset, int length) {
+        memory.put(address, bytes, offset, length);
+        log.debug("Stored @{}[{}]", address, length);
+    }
+
+    /**
+     * Place the remaining bytes of a buffer into memory while logging the addresses and sizes
+     *
+     * @param address the address to store the bytes
+     * @param buffer the buffer holding the bytes to store
+     */
+    @Override
+    public void put(long address, ByteBuffer buffer) {
+        int length = buffer.remaining();
+        memory.put(address, buffer);
+        log.debug("Stored @{}[{}]", address, length);
+    }
+
     /**
      * Swap the bytes of two addresses while logging the addresses and sizes
      *
@@ -104,6 +179,60 @@ public final class LoggedMemory implements Memory{
         memory.copy(addressA, addressB, size);
     }
 
+    /**
+     * Move the bytes of one address into another where the two ranges may overlap while logging the addresses and sizes
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    @Override
+    public void move(long addressA, long addressB, int size) {
+        log.debug("Moving @{}[{}] to @{}[{}]", addressA, size, addressB, size);
+        memory.move(addressA, addressB, size);
+    }
+
+    /**
+     * Set every byte in a range to a value while logging the addresses and sizes
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    @Override
+    public void fill(long address, int size, byte value) {
+        log.debug("Filling @{}[{}] with {}", address, size, value);
+        memory.fill(address, size, value);
+    }
+
+    /**
+     * Check if the bytes of two addresses are equal while logging the addresses and sizes
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return whether or not the bytes are equal
+     */
+    @Override
+    public boolean equals(long addressA, long addressB, int size) {
+        log.debug("Comparing @{}[{}] with @{}[{}]", addressA, size, addressB, size);
+        return memory.equals(addressA, addressB, size);
+    }
+
+    /**
+     * Compare the bytes of two addresses lexicographically as unsigned values while logging the addresses and sizes
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return negative, zero or positive as the first bytes are less, equal or greater than the second
+     */
+    @Override
+    public int compare(long addressA, long addressB, int size) {
+        log.debug("Comparing @{}[{}] with @{}[{}]", addressA, size, addressB, size);
+        return memory.compare(addressA, addressB, size);
+    }
+
     /**
      * Get the bytes at the address while logging the address and bytes
      *
@@ -116,4 +245,276 @@ public final class LoggedMemory implements Memory{
         log.debug("Retrieving @{}[{}]", address, size);
         return memory.get(address, size);
     }
+
+    /**
+     * Get the bytes at the address into an existing array while logging the address and bytes
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    @Override
+    public void get(long address, byte[] bytes, int offset, int length) {
+        log.debug("Retrieving @{}[{}]", address, length);
+        memory.get(address, bytes, offset, length);
+    }
+
+    /**
+     * Get the bytes at the address into the remaining space of a buffer while logging the address and bytes
+     *
+     * @param address the start address of the bytes
+     * @param buffer the buffer to hold the retrieved bytes
+     */
+    @Override
+    public void get(long address, ByteBuffer buffer) {
+        log.debug("Retrieving @{}[{}]", address, buffer.remaining());
+        memory.get(address, buffer);
+    }
+
+    /**
+     * Get the byte at the address while logging the address and size
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public byte getByte(long address) {
+        log.debug("Retrieving @{}[{}]", address, Byte.BYTES);
+        return memory.getByte(address);
+    }
+
+    /**
+     * Place a byte into memory while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putByte(long address, byte value) {
+        memory.putByte(address, value);
+        log.debug("Stored @{}[{}]", address, Byte.BYTES);
+    }
+
+    /**
+     * Get the short at the address while logging the address and size
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public short getShort(long address) {
+        log.debug("Retrieving @{}[{}]", address, Short.BYTES);
+        return memory.getShort(address);
+    }
+
+    /**
+     * Place a short into memory while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putShort(long address, short value) {
+        memory.putShort(address, value);
+        log.debug("Stored @{}[{}]", address, Short.BYTES);
+    }
+
+    /**
+     * Get the int at the address while logging the address and size
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getInt(long address) {
+        log.debug("Retrieving @{}[{}]", address, Integer.BYTES);
+        return memory.getInt(address);
+    }
+
+    /**
+     * Place a int into memory while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putInt(long address, int value) {
+        memory.putInt(address, value);
+        log.debug("Stored @{}[{}]", address, Integer.BYTES);
+    }
+
+    /**
+     * Get the long at the address while logging the address and size
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLong(long address) {
+        log.debug("Retrieving @{}[{}]", address, Long.BYTES);
+        return memory.getLong(address);
+    }
+
+    /**
+     * Place a long into memory while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLong(long address, long value) {
+        memory.putLong(address, value);
+        log.debug("Stored @{}[{}]", address, Long.BYTES);
+    }
+
+    /**
+     * Get the float at the address while logging the address and size
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public float getFloat(long address) {
+        log.debug("Retrieving @{}[{}]", address, Float.BYTES);
+        return memory.getFloat(address);
+    }
+
+    /**
+     * Place a float into memory while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putFloat(long address, float value) {
+        memory.putFloat(address, value);
+        log.debug("Stored @{}[{}]", address, Float.BYTES);
+    }
+
+    /**
+     * Get the double at the address while logging the address and size
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public double getDouble(long address) {
+        log.debug("Retrieving @{}[{}]", address, Double.BYTES);
+        return memory.getDouble(address);
+    }
+
+    /**
+     * Place a double into memory while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putDouble(long address, double value) {
+        memory.putDouble(address, value);
+        log.debug("Stored @{}[{}]", address, Double.BYTES);
+    }
+
+    /**
+     * Get the int at the address with volatile semantics while logging the address and size
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getIntVolatile(long address) {
+        log.debug("Retrieving @{}[{}]", address, Integer.BYTES);
+        return memory.getIntVolatile(address);
+    }
+
+    /**
+     * Place a int into memory with volatile semantics while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntVolatile(long address, int value) {
+        memory.putIntVolatile(address, value);
+        log.debug("Stored @{}[{}]", address, Integer.BYTES);
+    }
+
+    /**
+     * Place a int into memory with ordered semantics while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntOrdered(long address, int value) {
+        memory.putIntOrdered(address, value);
+        log.debug("Stored @{}[{}]", address, Integer.BYTES);
+    }
+
+    /**
+     * Atomically replace the int at the address if it holds the expected value while logging the address and size
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapInt(long address, int expected, int value) {
+        boolean swapped = memory.compareAndSwapInt(address, expected, value);
+        log.debug("Compared and swapped @{}[{}]: {}", address, Integer.BYTES, swapped);
+        return swapped;
+    }
+
+    /**
+     * Get the long at the address with volatile semantics while logging the address and size
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLongVolatile(long address) {
+        log.debug("Retrieving @{}[{}]", address, Long.BYTES);
+        return memory.getLongVolatile(address);
+    }
+
+    /**
+     * Place a long into memory with volatile semantics while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongVolatile(long address, long value) {
+        memory.putLongVolatile(address, value);
+        log.debug("Stored @{}[{}]", address, Long.BYTES);
+    }
+
+    /**
+     * Place a long into memory with ordered semantics while logging the address and size
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongOrdered(long address, long value) {
+        memory.putLongOrdered(address, value);
+        log.debug("Stored @{}[{}]", address, Long.BYTES);
+    }
+
+    /**
+     * Atomically replace the long at the address if it holds the expected value while logging the address and size
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapLong(long address, long expected, long value) {
+        boolean swapped = memory.compareAndSwapLong(address, expected, value);
+        log.debug("Compared and swapped @{}[{}]: {}", address, Long.BYTES, swapped);
+        return swapped;
+    }
 }
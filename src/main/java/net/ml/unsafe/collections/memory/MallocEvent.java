@@ -0,0 +1,28 @@
+package net.ml.unsafe.collections.memory;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.MemoryAddress;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for an allocation of memory
+ *
+ * @author micha
+ */
+@Name("net.ml.unsafe.collections.Malloc")
+@Label("Malloc")
+@Category({"Unsafe Collections", "Memory"})
+@Description("Allocation of memory")
+final class MallocEvent extends Event {
+    @Label("Address")
+    @MemoryAddress
+    long address;
+
+    @Label("Size")
+    @DataAmount
+    int size;
+}
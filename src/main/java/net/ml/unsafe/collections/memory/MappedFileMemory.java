@@ -0,0 +1,414 @@
+package net.ml.unsafe.collections.memory;
+
+import lombok.AllArgsConstructor;
+import net.ml.unsafe.collections.util.UnsafeSingleton;
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Manages chunks of memory in a memory mapped file
+ *
+ * The file grows by mapping new segments after the existing ones so allocations never move,
+ * and the operating system pages the data between ram and the file instead of the heap.
+ * Allocations are rounded up to a power of two size class carved out of the current segment
+ * and freed allocations are kept on a free list per size class for reuse. Allocations too
+ * large for a segment are mapped on their own. Every allocation is prefixed by a header
+ * holding its size class so it can be freed by address.
+ *
+ * The mapped addresses are native so data access is forwarded to unsafe memory.
+ * Freed large allocations are unmapped straight away and their space in the file reused by
+ * later large allocations. Segments stay mapped until the memory itself is unreachable, so an
+ * address used after close never points at unmapped memory, while allocating after close fails.
+ *
+ * @author micha
+ */
+public final class MappedFileMemory extends ForwardingMemory implements AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 26;
+
+    private static final String TEMP_PREFIX = "unsafe-collections";
+    private static final String TEMP_SUFFIX = ".mem";
+    private static final int MIN_SIZE = 8;
+    private static final int HEADER = Long.BYTES;
+    private static final int LARGE = -1;
+    private static final int PAGE_SIZE = 1 << 12;
+    //unmapping is public from java 9, before it goes through the cleaner of the buffer
+    private static final Method INVOKE_CLEANER = findMethod(Unsafe.class.getName(), "invokeCleaner", ByteBuffer.class);
+    private static final Method CLEANER = INVOKE_CLEANER == null ? findMethod("sun.nio.ch.DirectBuffer", "cleaner") : null;
+    private static final Method CLEAN = INVOKE_CLEANER == null ? findMethod("sun.misc.Cleaner", "clean") : null;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Map<Long, LargeMapping> large = new HashMap<>();
+    private final NavigableMap<Integer, Deque<Long>> freedLarge = new TreeMap<>();
+    private final Deque<Long>[] freed;
+    private final FileChannel channel;
+    private final Path file;
+    private final boolean temporary;
+    private final int segmentSize;
+    private final int maxSlotSize;
+
+    private long fileSize;
+    private long cursor;
+    private long limit;
+    private boolean closed;
+
+    /**
+     * Constructor
+     *
+     * Maps a temporary file which is deleted when the memory is closed
+     */
+    public MappedFileMemory() {
+        this(createTempFile(), DEFAULT_SEGMENT_SIZE, true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file the file to map, any existing content is discarded
+     */
+    public MappedFileMemory(Path file) {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file the file to map, any existing content is discarded
+     * @param segmentSize the number of bytes the file grows by at a time
+     */
+    public MappedFileMemory(Path file, int segmentSize) {
+        this(file, segmentSize, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file the file to map
+     * @param segmentSize the number of bytes the file grows by at a time
+     * @param temporary whether or not to delete the file on close
+     */
+    @SuppressWarnings("unchecked")
+    private MappedFileMemory(Path file, int segmentSize, boolean temporary) {
+        super(new UnsafeMemory());
+
+        if (segmentSize < PAGE_SIZE || segmentSize % PAGE_SIZE != 0)
+            throw new IllegalArgumentException("Segment size must be a multiple of the page size: " + segmentSize);
+
+        this.file = file;
+        this.temporary = temporary;
+        this.segmentSize = segmentSize;
+        this.maxSlotSize = Integer.highestOneBit(segmentSize - HEADER);
+        this.freed = (Deque<Long>[]) new Deque<?>[sizeClassOf(maxSlotSize) + 1];
+
+        for (int i = 0; i < freed.length; ++i) {
+            freed[i] = new ArrayDeque<>();
+        }
+
+        try {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Allocate memory from the current segment or a mapping of its own if too large
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public synchronized long malloc(int size) {
+        if (closed)
+            throw new IllegalStateException("Cannot allocate from a closed memory");
+        if (size < 0)
+            throw new IllegalArgumentException("Cannot allocate negative memory: " + size);
+
+        if (size > maxSlotSize) return mallocLarge(size);
+
+        int sizeClass = sizeClassOf(size);
+        int slotSize = MIN_SIZE << sizeClass;
+
+        if (!freed[sizeClass].isEmpty()) {
+            long addr = freed[sizeClass].pop();
+            memory.fill(addr, slotSize, (byte) 0);
+            return addr;
+        }
+
+        if (cursor + HEADER + slotSize > limit) {
+            cursor = map(segmentSize);
+            limit = cursor + segmentSize;
+        }
+
+        long addr = cursor;
+        memory.putInt(addr, sizeClass);
+        cursor += HEADER + slotSize;
+        return addr + HEADER;
+    }
+
+    /**
+     * Allocate memory from the current segment or a mapping of its own if too large
+     *
+     * @param size the number of bytes to allocate
+     * @param flags ignored, see {@link #malloc(int)}
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        return malloc(size);
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Stays in place while the allocation has the capacity for the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public synchronized long realloc(long address, int prevSize, int size) {
+        int sizeClass = memory.getInt(address - HEADER);
+        int capacity = sizeClass == LARGE ?
+                memory.getInt(address - HEADER + Integer.BYTES) :
+                MIN_SIZE << sizeClass;
+
+        if (size <= capacity) {
+            if (size > prevSize) memory.fill(address + prevSize, size - prevSize, (byte) 0);
+            return address;
+        }
+
+        long addr = malloc(size);
+        memory.copy(address, addr, Math.min(prevSize, size));
+        free(address);
+        return addr;
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Stays in place while the allocation has the capacity for the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags ignored, see {@link #realloc(long, int, int)}
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        return realloc(address, prevSize, size);
+    }
+
+    /**
+     * Release the allocated memory back to the free list of its size
+     *
+     * The file never shrinks, released space is reused by later allocations.
+     * Large allocations are unmapped and only their space in the file is kept.
+     *
+     * @param address the address to release
+     */
+    @Override
+    public synchronized void free(long address) {
+        int sizeClass = memory.getInt(address - HEADER);
+
+        if (sizeClass == LARGE) {
+            int capacity = memory.getInt(address - HEADER + Integer.BYTES);
+            LargeMapping mapping = large.remove(address);
+            unmap(mapping.buffer);
+            freedLarge.computeIfAbsent(capacity, k -> new ArrayDeque<>()).push(mapping.offset);
+        } else {
+            freed[sizeClass].push(address);
+        }
+    }
+
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * Freeing always returns the allocation to the free list of its size, whatever the underlying memory does
+     *
+     * @return true
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return true;
+    }
+
+    /**
+     * Close the file, allocating afterwards fails
+     *
+     * The mappings are kept so addresses still held stay mapped until the memory is unreachable
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+
+        closed = true;
+        freedLarge.clear();
+
+        try {
+            channel.close();
+            if (temporary) Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Allocate memory too large for a segment in a mapping of its own
+     *
+     * The space in the file of a freed large allocation is mapped again if large enough,
+     * otherwise the file grows
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    private long mallocLarge(int size) {
+        Map.Entry<Integer, Deque<Long>> reusable = freedLarge.ceilingEntry(size);
+        long offset;
+        long mapSize;
+
+        if (reusable != null) {
+            offset = reusable.getValue().pop();
+            mapSize = (long) reusable.getKey() + HEADER;
+            if (reusable.getValue().isEmpty()) freedLarge.remove(reusable.getKey());
+        } else {
+            offset = fileSize;
+            mapSize = ((long) size + HEADER + PAGE_SIZE - 1) & -PAGE_SIZE;
+            fileSize += mapSize;
+        }
+
+        MappedByteBuffer buffer = map(offset, mapSize);
+        long addr = UnsafeMemory.bufferAddress(buffer);
+        //the space in the file still holds the freed allocation
+        if (reusable != null) memory.fill(addr + HEADER, size, (byte) 0);
+
+        memory.putInt(addr, LARGE);
+        memory.putInt(addr + Integer.BYTES, (int) (mapSize - HEADER));
+        large.put(addr + HEADER, new LargeMapping(buffer, offset));
+        return addr + HEADER;
+    }
+
+    /**
+     * Grow the file by mapping a new segment at its end
+     *
+     * @param size the number of bytes to map
+     * @return the address of the new segment
+     */
+    private long map(long size) {
+        MappedByteBuffer segment = map(fileSize, size);
+        //keep the segment reachable so it is not unmapped while in use
+        segments.add(segment);
+        fileSize += size;
+        return UnsafeMemory.bufferAddress(segment);
+    }
+
+    /**
+     * Map a region of the file
+     *
+     * @param offset the position in the file of the region
+     * @param size the number of bytes to map
+     * @return the mapping
+     */
+    private MappedByteBuffer map(long offset, long size) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Unmap a mapping straight away instead of waiting for the garbage collector
+     *
+     * Without access to a cleaner the mapping is left to the garbage collector
+     *
+     * @param buffer the mapping, invalid afterwards
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UnsafeSingleton.getUnsafe(), buffer);
+            } else if (CLEANER != null && CLEAN != null) {
+                Object cleaner = CLEANER.invoke(buffer);
+                if (cleaner != null) CLEAN.invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Unable to unmap " + buffer, ex);
+        }
+    }
+
+    /**
+     * Find a public method by the name of its class
+     *
+     * @param className the name of the class
+     * @param name the name of the method
+     * @param parameterTypes the parameter types of the method
+     * @return the method, or null if not available on this java version
+     */
+    private static Method findMethod(String className, String name, Class<?>... parameterTypes) {
+        try {
+            return Class.forName(className).getMethod(name, parameterTypes);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Find the size class of a number of bytes
+     *
+     * @param size the number of bytes
+     * @return the index of the smallest size class that holds the bytes
+     */
+    private static int sizeClassOf(int size) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros((size - 1) / MIN_SIZE);
+    }
+
+    /**
+     * Large allocation mapped on its own at an offset of the file
+     *
+     * @author micha
+     */
+    @AllArgsConstructor
+    private static final class LargeMapping {
+        private final MappedByteBuffer buffer;
+        private final long offset;
+    }
+
+    /**
+     * Create a temporary file to map
+     *
+     * @return the path of the file
+     */
+    private static Path createTempFile() {
+        try {
+            Path file = Files.createTempFile(TEMP_PREFIX, TEMP_SUFFIX);
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
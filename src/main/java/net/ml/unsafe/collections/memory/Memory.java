@@ -1,10 +1,16 @@
 package net.ml.unsafe.collections.memory;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
 /**
  * Memory interface
  *
  * Manages chunks of memory
  *
+ * Typed accessors read and write values in the native byte order
+ *
  * @author micha
  */
 public interface Memory {
@@ -26,6 +32,32 @@ public interface Memory {
      */
     long realloc(long address, int prevSize, int size);
 
+    /**
+     * Allocate memory prepared according to the flags
+     *
+     * Memories which cannot honour a flag fall back to a plain, zeroed, allocation
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    default long malloc(int size, int flags) {
+        return malloc(size);
+    }
+
+    /**
+     * Increase the size of a memory allocation, preparing the added bytes according to the flags
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the original number of bytes allocated
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    default long realloc(long address, int prevSize, int size, int flags) {
+        return realloc(address, prevSize, size);
+    }
+
     /**
      * Release the allocated memory
      *
@@ -33,6 +65,29 @@ public interface Memory {
      */
     void free(long address);
 
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * Memory released only as a whole lets blocks skip freeing their allocations one by one
+     *
+     * @return whether or not each allocation is released when freed
+     */
+    default boolean releasesOnFree() {
+        return true;
+    }
+
+    /**
+     * Check if addresses are native pointers
+     *
+     * Native addresses can be read and written directly, such as by serializers streaming
+     * into memory, but doing so bypasses this memory
+     *
+     * @return whether or not addresses are native pointers
+     */
+    default boolean hasNativeAddresses() {
+        return false;
+    }
+
     /**
      * Place the bytes into memory
      *
@@ -41,6 +96,30 @@ public interface Memory {
      */
     void put(long address, byte[] bytes);
 
+    /**
+     * Place a range of bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
+    default void put(long address, byte[] bytes, int offset, int length) {
+        put(address, offset == 0 && length == bytes.length ? bytes : Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+
+    /**
+     * Place the remaining bytes of a buffer into memory, advancing its position
+     *
+     * @param address the address to store the bytes
+     * @param buffer the buffer holding the bytes to store
+     */
+    default void put(long address, ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        put(address, bytes);
+    }
+
     /**
      * Swap the bytes of two addresses
      *
@@ -59,6 +138,62 @@ public interface Memory {
      */
     void copy(long addressA, long addressB, int size);
 
+    /**
+     * Move the bytes of one address into another where the two ranges may overlap
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    default void move(long addressA, long addressB, int size) {
+        put(addressB, get(addressA, size));
+    }
+
+    /**
+     * Set every byte in a range to a value
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    default void fill(long address, int size, byte value) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, value);
+        put(address, bytes);
+    }
+
+    /**
+     * Check if the bytes of two addresses are equal
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return whether or not the bytes are equal
+     */
+    default boolean equals(long addressA, long addressB, int size) {
+        return Arrays.equals(get(addressA, size), get(addressB, size));
+    }
+
+    /**
+     * Compare the bytes of two addresses lexicographically as unsigned values
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return negative, zero or positive as the first bytes are less, equal or greater than the second
+     */
+    default int compare(long addressA, long addressB, int size) {
+        byte[] bytesA = get(addressA, size);
+        byte[] bytesB = get(addressB, size);
+
+        for (int i = 0; i < size; ++i) {
+            if (bytesA[i] != bytesB[i])
+                return Integer.compare(Byte.toUnsignedInt(bytesA[i]), Byte.toUnsignedInt(bytesB[i]));
+        }
+
+        return 0;
+    }
+
     /**
      * Get the bytes at the address
      *
@@ -67,4 +202,252 @@ public interface Memory {
      * @return the bytes retrieved
      */
     byte[] get(long address, int size);
+
+    /**
+     * Get the bytes at the address into an existing array
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    default void get(long address, byte[] bytes, int offset, int length) {
+        System.arraycopy(get(address, length), 0, bytes, offset, length);
+    }
+
+    /**
+     * Get the bytes at the address into the remaining space of a buffer, advancing its position
+     *
+     * @param address the start address of the bytes
+     * @param buffer the buffer to hold the retrieved bytes
+     */
+    default void get(long address, ByteBuffer buffer) {
+        buffer.put(get(address, buffer.remaining()));
+    }
+
+    /**
+     * Get the byte at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    default byte getByte(long address) {
+        return get(address, Byte.BYTES)[0];
+    }
+
+    /**
+     * Place a byte into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putByte(long address, byte value) {
+        put(address, new byte[] { value });
+    }
+
+    /**
+     * Get the short at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    default short getShort(long address) {
+        return ByteBuffer.wrap(get(address, Short.BYTES)).order(ByteOrder.nativeOrder()).getShort(0);
+    }
+
+    /**
+     * Place a short into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putShort(long address, short value) {
+        put(address, ByteBuffer.allocate(Short.BYTES).order(ByteOrder.nativeOrder()).putShort(0, value).array());
+    }
+
+    /**
+     * Get the int at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    default int getInt(long address) {
+        return ByteBuffer.wrap(get(address, Integer.BYTES)).order(ByteOrder.nativeOrder()).getInt(0);
+    }
+
+    /**
+     * Place a int into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putInt(long address, int value) {
+        put(address, ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.nativeOrder()).putInt(0, value).array());
+    }
+
+    /**
+     * Get the long at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    default long getLong(long address) {
+        return ByteBuffer.wrap(get(address, Long.BYTES)).order(ByteOrder.nativeOrder()).getLong(0);
+    }
+
+    /**
+     * Place a long into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putLong(long address, long value) {
+        put(address, ByteBuffer.allocate(Long.BYTES).order(ByteOrder.nativeOrder()).putLong(0, value).array());
+    }
+
+    /**
+     * Get the float at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    default float getFloat(long address) {
+        return ByteBuffer.wrap(get(address, Float.BYTES)).order(ByteOrder.nativeOrder()).getFloat(0);
+    }
+
+    /**
+     * Place a float into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putFloat(long address, float value) {
+        put(address, ByteBuffer.allocate(Float.BYTES).order(ByteOrder.nativeOrder()).putFloat(0, value).array());
+    }
+
+    /**
+     * Get the double at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    default double getDouble(long address) {
+        return ByteBuffer.wrap(get(address, Double.BYTES)).order(ByteOrder.nativeOrder()).getDouble(0);
+    }
+
+    /**
+     * Place a double into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putDouble(long address, double value) {
+        put(address, ByteBuffer.allocate(Double.BYTES).order(ByteOrder.nativeOrder()).putDouble(0, value).array());
+    }
+
+    /**
+     * Get the int at the address with volatile semantics
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    default int getIntVolatile(long address) {
+        synchronized (this) {
+            return getInt(address);
+        }
+    }
+
+    /**
+     * Place a int into memory with volatile semantics
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putIntVolatile(long address, int value) {
+        synchronized (this) {
+            putInt(address, value);
+        }
+    }
+
+    /**
+     * Place a int into memory with ordered semantics, the store is not reordered with prior stores
+     * but may become visible to other threads lazily
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putIntOrdered(long address, int value) {
+        putIntVolatile(address, value);
+    }
+
+    /**
+     * Atomically replace the int at the address if it holds the expected value
+     *
+     * The default is only atomic with respect to other volatile and atomic accesses on this memory
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    default boolean compareAndSwapInt(long address, int expected, int value) {
+        synchronized (this) {
+            if (getInt(address) != expected) return false;
+            putInt(address, value);
+            return true;
+        }
+    }
+
+    /**
+     * Get the long at the address with volatile semantics
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    default long getLongVolatile(long address) {
+        synchronized (this) {
+            return getLong(address);
+        }
+    }
+
+    /**
+     * Place a long into memory with volatile semantics
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putLongVolatile(long address, long value) {
+        synchronized (this) {
+            putLong(address, value);
+        }
+    }
+
+    /**
+     * Place a long into memory with ordered semantics, the store is not reordered with prior stores
+     * but may become visible to other threads lazily
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    default void putLongOrdered(long address, long value) {
+        putLongVolatile(address, value);
+    }
+
+    /**
+     * Atomically replace the long at the address if it holds the expected value
+     *
+     * The default is only atomic with respect to other volatile and atomic accesses on this memory
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    default boolean compareAndSwapLong(long address, long expected, long value) {
+        synchronized (this) {
+            if (getLong(address) != expected) return false;
+            putLong(address, value);
+            return true;
+        }
+    }
 }
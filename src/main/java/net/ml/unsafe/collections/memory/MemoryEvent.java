@@ -0,0 +1,44 @@
+package net.ml.unsafe.collections.memory;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Memory operation read back from a recorded memory
+ *
+ * @author micha
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class MemoryEvent {
+    private final long sequence;
+    private final long nanoTime;
+    private final long threadId;
+    private final Op op;
+    private final int size;
+    private final long address;
+    private final long otherAddress;
+
+    /**
+     * Recorded operations
+     *
+     * The address of an operation is the one it returns or writes to,
+     * the other address is the previous address of a realloc or the source of a copy
+     *
+     * @author micha
+     */
+    public enum Op {
+        MALLOC,
+        REALLOC,
+        FREE,
+        PUT,
+        GET,
+        SWAP,
+        COPY,
+        MOVE,
+        FILL
+    }
+}
@@ -1,5 +1,8 @@
 package net.ml.unsafe.collections.memory;
 
+import com.google.common.base.Suppliers;
+import net.ml.unsafe.collections.util.UnsafeSingleton;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -12,12 +15,34 @@ import java.util.function.Supplier;
 public final class MemoryFactory {
     private MemoryFactory() {}
 
+    private static final String SEGMENT_MEMORY = "net.ml.unsafe.collections.memory.SegmentMemory";
+    private static final String FLIGHT_RECORDER_EVENT = "jdk.jfr.Event";
     private static final Map<String, Supplier<Memory>> registered = new HashMap<>();
 
     //default registered memory types
     static {
         registered.put(MemoryType.UNSAFE.name(), UnsafeMemory::new);
-        registered.put(MemoryType.DEFAULT.name(), UnsafeMemory::new);
+        //shared so small blocks do not each reserve their own chunks or files
+        registered.put(MemoryType.SLAB.name(), Suppliers.<Memory>memoize(() -> new SlabMemory(new UnsafeMemory())));
+        registered.put(MemoryType.MAPPED.name(), Suppliers.<Memory>memoize(MappedFileMemory::new));
+        registered.put(MemoryType.BUFFER.name(), Suppliers.<Memory>memoize(() -> new SlabMemory(new DirectBufferMemory())));
+        registered.put(MemoryType.HUGE_PAGE.name(), Suppliers.<Memory>memoize(() -> new HugePageMemory(new UnsafeMemory())));
+        registered.put(MemoryType.LOCKED_HUGE_PAGE.name(), Suppliers.<Memory>memoize(() ->
+                new HugePageMemory(new UnsafeMemory(), HugePageMemory.DEFAULT_THRESHOLD, true)));
+        registered.put(MemoryType.THREAD_CACHED.name(), Suppliers.<Memory>memoize(() -> new ThreadCachedMemory(new UnsafeMemory())));
+        registered.put(MemoryType.ACCOUNTED.name(), Suppliers.<Memory>memoize(() -> new AccountedMemory(new UnsafeMemory())));
+        registered.put(MemoryType.RECORDED.name(), Suppliers.<Memory>memoize(() -> new RecordedMemory(new UnsafeMemory())));
+        if (isFlightRecorderAvailable())
+            registered.put(MemoryType.FLIGHT_RECORDED.name(), () -> new FlightRecorderMemory(new UnsafeMemory()));
+
+        //only present in the multi release jar on java 22 and later
+        Memory segmentMemory = loadSegmentMemory();
+        if (segmentMemory != null) registered.put(MemoryType.SEGMENT.name(), () -> segmentMemory);
+
+        //fall back to segments or direct buffers on runtimes that do not expose unsafe
+        registered.put(MemoryType.DEFAULT.name(), isUnsafeAvailable() ?
+                UnsafeMemory::new :
+                registered.getOrDefault(MemoryType.SEGMENT.name(), registered.get(MemoryType.BUFFER.name())));
     }
 
     /**
@@ -30,6 +55,16 @@ public final class MemoryFactory {
         registered.put(type, supplier);
     }
 
+    /**
+     * Check if a memory supplier is registered
+     *
+     * @param type the key of the memory supplier
+     * @return whether or not the memory supplier is registered
+     */
+    public static boolean isRegistered(String type) {
+        return registered.containsKey(type);
+    }
+
     /**
      * Get the default memory wrapper
      *
@@ -46,7 +81,7 @@ public final class MemoryFactory {
      * @return the memory wrapper
      */
     public static Memory getMemory(String type) {
-        return registered.getOrDefault(type, UnsafeMemory::new).get();
+        return registered.getOrDefault(type, registered.get(MemoryType.DEFAULT.name())).get();
     }
 
     /**
@@ -58,4 +93,49 @@ public final class MemoryFactory {
     public static Memory getMemory(MemoryType type) {
         return getMemory(type.name());
     }
+
+    /**
+     * Check if unsafe memory can be used on this runtime
+     *
+     * @return whether or not unsafe is available
+     */
+    private static boolean isUnsafeAvailable() {
+        try {
+            return UnsafeSingleton.isAvailable();
+        } catch (LinkageError ex) {
+            //the runtime does not ship sun.misc.Unsafe at all
+            return false;
+        }
+    }
+
+    /**
+     * Load the segment memory if this runtime supports it
+     *
+     * @return the segment memory, or null if not supported
+     */
+    private static Memory loadSegmentMemory() {
+        try {
+            return Class.forName(SEGMENT_MEMORY)
+                    .asSubclass(Memory.class)
+                    .getConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException ex) {
+            //not in the jar, not java 22 or later, or native access is denied
+            return null;
+        }
+    }
+
+    /**
+     * Check if flight recorder events can be emitted on this runtime
+     *
+     * @return whether or not flight recorder is available
+     */
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName(FLIGHT_RECORDER_EVENT);
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
 }
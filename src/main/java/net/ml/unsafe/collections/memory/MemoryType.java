@@ -7,5 +7,15 @@ package net.ml.unsafe.collections.memory;
  */
 public enum MemoryType {
     UNSAFE,
+    SLAB,
+    MAPPED,
+    BUFFER,
+    SEGMENT,
+    HUGE_PAGE,
+    LOCKED_HUGE_PAGE,
+    THREAD_CACHED,
+    ACCOUNTED,
+    RECORDED,
+    FLIGHT_RECORDED,
     DEFAULT
 }
@@ -0,0 +1,36 @@
+package net.ml.unsafe.collections.memory;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.MemoryAddress;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for a reallocation of memory
+ *
+ * @author micha
+ */
+@Name("net.ml.unsafe.collections.Realloc")
+@Label("Realloc")
+@Category({"Unsafe Collections", "Memory"})
+@Description("Reallocation of memory")
+final class ReallocEvent extends Event {
+    @Label("Address")
+    @MemoryAddress
+    long address;
+
+    @Label("Previous Address")
+    @MemoryAddress
+    long previousAddress;
+
+    @Label("Previous Size")
+    @DataAmount
+    int previousSize;
+
+    @Label("Size")
+    @DataAmount
+    int size;
+}
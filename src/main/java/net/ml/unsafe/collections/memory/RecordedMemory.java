@@ -0,0 +1,629 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.util.UnsafeSingleton;
+import sun.misc.Unsafe;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Manages chunks of memory while recording the operations into a ring buffer
+ *
+ * Every operation is written as a fixed size binary event into a ring preallocated from the
+ * recorded memory, without recording it, so the recording costs a counter increment and a few
+ * stores, and the most recent events can be read back on demand to diagnose misuse. Writers claim slots with a single atomic increment
+ * and publish an event by storing its sequence last, readers skip events being overwritten.
+ *
+ * Allocations are always recorded, data access, bulk or typed, only when enabled.
+ *
+ * @author micha
+ */
+public final class RecordedMemory extends ForwardingMemory implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int MAX_CAPACITY = 1 << 24;
+
+    private static final int SEQUENCE = 0;
+    private static final int NANO_TIME = 8;
+    private static final int THREAD_ID = 16;
+    private static final int OP = 24;
+    private static final int SIZE = 28;
+    private static final int ADDRESS = 32;
+    private static final int OTHER_ADDRESS = 40;
+    private static final int EVENT_SIZE = 48;
+    private static final long WRITING = -1;
+    private static final MemoryEvent.Op[] ops = MemoryEvent.Op.values();
+    private static final Unsafe unsafe = UnsafeSingleton.isAvailable() ? UnsafeSingleton.getUnsafe() : null;
+
+    private final long ringAddress;
+    private final int mask;
+    private final boolean recordAccess;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to record the operations of
+     */
+    public RecordedMemory(Memory memory) {
+        this(memory, DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to record the operations of
+     * @param capacity the number of events kept, a power of two
+     * @param recordAccess whether or not to record data access as well as allocations
+     */
+    public RecordedMemory(Memory memory, int capacity, boolean recordAccess) {
+        super(memory);
+
+        if (capacity <= 0 || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two up to " + MAX_CAPACITY + ": " + capacity);
+
+        this.ringAddress = memory.malloc(capacity * EVENT_SIZE);
+        this.mask = capacity - 1;
+        this.recordAccess = recordAccess;
+    }
+
+    /**
+     * Get the number of events recorded so far, including those overwritten
+     *
+     * @return the number of events
+     */
+    public long recorded() {
+        return sequence.get();
+    }
+
+    /**
+     * Read back the most recent events
+     *
+     * @param count the maximum number of events
+     * @return the events, oldest first
+     */
+    public List<MemoryEvent> lastEvents(int count) {
+        List<MemoryEvent> events = new ArrayList<>(Math.min(count, mask + 1));
+        forEachEvent(count, events::add);
+        return events;
+    }
+
+    /**
+     * Stream the most recent events, skipping any overwritten while reading
+     *
+     * @param count the maximum number of events
+     * @param consumer the consumer of the events, oldest first
+     */
+    public void forEachEvent(int count, Consumer<MemoryEvent> consumer) {
+        long end = sequence.get();
+        long start = Math.max(0, end - Math.min(count, mask + 1));
+
+        for (long seq = start; seq < end; ++seq) {
+            long slot = slotOf(seq);
+
+            if (memory.getLongVolatile(slot + SEQUENCE) != seq + 1) continue;
+
+            MemoryEvent event = new MemoryEvent(seq,
+                    memory.getLong(slot + NANO_TIME),
+                    memory.getLong(slot + THREAD_ID),
+                    ops[memory.getInt(slot + OP)],
+                    memory.getInt(slot + SIZE),
+                    memory.getLong(slot + ADDRESS),
+                    memory.getLong(slot + OTHER_ADDRESS));
+
+            //the slot was claimed by a later event while being read, the fence keeps the
+            //field reads above from being reordered after the second sequence read
+            loadFence();
+            if (memory.getLongVolatile(slot + SEQUENCE) != seq + 1) continue;
+
+            consumer.accept(event);
+        }
+    }
+
+    /**
+     * Release the ring buffer, recording afterwards is invalid
+     */
+    @Override
+    public void close() {
+        memory.free(ringAddress);
+    }
+
+    /**
+     * Allocate memory while recording it
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory while recording it
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        long addr = memory.malloc(size, flags);
+        record(MemoryEvent.Op.MALLOC, size, addr, 0);
+        return addr;
+    }
+
+    /**
+     * Increase the size of a memory allocation while recording it
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation while recording it
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        long addr = memory.realloc(address, prevSize, size, flags);
+        record(MemoryEvent.Op.REALLOC, size, addr, address);
+        return addr;
+    }
+
+    /**
+     * Release the allocated memory while recording it
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        record(MemoryEvent.Op.FREE, 0, address, 0);
+        memory.free(address);
+    }
+
+    /**
+     * Check if addresses are native pointers, hidden when recording access so no access bypasses the recorder
+     *
+     * @return whether or not addresses are native pointers
+     */
+    @Override
+    public boolean hasNativeAddresses() {
+        return !recordAccess && memory.hasNativeAddresses();
+    }
+
+    /**
+     * Place the bytes into memory while recording it
+     *
+     * @param address the address to store the bytes
+     * @param bytes the bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, bytes.length, address, 0);
+        memory.put(address, bytes);
+    }
+
+    /**
+     * Place a range of bytes into memory while recording it
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes, int offset, int length) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, length, address, 0);
+        memory.put(address, bytes, offset, length);
+    }
+
+    /**
+     * Place the remaining bytes of a buffer into memory while recording it
+     *
+     * @param address the address to store the bytes
+     * @param buffer the buffer holding the bytes to store
+     */
+    @Override
+    public void put(long address, ByteBuffer buffer) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, buffer.remaining(), address, 0);
+        memory.put(address, buffer);
+    }
+
+    /**
+     * Swap the bytes of two addresses while recording it
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to swap
+     */
+    @Override
+    public void swap(long addressA, long addressB, int size) {
+        if (recordAccess) record(MemoryEvent.Op.SWAP, size, addressA, addressB);
+        memory.swap(addressA, addressB, size);
+    }
+
+    /**
+     * Copy the bytes of one address into another while recording it
+     *
+     * @param addressA the address to copy from
+     * @param addressB the address to copy to
+     * @param size the number of bytes to copy
+     */
+    @Override
+    public void copy(long addressA, long addressB, int size) {
+        if (recordAccess) record(MemoryEvent.Op.COPY, size, addressB, addressA);
+        memory.copy(addressA, addressB, size);
+    }
+
+    /**
+     * Move the bytes of one address into another while recording it
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    @Override
+    public void move(long addressA, long addressB, int size) {
+        if (recordAccess) record(MemoryEvent.Op.MOVE, size, addressB, addressA);
+        memory.move(addressA, addressB, size);
+    }
+
+    /**
+     * Set every byte in a range to a value while recording it
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    @Override
+    public void fill(long address, int size, byte value) {
+        if (recordAccess) record(MemoryEvent.Op.FILL, size, address, 0);
+        memory.fill(address, size, value);
+    }
+
+    /**
+     * Get the bytes at the address while recording it
+     *
+     * @param address the start address of the bytes
+     * @param size the number of bytes to retrieve
+     * @return the bytes retrieved
+     */
+    @Override
+    public byte[] get(long address, int size) {
+        if (recordAccess) record(MemoryEvent.Op.GET, size, address, 0);
+        return memory.get(address, size);
+    }
+
+    /**
+     * Get the bytes at the address into an existing array while recording it
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    @Override
+    public void get(long address, byte[] bytes, int offset, int length) {
+        if (recordAccess) record(MemoryEvent.Op.GET, length, address, 0);
+        memory.get(address, bytes, offset, length);
+    }
+
+    /**
+     * Get the bytes at the address into the remaining space of a buffer while recording it
+     *
+     * @param address the start address of the bytes
+     * @param buffer the buffer to hold the retrieved bytes
+     */
+    @Override
+    public void get(long address, ByteBuffer buffer) {
+        if (recordAccess) record(MemoryEvent.Op.GET, buffer.remaining(), address, 0);
+        memory.get(address, buffer);
+    }
+
+    /**
+     * Get the byte at the address while recording it
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public byte getByte(long address) {
+        if (recordAccess) record(MemoryEvent.Op.GET, Byte.BYTES, address, 0);
+        return memory.getByte(address);
+    }
+
+    /**
+     * Place a byte into memory while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putByte(long address, byte value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Byte.BYTES, address, 0);
+        memory.putByte(address, value);
+    }
+
+    /**
+     * Get the short at the address while recording it
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public short getShort(long address) {
+        if (recordAccess) record(MemoryEvent.Op.GET, Short.BYTES, address, 0);
+        return memory.getShort(address);
+    }
+
+    /**
+     * Place a short into memory while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putShort(long address, short value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Short.BYTES, address, 0);
+        memory.putShort(address, value);
+    }
+
+    /**
+     * Get the int at the address while recording it
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getInt(long address) {
+        if (recordAccess) record(MemoryEvent.Op.GET, Integer.BYTES, address, 0);
+        return memory.getInt(address);
+    }
+
+    /**
+     * Place a int into memory while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putInt(long address, int value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Integer.BYTES, address, 0);
+        memory.putInt(address, value);
+    }
+
+    /**
+     * Get the long at the address while recording it
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLong(long address) {
+        if (recordAccess) record(MemoryEvent.Op.GET, Long.BYTES, address, 0);
+        return memory.getLong(address);
+    }
+
+    /**
+     * Place a long into memory while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLong(long address, long value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Long.BYTES, address, 0);
+        memory.putLong(address, value);
+    }
+
+    /**
+     * Get the float at the address while recording it
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public float getFloat(long address) {
+        if (recordAccess) record(MemoryEvent.Op.GET, Float.BYTES, address, 0);
+        return memory.getFloat(address);
+    }
+
+    /**
+     * Place a float into memory while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putFloat(long address, float value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Float.BYTES, address, 0);
+        memory.putFloat(address, value);
+    }
+
+    /**
+     * Get the double at the address while recording it
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public double getDouble(long address) {
+        if (recordAccess) record(MemoryEvent.Op.GET, Double.BYTES, address, 0);
+        return memory.getDouble(address);
+    }
+
+    /**
+     * Place a double into memory while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putDouble(long address, double value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Double.BYTES, address, 0);
+        memory.putDouble(address, value);
+    }
+
+    /**
+     * Get the int at the address with volatile semantics while recording it
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getIntVolatile(long address) {
+        if (recordAccess) record(MemoryEvent.Op.GET, Integer.BYTES, address, 0);
+        return memory.getIntVolatile(address);
+    }
+
+    /**
+     * Place a int into memory with volatile semantics while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntVolatile(long address, int value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Integer.BYTES, address, 0);
+        memory.putIntVolatile(address, value);
+    }
+
+    /**
+     * Place a int into memory with ordered semantics while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntOrdered(long address, int value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Integer.BYTES, address, 0);
+        memory.putIntOrdered(address, value);
+    }
+
+    /**
+     * Atomically replace the int at the address if it holds the expected value while recording it
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapInt(long address, int expected, int value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Integer.BYTES, address, 0);
+        return memory.compareAndSwapInt(address, expected, value);
+    }
+
+    /**
+     * Get the long at the address with volatile semantics while recording it
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLongVolatile(long address) {
+        if (recordAccess) record(MemoryEvent.Op.GET, Long.BYTES, address, 0);
+        return memory.getLongVolatile(address);
+    }
+
+    /**
+     * Place a long into memory with volatile semantics while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongVolatile(long address, long value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Long.BYTES, address, 0);
+        memory.putLongVolatile(address, value);
+    }
+
+    /**
+     * Place a long into memory with ordered semantics while recording it
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongOrdered(long address, long value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Long.BYTES, address, 0);
+        memory.putLongOrdered(address, value);
+    }
+
+    /**
+     * Atomically replace the long at the address if it holds the expected value while recording it
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapLong(long address, long expected, long value) {
+        if (recordAccess) record(MemoryEvent.Op.PUT, Long.BYTES, address, 0);
+        return memory.compareAndSwapLong(address, expected, value);
+    }
+
+    /**
+     * Write an event into the next slot of the ring
+     *
+     * @param op the operation
+     * @param size the number of bytes of the operation
+     * @param address the address of the operation
+     * @param otherAddress the second address of the operation, if any
+     */
+    private void record(MemoryEvent.Op op, int size, long address, long otherAddress) {
+        long seq = sequence.getAndIncrement();
+        long slot = slotOf(seq);
+
+        memory.putLongVolatile(slot + SEQUENCE, WRITING);
+        storeFence();
+        memory.putLong(slot + NANO_TIME, System.nanoTime());
+        memory.putLong(slot + THREAD_ID, Thread.currentThread().getId());
+        memory.putInt(slot + OP, op.ordinal());
+        memory.putInt(slot + SIZE, size);
+        memory.putLong(slot + ADDRESS, address);
+        memory.putLong(slot + OTHER_ADDRESS, otherAddress);
+        memory.putLongOrdered(slot + SEQUENCE, seq + 1);
+    }
+
+    /**
+     * Keep loads from being reordered after later loads, falls back to a lock without unsafe
+     */
+    private void loadFence() {
+        if (unsafe != null) unsafe.loadFence();
+        else synchronized (this) { }
+    }
+
+    /**
+     * Keep stores from being reordered before earlier stores, falls back to a lock without unsafe
+     */
+    private void storeFence() {
+        if (unsafe != null) unsafe.storeFence();
+        else synchronized (this) { }
+    }
+
+    /**
+     * Get the address of the slot of a sequence
+     *
+     * @param seq the sequence of an event
+     * @return the address of its slot
+     */
+    private long slotOf(long seq) {
+        return ringAddress + (seq & mask) * EVENT_SIZE;
+    }
+}
@@ -0,0 +1,352 @@
+package net.ml.unsafe.collections.memory;
+
+import java.util.Arrays;
+
+/**
+ * Manages chunks of memory by carving small allocations out of pre-reserved slabs
+ *
+ * Allocations up to {@link #MAX_SLAB_SIZE} bytes are rounded up to a power of two size class
+ * and served from large chunks reserved from the underlying memory, freed slots are kept on a
+ * free list per size class and reused. Larger allocations fall back to the underlying memory.
+ * Every allocation is prefixed by a header holding its size class so it can be freed by address.
+ *
+ * Chunks are kept while any of their slots may be reused, call {@link #trim()} to release the
+ * chunks whose slots are all free, or close the memory to release every chunk at once.
+ *
+ * @author micha
+ */
+public final class SlabMemory extends ForwardingMemory implements AutoCloseable {
+    public static final int MIN_SLAB_SIZE = 8;
+    public static final int MAX_SLAB_SIZE = 4096;
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 18;
+
+    private static final int HEADER = Long.BYTES;
+    private static final int LARGE = -1;
+    private static final int SIZE_CLASSES = sizeClassOf(MAX_SLAB_SIZE) + 1;
+
+    private final Slab[] slabs = new Slab[SIZE_CLASSES];
+    private final int chunkSize;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to reserve chunks and large allocations from
+     */
+    public SlabMemory(Memory memory) {
+        this(memory, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to reserve chunks and large allocations from
+     * @param chunkSize the number of bytes reserved at a time for a size class
+     */
+    public SlabMemory(Memory memory, int chunkSize) {
+        super(memory);
+
+        if (chunkSize < MAX_SLAB_SIZE + HEADER)
+            throw new IllegalArgumentException("Chunk cannot hold the largest size class: " + chunkSize);
+
+        this.chunkSize = chunkSize;
+
+        for (int i = 0; i < SIZE_CLASSES; ++i) {
+            slabs[i] = new Slab(i);
+        }
+    }
+
+    /**
+     * Allocate memory from the slab of the size class or directly if too large
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory from the slab of the size class or directly if too large
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        if (size < 0)
+            throw new IllegalArgumentException("Cannot allocate negative memory: " + size);
+
+        if (size > MAX_SLAB_SIZE) {
+            long addr = memory.malloc(size + HEADER, flags);
+            memory.putInt(addr, LARGE);
+            return addr + HEADER;
+        }
+
+        return slabs[sizeClassOf(size)].malloc();
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Stays in place while the size class slot can hold the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Stays in place while the size class slot can hold the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        int sizeClass = sizeClassAt(address);
+
+        if (sizeClass == LARGE && size > MAX_SLAB_SIZE)
+            return memory.realloc(address - HEADER, prevSize + HEADER, size + HEADER, flags) + HEADER;
+
+        if (sizeClass != LARGE && size <= slabs[sizeClass].slotSize) {
+            if (size > prevSize && !AllocationFlags.isSet(flags, AllocationFlags.UNINITIALIZED))
+                memory.fill(address + prevSize, size - prevSize, (byte) 0);
+            return address;
+        }
+
+        long addr = malloc(size, flags);
+        memory.copy(address, addr, Math.min(prevSize, size));
+        free(address);
+        return addr;
+    }
+
+    /**
+     * Release the allocated memory back to its slab or directly if too large
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        int sizeClass = sizeClassAt(address);
+
+        if (sizeClass == LARGE) {
+            memory.free(address - HEADER);
+        } else {
+            slabs[sizeClass].free(address);
+        }
+    }
+
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * Freeing always returns the slot to its slab, whatever the underlying memory does
+     *
+     * @return true
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return true;
+    }
+
+    /**
+     * Release the chunks whose slots are all free back to the underlying memory
+     *
+     * @return the number of bytes released
+     */
+    public long trim() {
+        long released = 0;
+
+        for (Slab slab : slabs) {
+            released += slab.trim();
+        }
+
+        return released;
+    }
+
+    /**
+     * Release every chunk, invalidating every allocation of a size class
+     */
+    @Override
+    public void close() {
+        for (Slab slab : slabs) {
+            slab.release();
+        }
+    }
+
+    /**
+     * Read the size class from the header of an allocation
+     *
+     * @param address the address of the allocation
+     * @return the size class or large
+     */
+    private int sizeClassAt(long address) {
+        return memory.getInt(address - HEADER);
+    }
+
+    /**
+     * Find the size class of a number of bytes
+     *
+     * @param size the number of bytes
+     * @return the index of the smallest size class that holds the bytes
+     */
+    private static int sizeClassOf(int size) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros((size - 1) / MIN_SLAB_SIZE);
+    }
+
+    /**
+     * Slots of a single size class carved out of chunks
+     *
+     * @author micha
+     */
+    private final class Slab {
+        private final int sizeClass;
+        private final int slotSize;
+        private final int stride;
+
+        private long[] freed = new long[16];
+        private int freedCount;
+        private long[] chunks = new long[4];
+        private int chunkCount;
+        private long cursor;
+        private long limit;
+
+        /**
+         * Constructor
+         *
+         * @param sizeClass the size class of the slab
+         */
+        Slab(int sizeClass) {
+            this.sizeClass = sizeClass;
+            this.slotSize = MIN_SLAB_SIZE << sizeClass;
+            this.stride = HEADER + slotSize;
+        }
+
+        /**
+         * Take a slot from the free list or carve a new one from the current chunk
+         *
+         * @return the address of the slot after its header
+         */
+        synchronized long malloc() {
+            if (freedCount > 0) {
+                long addr = freed[--freedCount];
+                memory.fill(addr, slotSize, (byte) 0);
+                return addr;
+            }
+
+            if (cursor + stride > limit) {
+                if (chunkCount == chunks.length) chunks = Arrays.copyOf(chunks, chunkCount * 2);
+
+                cursor = memory.malloc(chunkSize);
+                limit = cursor + chunkSize;
+                chunks[chunkCount++] = cursor;
+            }
+
+            long addr = cursor;
+            memory.putInt(addr, sizeClass);
+            cursor += stride;
+            return addr + HEADER;
+        }
+
+        /**
+         * Return a slot to the free list
+         *
+         * @param address the address of the slot after its header
+         */
+        synchronized void free(long address) {
+            if (freedCount == freed.length) {
+                long[] grown = new long[freed.length << 1];
+                System.arraycopy(freed, 0, grown, 0, freedCount);
+                freed = grown;
+            }
+
+            freed[freedCount++] = address;
+        }
+
+        /**
+         * Release the chunks whose carved slots are all on the free list
+         *
+         * @return the number of bytes released
+         */
+        synchronized long trim() {
+            if (freedCount == 0) return 0;
+
+            Arrays.sort(chunks, 0, chunkCount);
+            int[] freeSlots = new int[chunkCount];
+
+            for (int i = 0; i < freedCount; ++i) {
+                ++freeSlots[chunkOf(freed[i])];
+            }
+
+            boolean[] released = new boolean[chunkCount];
+            int releasedCount = 0;
+
+            for (int i = 0; i < chunkCount; ++i) {
+                //the current chunk has only carved the slots up to the cursor
+                boolean current = chunks[i] == limit - chunkSize;
+                int carved = current ? (int) ((cursor - chunks[i]) / stride) : chunkSize / stride;
+
+                if (freeSlots[i] == carved) {
+                    released[i] = true;
+                    ++releasedCount;
+                    if (current) cursor = limit = 0;
+                }
+            }
+
+            if (releasedCount == 0) return 0;
+
+            int kept = 0;
+            for (int i = 0; i < freedCount; ++i) {
+                if (!released[chunkOf(freed[i])]) freed[kept++] = freed[i];
+            }
+            freedCount = kept;
+
+            kept = 0;
+            for (int i = 0; i < chunkCount; ++i) {
+                if (released[i]) {
+                    memory.free(chunks[i]);
+                } else {
+                    chunks[kept++] = chunks[i];
+                }
+            }
+            chunkCount = kept;
+
+            return (long) releasedCount * chunkSize;
+        }
+
+        /**
+         * Release every chunk and forget the free list
+         */
+        synchronized void release() {
+            for (int i = 0; i < chunkCount; ++i) {
+                memory.free(chunks[i]);
+            }
+
+            chunkCount = 0;
+            freedCount = 0;
+            cursor = limit = 0;
+        }
+
+        /**
+         * Find the chunk holding a slot, the chunks must be sorted
+         *
+         * @param address the address of the slot
+         * @return the index of the chunk
+         */
+        private int chunkOf(long address) {
+            int index = Arrays.binarySearch(chunks, 0, chunkCount, address);
+            return index >= 0 ? index : -index - 2;
+        }
+    }
+}
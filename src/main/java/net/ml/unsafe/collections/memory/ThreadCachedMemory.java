@@ -0,0 +1,371 @@
+package net.ml.unsafe.collections.memory;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Manages chunks of memory with per thread caches of freed chunks in front of another memory
+ *
+ * Allocations up to {@link #MAX_CACHED_SIZE} bytes are rounded up to a power of two size class.
+ * Freed chunks are kept in a cache of the freeing thread and reused by its next allocations of
+ * the same class without any synchronization. A full cache hands a batch of chunks to a shared
+ * pool and an empty cache takes a batch from the pool before allocating from the underlying
+ * memory, so chunks move between threads a batch at a time. Larger allocations go directly to
+ * the underlying memory. Every allocation is prefixed by a header holding its size class so it
+ * can be freed by address from any thread.
+ *
+ * Chunks cached by a thread stay with it until {@link #flush()} hands them to the pool, the caches
+ * of threads which finished without flushing are handed over when the next thread starts caching
+ * or on {@link #trim()}. Pooled chunks are kept for reuse until {@link #trim()} releases them to
+ * the underlying memory.
+ *
+ * @author micha
+ */
+public final class ThreadCachedMemory extends ForwardingMemory implements AutoCloseable {
+    public static final int MIN_CACHED_SIZE = 8;
+    public static final int MAX_CACHED_SIZE = 4096;
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    private static final int HEADER = Long.BYTES;
+    private static final int LARGE = -1;
+    private static final int SIZE_CLASSES = sizeClassOf(MAX_CACHED_SIZE) + 1;
+
+    private final Queue<long[]>[] pools;
+    private final ThreadLocal<Cache[]> caches;
+    private final Map<Thread, Cache[]> owners = new ConcurrentHashMap<>();
+    private final int batchSize;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to allocate chunks from
+     */
+    public ThreadCachedMemory(Memory memory) {
+        this(memory, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to allocate chunks from
+     * @param batchSize the number of chunks moved between a thread and the pool at a time
+     */
+    @SuppressWarnings("unchecked")
+    public ThreadCachedMemory(Memory memory, int batchSize) {
+        super(memory);
+
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+
+        this.batchSize = batchSize;
+        this.pools = (Queue<long[]>[]) new Queue<?>[SIZE_CLASSES];
+        this.caches = ThreadLocal.withInitial(this::newCaches);
+
+        for (int i = 0; i < SIZE_CLASSES; ++i) {
+            pools[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Allocate memory from the cache of the current thread or directly if too large
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory from the cache of the current thread or directly if too large
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        if (size < 0)
+            throw new IllegalArgumentException("Cannot allocate negative memory: " + size);
+
+        if (size > MAX_CACHED_SIZE) {
+            long addr = memory.malloc(size + HEADER, flags);
+            memory.putInt(addr, LARGE);
+            return addr + HEADER;
+        }
+
+        return caches.get()[sizeClassOf(size)].malloc();
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Stays in place while the size class can hold the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation
+     *
+     * Stays in place while the size class can hold the new size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        int sizeClass = sizeClassAt(address);
+
+        if (sizeClass == LARGE && size > MAX_CACHED_SIZE)
+            return memory.realloc(address - HEADER, prevSize + HEADER, size + HEADER, flags) + HEADER;
+
+        if (sizeClass != LARGE && size <= slotSizeOf(sizeClass)) {
+            if (size > prevSize && !AllocationFlags.isSet(flags, AllocationFlags.UNINITIALIZED))
+                memory.fill(address + prevSize, size - prevSize, (byte) 0);
+            return address;
+        }
+
+        long addr = malloc(size, flags);
+        memory.copy(address, addr, Math.min(prevSize, size));
+        free(address);
+        return addr;
+    }
+
+    /**
+     * Release the allocated memory to the cache of the current thread or directly if too large
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        int sizeClass = sizeClassAt(address);
+
+        if (sizeClass == LARGE) {
+            memory.free(address - HEADER);
+        } else {
+            caches.get()[sizeClass].free(address);
+        }
+    }
+
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * Freeing always returns the slot to the cache of the thread, whatever the underlying memory does
+     *
+     * @return true
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return true;
+    }
+
+    /**
+     * Hand every chunk cached by the current thread to the shared pool
+     */
+    public void flush() {
+        for (Cache cache : caches.get()) {
+            cache.flush();
+        }
+    }
+
+    /**
+     * Release the pooled chunks to the underlying memory
+     *
+     * Flushes the caches of the current thread and of finished threads first, chunks cached by
+     * other running threads are kept
+     *
+     * @return the number of bytes released
+     */
+    public long trim() {
+        flush();
+        reclaimFinishedThreads();
+
+        long released = 0;
+        for (int i = 0; i < SIZE_CLASSES; ++i) {
+            long[] batch;
+
+            while ((batch = pools[i].poll()) != null) {
+                for (long address : batch) {
+                    memory.free(address - HEADER);
+                }
+
+                released += (long) batch.length * (HEADER + slotSizeOf(i));
+            }
+        }
+
+        return released;
+    }
+
+    /**
+     * Release the pooled chunks when used in try with resources, other running threads must
+     * flush their caches first
+     */
+    @Override
+    public void close() {
+        trim();
+    }
+
+    /**
+     * Create the caches of a thread, taking over those of finished threads
+     *
+     * @return a cache per size class
+     */
+    private Cache[] newCaches() {
+        Cache[] cache = new Cache[SIZE_CLASSES];
+
+        for (int i = 0; i < SIZE_CLASSES; ++i) {
+            cache[i] = new Cache(i);
+        }
+
+        reclaimFinishedThreads();
+        owners.put(Thread.currentThread(), cache);
+        return cache;
+    }
+
+    /**
+     * Hand the caches of threads which finished without flushing to the pool
+     *
+     * A finished thread no longer touches its caches, so they can be flushed from any thread,
+     * but only by the one thread which removes them from the owners
+     */
+    private void reclaimFinishedThreads() {
+        for (Map.Entry<Thread, Cache[]> owner : owners.entrySet()) {
+            Thread thread = owner.getKey();
+            Cache[] finished = owner.getValue();
+
+            if (thread.isAlive() || !owners.remove(thread, finished)) continue;
+
+            for (Cache cache : finished) {
+                cache.flush();
+            }
+        }
+    }
+
+    /**
+     * Read the size class from the header of an allocation
+     *
+     * @param address the address of the allocation
+     * @return the size class or large
+     */
+    private int sizeClassAt(long address) {
+        return memory.getInt(address - HEADER);
+    }
+
+    /**
+     * Find the number of bytes in a size class
+     *
+     * @param sizeClass the size class
+     * @return the number of bytes
+     */
+    private static int slotSizeOf(int sizeClass) {
+        return MIN_CACHED_SIZE << sizeClass;
+    }
+
+    /**
+     * Find the size class of a number of bytes
+     *
+     * @param size the number of bytes
+     * @return the index of the smallest size class that holds the bytes
+     */
+    private static int sizeClassOf(int size) {
+        return Integer.SIZE - Integer.numberOfLeadingZeros((size - 1) / MIN_CACHED_SIZE);
+    }
+
+    /**
+     * Freed chunks of a single size class owned by one thread
+     *
+     * Holds up to two batches so alternating allocations and frees do not hit the pool
+     *
+     * @author micha
+     */
+    private final class Cache {
+        private final int sizeClass;
+        private final int slotSize;
+
+        private long[] chunks = new long[batchSize * 2];
+        private int count;
+
+        /**
+         * Constructor
+         *
+         * @param sizeClass the size class of the cache
+         */
+        Cache(int sizeClass) {
+            this.sizeClass = sizeClass;
+            this.slotSize = slotSizeOf(sizeClass);
+        }
+
+        /**
+         * Take a chunk from the cache, refilling it from the pool or allocating when empty
+         *
+         * @return the address of the chunk after its header
+         */
+        long malloc() {
+            if (count == 0) {
+                long[] batch = pools[sizeClass].poll();
+
+                if (batch == null) {
+                    long addr = memory.malloc(HEADER + slotSize);
+                    memory.putInt(addr, sizeClass);
+                    return addr + HEADER;
+                }
+
+                System.arraycopy(batch, 0, chunks, 0, batch.length);
+                count = batch.length;
+            }
+
+            long addr = chunks[--count];
+            memory.fill(addr, slotSize, (byte) 0);
+            return addr;
+        }
+
+        /**
+         * Return a chunk to the cache, handing a batch to the pool when full
+         *
+         * @param address the address of the chunk after its header
+         */
+        void free(long address) {
+            if (count == chunks.length) {
+                count -= batchSize;
+                pools[sizeClass].offer(copyOfRange(count, batchSize));
+            }
+
+            chunks[count++] = address;
+        }
+
+        /**
+         * Hand every cached chunk to the pool
+         */
+        void flush() {
+            if (count > 0) pools[sizeClass].offer(copyOfRange(0, count));
+            count = 0;
+        }
+
+        /**
+         * Copy part of the cached chunks
+         *
+         * @param from the first chunk to copy
+         * @param length the number of chunks to copy
+         * @return the copied chunks
+         */
+        private long[] copyOfRange(int from, int length) {
+            long[] batch = new long[length];
+            System.arraycopy(chunks, from, batch, 0, length);
+            return batch;
+        }
+    }
+}
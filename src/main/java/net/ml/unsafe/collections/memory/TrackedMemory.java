@@ -3,17 +3,21 @@ package net.ml.unsafe.collections.memory;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages chunks of memory while tracking allocations
  *
+ * Keeps every live allocation of this instance in a map which makes leaks easy to pinpoint
+ * but is too costly for production, see {@link AccountedMemory} for cheap counters instead.
+ *
  * @author micha
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class TrackedMemory implements Memory {
-    private static final Map<Long, Integer> allocations = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> allocations = new ConcurrentHashMap<>();
     private Memory memory;
 
     /**
@@ -51,7 +55,19 @@ public final class TrackedMemory implements Memory {
      */
     @Override
     public long malloc(int size) {
-        long addr = memory.malloc(size);
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory while tracking the reference and size
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
+        long addr = memory.malloc(size, flags);
         allocations.put(addr, size);
         return addr;
     }
@@ -66,7 +82,21 @@ public final class TrackedMemory implements Memory {
      */
     @Override
     public long realloc(long address, int prevSize, int size) {
-        long addr = memory.realloc(address, prevSize, size);
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation while tracking the reference and size
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
+        long addr = memory.realloc(address, prevSize, size, flags);
         allocations.remove(address);
         allocations.put(addr, size);
         return addr;
@@ -83,6 +113,26 @@ public final class TrackedMemory implements Memory {
         memory.free(address);
     }
 
+    /**
+     * Check if freeing an allocation releases its memory
+     *
+     * @return whether or not the underlying memory releases each allocation when freed
+     */
+    @Override
+    public boolean releasesOnFree() {
+        return memory.releasesOnFree();
+    }
+
+    /**
+     * Check if addresses are native pointers
+     *
+     * @return whether or not addresses are native pointers
+     */
+    @Override
+    public boolean hasNativeAddresses() {
+        return memory.hasNativeAddresses();
+    }
+
     /**
      * Place the bytes into memory
      *
@@ -94,6 +144,30 @@ public final class TrackedMemory implements Memory {
         memory.put(address, bytes);
     }
 
+    /**
+     * Place a range of bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes, int offset, int length) {
+        memory.put(address, bytes, offset, length);
+    }
+
+    /**
+     * Place the remaining bytes of a buffer into memory
+     *
+     * @param address the address to store the bytes
+     * @param buffer the buffer holding the bytes to store
+     */
+    @Override
+    public void put(long address, ByteBuffer buffer) {
+        memory.put(address, buffer);
+    }
+
     /**
      * Swap the bytes of two addresses while logging the addresses and sizes
      *
@@ -118,6 +192,56 @@ public final class TrackedMemory implements Memory {
         memory.copy(addressA, addressB, size);
     }
 
+    /**
+     * Move the bytes of one address into another where the two ranges may overlap
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    @Override
+    public void move(long addressA, long addressB, int size) {
+        memory.move(addressA, addressB, size);
+    }
+
+    /**
+     * Set every byte in a range to a value
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    @Override
+    public void fill(long address, int size, byte value) {
+        memory.fill(address, size, value);
+    }
+
+    /**
+     * Check if the bytes of two addresses are equal
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return whether or not the bytes are equal
+     */
+    @Override
+    public boolean equals(long addressA, long addressB, int size) {
+        return memory.equals(addressA, addressB, size);
+    }
+
+    /**
+     * Compare the bytes of two addresses lexicographically as unsigned values
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return negative, zero or positive as the first bytes are less, equal or greater than the second
+     */
+    @Override
+    public int compare(long addressA, long addressB, int size) {
+        return memory.compare(addressA, addressB, size);
+    }
+
     /**
      * Get the bytes at the address
      *
@@ -129,4 +253,252 @@ public final class TrackedMemory implements Memory {
     public byte[] get(long address, int size) {
         return memory.get(address, size);
     }
+
+    /**
+     * Get the bytes at the address into an existing array
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    @Override
+    public void get(long address, byte[] bytes, int offset, int length) {
+        memory.get(address, bytes, offset, length);
+    }
+
+    /**
+     * Get the bytes at the address into the remaining space of a buffer
+     *
+     * @param address the start address of the bytes
+     * @param buffer the buffer to hold the retrieved bytes
+     */
+    @Override
+    public void get(long address, ByteBuffer buffer) {
+        memory.get(address, buffer);
+    }
+
+    /**
+     * Get the byte at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public byte getByte(long address) {
+        return memory.getByte(address);
+    }
+
+    /**
+     * Place a byte into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putByte(long address, byte value) {
+        memory.putByte(address, value);
+    }
+
+    /**
+     * Get the short at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public short getShort(long address) {
+        return memory.getShort(address);
+    }
+
+    /**
+     * Place a short into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putShort(long address, short value) {
+        memory.putShort(address, value);
+    }
+
+    /**
+     * Get the int at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getInt(long address) {
+        return memory.getInt(address);
+    }
+
+    /**
+     * Place a int into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putInt(long address, int value) {
+        memory.putInt(address, value);
+    }
+
+    /**
+     * Get the long at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLong(long address) {
+        return memory.getLong(address);
+    }
+
+    /**
+     * Place a long into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLong(long address, long value) {
+        memory.putLong(address, value);
+    }
+
+    /**
+     * Get the float at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public float getFloat(long address) {
+        return memory.getFloat(address);
+    }
+
+    /**
+     * Place a float into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putFloat(long address, float value) {
+        memory.putFloat(address, value);
+    }
+
+    /**
+     * Get the double at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public double getDouble(long address) {
+        return memory.getDouble(address);
+    }
+
+    /**
+     * Place a double into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putDouble(long address, double value) {
+        memory.putDouble(address, value);
+    }
+
+    /**
+     * Get the int at the address with volatile semantics
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getIntVolatile(long address) {
+        return memory.getIntVolatile(address);
+    }
+
+    /**
+     * Place a int into memory with volatile semantics
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntVolatile(long address, int value) {
+        memory.putIntVolatile(address, value);
+    }
+
+    /**
+     * Place a int into memory with ordered semantics
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntOrdered(long address, int value) {
+        memory.putIntOrdered(address, value);
+    }
+
+    /**
+     * Atomically replace the int at the address if it holds the expected value
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapInt(long address, int expected, int value) {
+        return memory.compareAndSwapInt(address, expected, value);
+    }
+
+    /**
+     * Get the long at the address with volatile semantics
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLongVolatile(long address) {
+        return memory.getLongVolatile(address);
+    }
+
+    /**
+     * Place a long into memory with volatile semantics
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongVolatile(long address, long value) {
+        memory.putLongVolatile(address, value);
+    }
+
+    /**
+     * Place a long into memory with ordered semantics
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongOrdered(long address, long value) {
+        memory.putLongOrdered(address, value);
+    }
+
+    /**
+     * Atomically replace the long at the address if it holds the expected value
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapLong(long address, long expected, long value) {
+        return memory.compareAndSwapLong(address, expected, value);
+    }
 }
@@ -3,6 +3,11 @@ package net.ml.unsafe.collections.memory;
 import net.ml.unsafe.collections.util.UnsafeSingleton;
 import sun.misc.Unsafe;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+
 /**
  * Manages chunks of memory using unsafe
  *
@@ -10,6 +15,19 @@ import sun.misc.Unsafe;
  */
 public final class UnsafeMemory implements Memory {
     private static final Unsafe unsafe = UnsafeSingleton.getUnsafe();
+    private static final String ADDRESS_FIELD = "address";
+    private static final int PAGE_SIZE = unsafe.pageSize();
+    private static final boolean BIG_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+    private static final long bufferAddressOffset;
+
+    static {
+        try {
+            //direct buffers keep their native address in a field of buffer
+            bufferAddressOffset = unsafe.objectFieldOffset(Buffer.class.getDeclaredField(ADDRESS_FIELD));
+        } catch (NoSuchFieldException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 
     /**
      * Allocate memory using unsafe
@@ -19,8 +37,20 @@ public final class UnsafeMemory implements Memory {
      */
     @Override
     public long malloc(int size) {
+        return malloc(size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Allocate memory using unsafe, zeroing or touching it according to the flags
+     *
+     * @param size the number of bytes to allocate
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size, int flags) {
         long addr = unsafe.allocateMemory(size);
-        zeroData(addr, size);
+        prepare(addr, size, flags);
         return addr;
     }
 
@@ -34,8 +64,22 @@ public final class UnsafeMemory implements Memory {
      */
     @Override
     public long realloc(long address, int prevSize, int size) {
+        return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Increase the size of a memory allocation using unsafe, preparing the added bytes according to the flags
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @param flags the {@link AllocationFlags} to allocate with
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size, int flags) {
         long addr = unsafe.reallocateMemory(address, size);
-        zeroData(addr + prevSize, size);
+        if (size > prevSize) prepare(addr + prevSize, size - prevSize, flags);
         return addr;
     }
 
@@ -49,6 +93,16 @@ public final class UnsafeMemory implements Memory {
         unsafe.freeMemory(address);
     }
 
+    /**
+     * Addresses are native pointers from unsafe
+     *
+     * @return true
+     */
+    @Override
+    public boolean hasNativeAddresses() {
+        return true;
+    }
+
     /**
      * Get the bytes at the address using unsafe
      *
@@ -63,6 +117,41 @@ public final class UnsafeMemory implements Memory {
         return bytes;
     }
 
+    /**
+     * Get the bytes at the address into an existing array using unsafe
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    @Override
+    public void get(long address, byte[] bytes, int offset, int length) {
+        checkRange(bytes, offset, length);
+        unsafe.copyMemory(null, address, bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET + offset, length);
+    }
+
+    /**
+     * Get the bytes at the address into the remaining space of a buffer using unsafe
+     *
+     * @param address the start address of the bytes
+     * @param buffer the buffer to hold the retrieved bytes
+     */
+    @Override
+    public void get(long address, ByteBuffer buffer) {
+        if (buffer.isReadOnly()) throw new ReadOnlyBufferException();
+
+        int length = buffer.remaining();
+
+        if (buffer.hasArray()) {
+            get(address, buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            unsafe.copyMemory(address, bufferAddress(buffer) + buffer.position(), length);
+        }
+
+        buffer.position(buffer.position() + length);
+    }
+
     /**
      * Place the bytes into memory using unsafe
      *
@@ -74,18 +163,67 @@ public final class UnsafeMemory implements Memory {
         storeBytes(address, bytes);
     }
 
+    /**
+     * Place a range of bytes into memory using unsafe
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes, int offset, int length) {
+        checkRange(bytes, offset, length);
+        unsafe.copyMemory(bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET + offset, null, address, length);
+    }
+
+    /**
+     * Place the remaining bytes of a buffer into memory using unsafe
+     *
+     * @param address the address to store the bytes
+     * @param buffer the buffer holding the bytes to store
+     */
+    @Override
+    public void put(long address, ByteBuffer buffer) {
+        int length = buffer.remaining();
+
+        if (buffer.hasArray()) {
+            put(address, buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else if (buffer.isDirect()) {
+            unsafe.copyMemory(bufferAddress(buffer) + buffer.position(), address, length);
+        } else {
+            //read only heap buffers do not expose their array
+            Memory.super.put(address, buffer);
+            return;
+        }
+
+        buffer.position(buffer.position() + length);
+    }
+
     /**
      * Swap the bytes of two addresses using unsafe
      *
+     * Swaps a word at a time in place without copying through the heap
+     *
      * @param addressA the first address in memory
      * @param addressB the second address in memory
      * @param size the number of bytes to swap
      */
     @Override
     public void swap(long addressA, long addressB, int size) {
-        byte[] tmp = get(addressB, size);
-        put(addressB, get(addressA, size));
-        put(addressA, tmp);
+        int i = 0;
+
+        for (; i <= size - Long.BYTES; i += Long.BYTES) {
+            long tmp = unsafe.getLong(addressB + i);
+            unsafe.putLong(addressB + i, unsafe.getLong(addressA + i));
+            unsafe.putLong(addressA + i, tmp);
+        }
+
+        for (; i < size; ++i) {
+            byte tmp = unsafe.getByte(addressB + i);
+            unsafe.putByte(addressB + i, unsafe.getByte(addressA + i));
+            unsafe.putByte(addressA + i, tmp);
+        }
     }
 
     /**
@@ -97,7 +235,62 @@ public final class UnsafeMemory implements Memory {
      */
     @Override
     public void copy(long addressA, long addressB, int size) {
-        put(addressB, get(addressA, size));
+        unsafe.copyMemory(addressA, addressB, size);
+    }
+
+    /**
+     * Move the bytes of one address into another where the two ranges may overlap using unsafe
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    @Override
+    public void move(long addressA, long addressB, int size) {
+        //unsafe copies handle overlapping ranges like memmove
+        unsafe.copyMemory(addressA, addressB, size);
+    }
+
+    /**
+     * Set every byte in a range to a value using unsafe
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    @Override
+    public void fill(long address, int size, byte value) {
+        unsafe.setMemory(address, size, value);
+    }
+
+    /**
+     * Check if the bytes of two addresses are equal using unsafe
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return whether or not the bytes are equal
+     */
+    @Override
+    public boolean equals(long addressA, long addressB, int size) {
+        return mismatch(addressA, addressB, size) < 0;
+    }
+
+    /**
+     * Compare the bytes of two addresses lexicographically as unsigned values using unsafe
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return negative, zero or positive as the first bytes are less, equal or greater than the second
+     */
+    @Override
+    public int compare(long addressA, long addressB, int size) {
+        int i = mismatch(addressA, addressB, size);
+
+        return i < 0 ? 0 : Integer.compare(
+                Byte.toUnsignedInt(unsafe.getByte(addressA + i)),
+                Byte.toUnsignedInt(unsafe.getByte(addressB + i)));
     }
 
     /**
@@ -120,6 +313,302 @@ public final class UnsafeMemory implements Memory {
         unsafe.copyMemory(bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET, null, address, bytes.length);
     }
 
+    /**
+     * Get the byte at the address using unsafe
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public byte getByte(long address) {
+        return unsafe.getByte(address);
+    }
+
+    /**
+     * Place a byte into memory using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putByte(long address, byte value) {
+        unsafe.putByte(address, value);
+    }
+
+    /**
+     * Get the short at the address using unsafe
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public short getShort(long address) {
+        return unsafe.getShort(address);
+    }
+
+    /**
+     * Place a short into memory using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putShort(long address, short value) {
+        unsafe.putShort(address, value);
+    }
+
+    /**
+     * Get the int at the address using unsafe
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getInt(long address) {
+        return unsafe.getInt(address);
+    }
+
+    /**
+     * Place a int into memory using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putInt(long address, int value) {
+        unsafe.putInt(address, value);
+    }
+
+    /**
+     * Get the long at the address using unsafe
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLong(long address) {
+        return unsafe.getLong(address);
+    }
+
+    /**
+     * Place a long into memory using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLong(long address, long value) {
+        unsafe.putLong(address, value);
+    }
+
+    /**
+     * Get the float at the address using unsafe
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public float getFloat(long address) {
+        return unsafe.getFloat(address);
+    }
+
+    /**
+     * Place a float into memory using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putFloat(long address, float value) {
+        unsafe.putFloat(address, value);
+    }
+
+    /**
+     * Get the double at the address using unsafe
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public double getDouble(long address) {
+        return unsafe.getDouble(address);
+    }
+
+    /**
+     * Place a double into memory using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putDouble(long address, double value) {
+        unsafe.putDouble(address, value);
+    }
+
+    /**
+     * Get the int at the address with volatile semantics using unsafe
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getIntVolatile(long address) {
+        return unsafe.getIntVolatile(null, address);
+    }
+
+    /**
+     * Place a int into memory with volatile semantics using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntVolatile(long address, int value) {
+        unsafe.putIntVolatile(null, address, value);
+    }
+
+    /**
+     * Place a int into memory with ordered semantics using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntOrdered(long address, int value) {
+        unsafe.putOrderedInt(null, address, value);
+    }
+
+    /**
+     * Atomically replace the int at the address if it holds the expected value using unsafe
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapInt(long address, int expected, int value) {
+        return unsafe.compareAndSwapInt(null, address, expected, value);
+    }
+
+    /**
+     * Get the long at the address with volatile semantics using unsafe
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLongVolatile(long address) {
+        return unsafe.getLongVolatile(null, address);
+    }
+
+    /**
+     * Place a long into memory with volatile semantics using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongVolatile(long address, long value) {
+        unsafe.putLongVolatile(null, address, value);
+    }
+
+    /**
+     * Place a long into memory with ordered semantics using unsafe
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongOrdered(long address, long value) {
+        unsafe.putOrderedLong(null, address, value);
+    }
+
+    /**
+     * Atomically replace the long at the address if it holds the expected value using unsafe
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapLong(long address, long expected, long value) {
+        return unsafe.compareAndSwapLong(null, address, expected, value);
+    }
+
+    /**
+     * Find the first byte that differs between two addresses comparing a word at a time
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return the offset of the first differing byte or -1 if equal
+     */
+    private static int mismatch(long addressA, long addressB, int size) {
+        int i = 0;
+
+        for (; i <= size - Long.BYTES; i += Long.BYTES) {
+            long diff = unsafe.getLong(addressA + i) ^ unsafe.getLong(addressB + i);
+
+            if (diff != 0) {
+                int bits = BIG_ENDIAN ? Long.numberOfLeadingZeros(diff) : Long.numberOfTrailingZeros(diff);
+                return i + bits / Byte.SIZE;
+            }
+        }
+
+        for (; i < size; ++i) {
+            if (unsafe.getByte(addressA + i) != unsafe.getByte(addressB + i)) return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get the native address of a direct buffer
+     *
+     * @param buffer the direct buffer
+     * @return the address of the start of the buffer
+     */
+    static long bufferAddress(ByteBuffer buffer) {
+        return unsafe.getLong(buffer, bufferAddressOffset);
+    }
+
+    /**
+     * Check that a range lies within an array before copying raw memory into or out of it
+     *
+     * @param bytes the array
+     * @param offset the start of the range
+     * @param length the number of bytes in the range
+     *
+     * @throws IndexOutOfBoundsException the range exceeds the array
+     */
+    private static void checkRange(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length)
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length + ") out of bounds for " + bytes.length);
+    }
+
+    /**
+     * Prepare newly allocated bytes according to the flags
+     *
+     * Zeroing touches every page already, so pages are only touched separately when not zeroing
+     *
+     * @param address the address of the bytes
+     * @param size the number of bytes
+     * @param flags the {@link AllocationFlags} to allocate with
+     */
+    private void prepare(long address, int size, int flags) {
+        if (!AllocationFlags.isSet(flags, AllocationFlags.UNINITIALIZED)) {
+            zeroData(address, size);
+        } else if (AllocationFlags.isSet(flags, AllocationFlags.PRE_TOUCH) && size > 0) {
+            for (long offset = 0; offset < size; offset += PAGE_SIZE) {
+                unsafe.putByte(address + offset, (byte) 0);
+            }
+
+            unsafe.putByte(address + size - 1, (byte) 0);
+        }
+    }
+
     /**
      * Zero out the data at the address
      *
@@ -127,6 +616,6 @@ public final class UnsafeMemory implements Memory {
      * @param size the number of bytes to clear
      */
     private void zeroData(long address, int size) {
-        storeBytes(address, new byte[size]);
+        unsafe.setMemory(address, size, (byte) 0);
     }
 }
@@ -0,0 +1,157 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import net.ml.unsafe.collections.memory.ArenaMemory;
+
+import java.nio.file.Path;
+
+/**
+ * Decorates memory blocks backed by an arena of their own
+ *
+ * Freeing the block resets its arena, releasing every object at once instead of one by one
+ *
+ * @author micha
+ * @param <T> the object type to manage in memory
+ */
+public final class ArenaMemoryBlock<T> extends AbstractMemoryBlock<T> implements MemoryBlock<T> {
+    private final MemoryBlock<T> memory;
+    private final ArenaMemory arena;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory block allocating from the arena
+     * @param arena the arena of the block
+     */
+    public ArenaMemoryBlock(MemoryBlock<T> memory, ArenaMemory arena) {
+        this.memory = memory;
+        this.arena = arena;
+    }
+
+    /**
+     * Allocate memory for n objects
+     *
+     * @param capacity the number of objects to allocate memory for
+     */
+    @Override
+    public void malloc(int capacity) {
+        memory.malloc(capacity);
+    }
+
+    /**
+     * Increase memory allocation while preserving existing allocations data
+     *
+     * @param capacity the number of objects to allocate memory for
+     */
+    @Override
+    public void realloc(int capacity) {
+        memory.realloc(capacity);
+    }
+
+    /**
+     * Get the object stored at the index from memory
+     *
+     * @param index the index in memory
+     * @return the object retrieved
+     */
+    @Override
+    public T get(int index) {
+        return memory.get(index);
+    }
+
+    /**
+     * Store the object in memory at the index
+     *
+     * @param index the index in the block to store
+     * @param o the object to store
+     */
+    @Override
+    public void put(int index, T o) {
+        memory.put(index, o);
+    }
+
+    /**
+     * Replace the object at the index
+     *
+     * @param index the index to replace
+     * @param o the value to replace with
+     * @return the replaced object
+     */
+    @Override
+    public T replace(int index, T o) {
+        return memory.replace(index, o);
+    }
+
+    /**
+     * Remove the object at the index
+     *
+     * @param index the index to remove
+     * @return the removed object
+     */
+    @Override
+    public T remove(int index) {
+        return memory.remove(index);
+    }
+
+    /**
+     * Release allocated memory by resetting the arena
+     */
+    @Override
+    public void free() {
+        memory.free();
+        arena.reset();
+    }
+
+    /**
+     * Swap the objects at the two indexes in memory
+     *
+     * @param indexA the index of the first object
+     * @param indexB the index of the second object
+     */
+    @Override
+    public void swap(int indexA, int indexB) {
+        memory.swap(indexA, indexB);
+    }
+
+    /**
+     * Copy the object from one index in memory to another
+     *
+     * @param indexA the index of the object to copy
+     * @param indexB the index to copy the object to
+     */
+    @Override
+    public void copy(int indexA, int indexB) {
+        memory.copy(indexA, indexB);
+    }
+
+    /**
+     * Number of blocks allocated in memory
+     *
+     * @return the number of blocks
+     */
+    @Override
+    public int size() {
+        return memory.size();
+    }
+
+    /**
+     * Relocate the objects of a range of indexes next to each other in memory
+     *
+     * @param index the first index to compact
+     * @param count the maximum number of indexes to compact
+     * @return the index after the last one compacted
+     */
+    @Override
+    public int compact(int index, int count) {
+        return memory.compact(index, count);
+    }
+
+    /**
+     * Write the raw memory of the block to a file, replacing it
+     *
+     * @param file the file to write the snapshot to
+     */
+    @Override
+    public void snapshot(Path file) {
+        memory.snapshot(file);
+    }
+}
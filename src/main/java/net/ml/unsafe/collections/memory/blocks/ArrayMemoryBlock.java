@@ -3,11 +3,14 @@ package net.ml.unsafe.collections.memory.blocks;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
+import net.ml.unsafe.collections.memory.AllocationFlags;
 import net.ml.unsafe.collections.memory.Memory;
 import net.ml.unsafe.collections.memory.MemoryFactory;
 import net.ml.unsafe.collections.serialize.ByteSerializer;
 import net.ml.unsafe.collections.serialize.ByteSerializerFactory;
+import net.ml.unsafe.collections.serialize.FixedWidthSerializer;
 
+import java.nio.file.Path;
 import java.util.Optional;
 
 /**
@@ -25,6 +28,7 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
     private Memory memory;
     private int classSize;
     private int capacity;
+    private int allocationFlags;
 
     private long address = -1;
 
@@ -35,7 +39,7 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
      * @param block the memory block to copy
      */
     public ArrayMemoryBlock(ArrayMemoryBlock<T> block) {
-        this(block.classSize, block.capacity, block.serializer, block.memory);
+        this(block.classSize, block.capacity, block.serializer, block.memory, block.allocationFlags);
         copyFrom(block);
     }
 
@@ -47,18 +51,77 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
      * @param serializer byte serializer
      * @param memory the memory wrapper
      */
-    @Builder
     public ArrayMemoryBlock(int classSize, int capacity, ByteSerializer<T> serializer, Memory memory) {
+        this(classSize, capacity, serializer, memory, AllocationFlags.ZEROED);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param classSize number of bytes per object, the width of fixed width serializers when 0
+     * @param capacity number of objects to initially allocate for
+     * @param serializer byte serializer
+     * @param memory the memory wrapper
+     * @param allocationFlags the {@link AllocationFlags} to allocate with, uninitialized when every object is put before read
+     */
+    @Builder
+    public ArrayMemoryBlock(int classSize, int capacity, ByteSerializer<T> serializer, Memory memory, int allocationFlags) {
         this.serializer = Optional.ofNullable(serializer).orElse(ByteSerializerFactory.getSerializer());
         this.memory = Optional.ofNullable(memory).orElse(MemoryFactory.getMemory());
 
         if (classSize < 0)
             throw new IllegalArgumentException("Cannot allocate negative memory for an object: " + classSize);
 
-        this.classSize = classSize;
+        //fixed width objects take exactly their width unless given a size
+        this.classSize = classSize == 0 && this.serializer instanceof FixedWidthSerializer ?
+                ((FixedWidthSerializer<T>) this.serializer).width() :
+                classSize;
+        this.allocationFlags = allocationFlags;
         malloc(capacity);
     }
 
+    /**
+     * Restore a block from a snapshot
+     *
+     * The block is allocated uninitialized and filled straight from a mapping of the file
+     *
+     * @param file the snapshot file
+     * @param serializer byte serializer, must be the serializer the snapshot was taken with
+     * @param memory the memory wrapper
+     * @param <T> the classType of object to store
+     * @return the restored block
+     *
+     * @throws IllegalArgumentException the snapshot was taken with a different serializer
+     * @throws java.io.UncheckedIOException unable to read the snapshot
+     */
+    public static <T> ArrayMemoryBlock<T> restore(Path file, ByteSerializer<T> serializer, Memory memory) {
+        ByteSerializer<T> restoreSerializer = Optional.ofNullable(serializer).orElse(ByteSerializerFactory.getSerializer());
+        MemoryBlockSnapshot.Header header = MemoryBlockSnapshot.readHeader(file);
+
+        if (!header.getSerializerId().equals(restoreSerializer.id()))
+            throw new IllegalArgumentException("Snapshot taken with serializer " + header.getSerializerId() +
+                    " cannot be restored with " + restoreSerializer.id());
+
+        ArrayMemoryBlock<T> block = new ArrayMemoryBlock<>(header.getClassSize(), header.getCapacity(),
+                restoreSerializer, memory, header.getCapacity() > 0 ? AllocationFlags.UNINITIALIZED : AllocationFlags.ZEROED);
+        MemoryBlockSnapshot.read(file, header, block.memory, block.address);
+        return block;
+    }
+
+    /**
+     * Write the raw memory of the block to a file, replacing it
+     *
+     * @param file the file to write the snapshot to
+     *
+     * @throws java.io.UncheckedIOException unable to write the snapshot
+     */
+    @Override
+    public void snapshot(Path file) {
+        MemoryBlockSnapshot.Header header = new MemoryBlockSnapshot.Header(classSize,
+                address == -1 ? 0 : capacity, serializer.id());
+        MemoryBlockSnapshot.write(file, header, memory, address);
+    }
+
     /**
      * Allocate memory for n objects
      *
@@ -76,7 +139,7 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
         if (address != -1) free();
 
         int threshold = capacity > 0 ? capacity : DEFAULT_INIT_CAPACITY;
-        address = memory.malloc(threshold * classSize);
+        address = memory.malloc(threshold * classSize, allocationFlags);
 
         this.capacity = threshold;
     }
@@ -95,8 +158,8 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
         if (capacity > MAXIMUM_CAPACITY) throw new OutOfMemoryError();
 
         address = (address == -1) ?
-                memory.malloc(capacity * classSize) :
-                memory.realloc(address, this.capacity * classSize, capacity * classSize);
+                memory.malloc(capacity * classSize, allocationFlags) :
+                memory.realloc(address, this.capacity * classSize, capacity * classSize, allocationFlags);
         this.capacity = capacity;
     }
 
@@ -120,9 +183,7 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
      */
     @Override
     public void swap(int indexA, int indexB) {
-        T tmp = get(indexB);
-        put(indexB, get(indexA));
-        put(indexA, tmp);
+        memory.swap(getMemoryAddress(indexA), getMemoryAddress(indexB), classSize);
     }
 
     /**
@@ -133,7 +194,7 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
      */
     @Override
     public void copy(int indexA, int indexB) {
-        put(indexB, get(indexA));
+        memory.copy(getMemoryAddress(indexA), getMemoryAddress(indexB), classSize);
     }
 
     /**
@@ -144,8 +205,7 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
      */
     @Override
     public T get(int index) {
-        byte[] bytes = memory.get(getMemoryAddress(index), classSize);
-        return serializer.deserialize(bytes);
+        return serializer.deserializeFrom(memory, getMemoryAddress(index), classSize);
     }
 
     /**
@@ -153,10 +213,13 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
      *
      * @param index the index in the block to store
      * @param o the object to store
+     *
+     * @throws IllegalArgumentException the serialized object is larger than the class size
      */
     @Override
     public void put(int index, T o) {
-        memory.put(getMemoryAddress(index), serializer.serialize(o));
+        if (serializer.serializeTo(o, memory, getMemoryAddress(index), classSize) < 0)
+            throw new IllegalArgumentException("Object does not fit in " + classSize + " bytes: " + o);
     }
 
     /**
@@ -201,7 +264,7 @@ public final class ArrayMemoryBlock<T> extends AbstractMemoryBlock<T> implements
      * @param index the index of the object
      * @return the memory address of the object
      */
-    private long getMemoryAddress(int index) {
-        return address + index * classSize;
+    long getMemoryAddress(int index) {
+        return address + (long) index * classSize;
     }
 }
@@ -25,8 +25,10 @@ import java.util.stream.IntStream;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class ArrayReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> implements MemoryBlock<T> {
     private Memory memory;
-    private MemoryBlock<Reference> refMemory;
+    private ArrayMemoryBlock<Reference> refMemory;
     private ByteSerializer<T> serializer;
+    private CompactedRegions regions;
+    private ScratchBuffer scratch;
 
     /**
      * Copy constructor
@@ -48,21 +50,30 @@ public final class ArrayReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> i
     public ArrayReferenceMemoryBlock(int capacity, ByteSerializer<T> serializer, Memory memory) {
         this.serializer = Optional.ofNullable(serializer).orElse(ByteSerializerFactory.getSerializer());
         this.memory = Optional.ofNullable(memory).orElse(MemoryFactory.getMemory());
+        this.regions = new CompactedRegions(this.memory);
+        this.scratch = new ScratchBuffer(this.memory);
         //create an inner block with special serializer for references
         this.refMemory = new ArrayMemoryBlock<>(Reference.size(), capacity, new ReferenceSerializer(), this.memory);
     }
 
     /**
      * Release allocated memory from objects and references using unsafe
+     *
+     * Objects are only freed one by one when the memory releases them on free
      */
     @Override
     public void free() {
-        IntStream.range(0, size()).forEach(i -> {
-            Reference ref = refMemory.get(i);
-            if (ref.getAddr() > 0) memory.free(ref.getAddr());
-        });
+        if (memory.releasesOnFree()) {
+            IntStream.range(0, size()).forEach(i -> {
+                long addr = refAddr(i);
+                if (addr > 0) regions.free(addr);
+            });
+        } else {
+            regions.clear();
+        }
 
         refMemory.free();
+        scratch.free();
     }
 
     /**
@@ -84,8 +95,8 @@ public final class ArrayReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> i
      */
     @Override
     public void copy(int indexA, int indexB) {
-        Reference refB = refMemory.get(indexB);
-        if (refB.getAddr() > 0) memory.free(refB.getAddr());
+        long addrB = refAddr(indexB);
+        if (addrB > 0) regions.free(addrB);
 
         put(indexB, get(indexA));
     }
@@ -100,6 +111,19 @@ public final class ArrayReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> i
         return refMemory.size();
     }
 
+    /**
+     * Relocate the objects of a range of indexes into a single allocation in index order
+     *
+     * @param index the first index to compact
+     * @param count the maximum number of indexes to compact
+     * @return the index after the last one compacted
+     */
+    @Override
+    public int compact(int index, int count) {
+        return regions.compact(refMemory.size(), refMemory.getMemoryAddress(index),
+                slot -> slot + Reference.size(), index, count);
+    }
+
     /**
      * Allocate memory for n objects using unsafe
      *
@@ -128,7 +152,7 @@ public final class ArrayReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> i
      */
     @Override
     public T get(int index) {
-        return getFromRef(refMemory.get(index));
+        return getFromRef(refAddr(index), refLength(index));
     }
 
     /**
@@ -139,11 +163,7 @@ public final class ArrayReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> i
      */
     @Override
     public void put(int index, T o) {
-        byte[] bytes = serializer.serialize(o);
-        long addr = memory.malloc(bytes.length);
-        memory.put(addr, bytes);
-
-        refMemory.put(index, new Reference(addr, bytes.length));
+        refMemory.put(index, scratch.write(serializer, o));
     }
 
     /**
@@ -155,12 +175,12 @@ public final class ArrayReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> i
      */
     @Override
     public T replace(int index, T o) {
-        Reference ref = refMemory.get(index);
+        long addr = refAddr(index);
 
-        T old = getFromRef(ref);
+        T old = getFromRef(addr, refLength(index));
         put(index, o);
 
-        if (ref.getAddr() != 0) memory.free(ref.getAddr());
+        if (addr != 0) regions.free(addr);
 
         return old;
     }
@@ -177,15 +197,36 @@ public final class ArrayReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> i
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Read the address of the value from the reference in place
+     *
+     * @param index the index of the reference
+     * @return the address of the value
+     */
+    private long refAddr(int index) {
+        return memory.getLong(refMemory.getMemoryAddress(index));
+    }
+
+    /**
+     * Read the length of the value from the reference in place
+     *
+     * @param index the index of the reference
+     * @return the length of the value in bytes
+     */
+    private int refLength(int index) {
+        return memory.getInt(refMemory.getMemoryAddress(index) + Reference.WORD_SIZE);
+    }
+
     /**
      * Get the value from the reference
      *
-     * @param ref the reference of the value
+     * @param addr the address of the value
+     * @param length the length of the value in bytes
      * @return the value stored at the reference
      */
-    private T getFromRef(Reference ref) {
-        return ref.getAddr() != 0 ?
-                serializer.deserialize(memory.get(ref.getAddr(), ref.getLength())) :
-                null;
+    private T getFromRef(long addr, int length) {
+        if (addr == 0) return null;
+
+        return serializer.deserializeFrom(memory, addr, length);
     }
 }
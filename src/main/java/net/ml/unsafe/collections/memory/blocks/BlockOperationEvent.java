@@ -0,0 +1,32 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight recorder event for a slow memory block operation
+ *
+ * @author micha
+ */
+@Name("net.ml.unsafe.collections.BlockOperation")
+@Label("Block Operation")
+@Category({"Unsafe Collections", "Memory Block"})
+@Description("Memory block operation, including serialization, slower than the threshold")
+@Threshold("1 ms")
+final class BlockOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Block Type")
+    Class<?> blockType;
+
+    @Label("Index")
+    int index;
+
+    @Label("Size")
+    int size;
+}
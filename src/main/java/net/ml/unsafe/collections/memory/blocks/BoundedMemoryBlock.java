@@ -1,5 +1,7 @@
 package net.ml.unsafe.collections.memory.blocks;
 
+import java.nio.file.Path;
+
 /**
  * Decorates memory blocks with safe index boundary checking
  *
@@ -135,6 +137,28 @@ public final class BoundedMemoryBlock<T> extends AbstractMemoryBlock<T> implemen
         return memory.size();
     }
 
+    /**
+     * Relocate the objects of a range of indexes next to each other in memory
+     *
+     * @param index the first index to compact
+     * @param count the maximum number of indexes to compact
+     * @return the index after the last one compacted
+     */
+    @Override
+    public int compact(int index, int count) {
+        return memory.compact(index, count);
+    }
+
+    /**
+     * Write the raw memory of the block to a file, replacing it
+     *
+     * @param file the file to write the snapshot to
+     */
+    @Override
+    public void snapshot(Path file) {
+        memory.snapshot(file);
+    }
+
     /**
      * Check that the index is out of the memory bounds for addition
      *
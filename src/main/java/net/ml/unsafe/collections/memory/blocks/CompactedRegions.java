@@ -0,0 +1,126 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.memory.blocks.models.Reference;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Values of a reference block relocated into contiguous regions
+ *
+ * Compacting moves the values of a range of slots out of their own allocations into a single
+ * region in slot order and rewrites their references. A region is freed once every value moved
+ * into it was freed, so values are freed through here whether or not they were compacted.
+ * Copied along with its block when a block is serialized.
+ *
+ * @author micha
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class CompactedRegions {
+    private static final int MAX_REGION_SIZE = 1 << 30;
+    private static final int SIZE = 0;
+    private static final int LIVE = 1;
+
+    //start address to the size and number of live values of a region
+    private final NavigableMap<Long, int[]> regions = new TreeMap<>();
+    private Memory memory;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory the values are allocated from
+     */
+    CompactedRegions(Memory memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * Free a value, freeing its region if it was the last live value in it
+     *
+     * @param address the address of the value
+     */
+    void free(long address) {
+        Map.Entry<Long, int[]> region = regions.floorEntry(address);
+
+        if (region == null || address >= region.getKey() + region.getValue()[SIZE]) {
+            memory.free(address);
+        } else if (--region.getValue()[LIVE] == 0) {
+            regions.remove(region.getKey());
+            memory.free(region.getKey());
+        }
+    }
+
+    /**
+     * Forget every region without freeing it, for memory released as a whole
+     */
+    void clear() {
+        regions.clear();
+    }
+
+    /**
+     * Relocate the values of a range of slots into a region of their own
+     *
+     * References are read and rewritten in place, walking from the first slot to the next so
+     * each slot is located once whether the references are in an array or a linked list.
+     * Ranges whose values are already contiguous are left in place
+     *
+     * @param size the number of slots
+     * @param slot the address of the reference in the first slot to compact
+     * @param next gives the address of the reference in the slot after a slot
+     * @param from the first slot to compact
+     * @param count the maximum number of slots to compact
+     * @return the slot after the last one compacted
+     */
+    int compact(int size, long slot, LongUnaryOperator next, int from, int count) {
+        int to = (int) Math.min(size, (long) from + count);
+        long[] slots = new long[Math.max(to - from, 0)];
+        boolean contiguous = true;
+        long nextAddr = 0;
+        int regionSize = 0;
+        int end = from;
+
+        for (; end < to; ++end) {
+            long addr = memory.getLong(slot);
+            int length = memory.getInt(slot + Reference.WORD_SIZE);
+
+            if (addr != 0 && length > 0) {
+                if (regionSize > 0 && (long) regionSize + length > MAX_REGION_SIZE) break;
+
+                contiguous &= nextAddr == 0 || addr == nextAddr;
+                nextAddr = addr + length;
+                regionSize += length;
+                slots[end - from] = slot;
+            }
+
+            if (end + 1 < to) slot = next.applyAsLong(slot);
+        }
+
+        if (regionSize == 0 || contiguous) return end;
+
+        long region = memory.malloc(regionSize);
+        long addr = region;
+        int live = 0;
+
+        for (int i = 0; i < end - from; ++i) {
+            if (slots[i] == 0) continue;
+
+            long valueAddr = memory.getLong(slots[i]);
+            int length = memory.getInt(slots[i] + Reference.WORD_SIZE);
+
+            memory.copy(valueAddr, addr, length);
+            memory.putLong(slots[i], addr);
+            free(valueAddr);
+
+            addr += length;
+            ++live;
+        }
+
+        regions.put(region, new int[] { regionSize, live });
+        return end;
+    }
+}
@@ -0,0 +1,200 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import java.nio.file.Path;
+
+/**
+ * Decorates memory blocks with flight recorder events for slow operations
+ *
+ * Allocation and every operation which serializes or deserializes an object is timed,
+ * and committed as an event when slower than the threshold of the recording.
+ * Needs a runtime with flight recorder.
+ *
+ * @author micha
+ * @param <T> the object type to manage in memory
+ */
+public final class FlightRecorderMemoryBlock<T> extends AbstractMemoryBlock<T> implements MemoryBlock<T> {
+    private static final int NO_INDEX = -1;
+
+    private final MemoryBlock<T> memory;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory block
+     */
+    public FlightRecorderMemoryBlock(MemoryBlock<T> memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * Allocate memory for n objects
+     *
+     * @param capacity the number of objects to allocate memory for
+     */
+    @Override
+    public void malloc(int capacity) {
+        BlockOperationEvent event = begin();
+        memory.malloc(capacity);
+        commit(event, "malloc", NO_INDEX);
+    }
+
+    /**
+     * Increase memory allocation while preserving existing allocations data
+     *
+     * @param capacity the number of objects to allocate memory for
+     */
+    @Override
+    public void realloc(int capacity) {
+        BlockOperationEvent event = begin();
+        memory.realloc(capacity);
+        commit(event, "realloc", NO_INDEX);
+    }
+
+    /**
+     * Get the object stored at the index from memory
+     *
+     * @param index the index in memory
+     * @return the object retrieved
+     */
+    @Override
+    public T get(int index) {
+        BlockOperationEvent event = begin();
+        T o = memory.get(index);
+        commit(event, "get", index);
+        return o;
+    }
+
+    /**
+     * Store the object in memory at the index
+     *
+     * @param index the index in the block to store
+     * @param o the object to store
+     */
+    @Override
+    public void put(int index, T o) {
+        BlockOperationEvent event = begin();
+        memory.put(index, o);
+        commit(event, "put", index);
+    }
+
+    /**
+     * Replace the object at the index
+     *
+     * @param index the index to replace
+     * @param o the value to replace with
+     * @return the replaced object
+     */
+    @Override
+    public T replace(int index, T o) {
+        BlockOperationEvent event = begin();
+        T replaced = memory.replace(index, o);
+        commit(event, "replace", index);
+        return replaced;
+    }
+
+    /**
+     * Remove the object at the index
+     *
+     * @param index the index to remove
+     * @return the object removed
+     */
+    @Override
+    public T remove(int index) {
+        BlockOperationEvent event = begin();
+        T removed = memory.remove(index);
+        commit(event, "remove", index);
+        return removed;
+    }
+
+    /**
+     * Release allocated memory
+     */
+    @Override
+    public void free() {
+        memory.free();
+    }
+
+    /**
+     * Swap the objects at the two indexes in memory
+     *
+     * @param indexA the index of the first object
+     * @param indexB the index of the second object
+     */
+    @Override
+    public void swap(int indexA, int indexB) {
+        memory.swap(indexA, indexB);
+    }
+
+    /**
+     * Copy the object from one index in memory to another
+     *
+     * @param indexA the index of the object to copy
+     * @param indexB the index to copy the object to
+     */
+    @Override
+    public void copy(int indexA, int indexB) {
+        memory.copy(indexA, indexB);
+    }
+
+    /**
+     * Number of blocks allocated in memory
+     *
+     * @return the number of blocks
+     */
+    @Override
+    public int size() {
+        return memory.size();
+    }
+
+    /**
+     * Relocate the objects of a range of indexes next to each other in memory
+     *
+     * @param index the first index to compact
+     * @param count the maximum number of indexes to compact
+     * @return the index after the last one compacted
+     */
+    @Override
+    public int compact(int index, int count) {
+        return memory.compact(index, count);
+    }
+
+    /**
+     * Write the raw memory of the block to a file, replacing it
+     *
+     * @param file the file to write the snapshot to
+     */
+    @Override
+    public void snapshot(Path file) {
+        memory.snapshot(file);
+    }
+
+    /**
+     * Start timing an operation
+     *
+     * @return the event of the operation
+     */
+    private static BlockOperationEvent begin() {
+        BlockOperationEvent event = new BlockOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stop timing an operation, committing it if slower than the threshold
+     *
+     * @param event the event of the operation
+     * @param operation the name of the operation
+     * @param index the index of the operation, if any
+     */
+    private void commit(BlockOperationEvent event, String operation, int index) {
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.blockType = memory.getClass();
+            event.index = index;
+            event.size = memory.size();
+            event.commit();
+        }
+    }
+}
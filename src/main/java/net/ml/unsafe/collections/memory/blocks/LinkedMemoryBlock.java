@@ -9,8 +9,11 @@ import net.ml.unsafe.collections.memory.blocks.models.MemoryNode;
 import net.ml.unsafe.collections.memory.blocks.models.SingleLinkedMemoryNode;
 import net.ml.unsafe.collections.serialize.ByteSerializer;
 import net.ml.unsafe.collections.serialize.ByteSerializerFactory;
+import net.ml.unsafe.collections.serialize.FixedWidthSerializer;
+import net.ml.unsafe.collections.util.ThreadLocalBytes;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.stream.IntStream;
@@ -18,6 +21,8 @@ import java.util.stream.IntStream;
 /**
  * Manages chunks of memory linked as nodes
  *
+ * Nodes are allocated from a pool of contiguous node pages owned by the block
+ *
  * @author micha
  * @param <T> the classType of object to store
  */
@@ -29,7 +34,8 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
     private final MemoryNode<T> head = new SingleLinkedMemoryNode<>();
     private MemoryNode<T> tail = head;
 
-    private ByteSerializer<MemoryNode<T>> nodeSerializer;
+    private NodeSerializer nodeSerializer;
+    private NodePool nodePool;
     private ByteSerializer<T> serializer;
     private Memory memory;
     private int classSize;
@@ -63,6 +69,7 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
 
         this.classSize = classSize;
         nodeSerializer = new NodeSerializer();
+        nodePool = new NodePool(this.memory, ADDRESSES + classSize);
 
         if (capacity > 0) malloc(capacity);
     }
@@ -112,7 +119,7 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
             return;
         }
 
-        long addr = memory.malloc(ADDRESSES + classSize);
+        long addr = nodePool.malloc();
 
         MemoryNode<T> prev = getUnboundable(index - 1);
         MemoryNode<T> node = new SingleLinkedMemoryNode<>(addr, prev.getNext(), o);
@@ -153,29 +160,26 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
         MemoryNode<T> prev = getUnboundable(index - 1);
         MemoryNode<T> node = next(prev);
 
-        memory.free(node.getAddr());
+        nodePool.free(node.getAddr());
 
         prev.setNext(node.getNext());
         if (index != 0) {
             memory.put(prev.getAddr(), nodeSerializer.serialize(prev));
         }
 
-        --size;
+        if (--size == index) tail = prev;
         return node.getValue();
     }
 
     /**
-     * Release allocated nodes
+     * Release allocated nodes by releasing their pages
      */
     @Override
     public void free() {
-        MemoryNode<T> node = head;
-
-        for (int i = 0; i < size; ++i) {
-            node = next(node);
-            if (node.getAddr() > 0) memory.free(node.getAddr());
-        }
+        nodePool.freeAll();
 
+        head.setNext(0);
+        tail = head;
         size = 0;
     }
 
@@ -221,20 +225,48 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
     private void insertAtEnd(T val) {
         MemoryNode<T> node = new SingleLinkedMemoryNode<>(0, 0, val);
 
-        long addr = memory.malloc(ADDRESSES + classSize);
+        long addr = nodePool.malloc();
 
         node.setAddr(addr);
         memory.put(addr, nodeSerializer.serialize(node));
 
+        //only relink the tail, its value may have been replaced since it was read
         tail.setNext(addr);
         if (!isEmpty()) {
-            memory.put(tail.getAddr(), nodeSerializer.serialize(tail));
+            memory.putLong(tail.getAddr() + WORD_SIZE, addr);
         }
 
         ++size;
         tail = node;
     }
 
+    /**
+     * Get the memory address of the value of the node at the index, walking the links only
+     *
+     * @param index the index of the node
+     * @return the memory address of the value
+     */
+    long getMemoryAddress(int index) {
+        long addr = head.getNext();
+
+        for (int i = 0; i < index; ++i) {
+            addr = memory.getLong(addr + WORD_SIZE);
+        }
+
+        return addr + ADDRESSES;
+    }
+
+    /**
+     * Get the memory address of the value of the node after the node of a value
+     *
+     * @param valueAddress the memory address of the value
+     * @return the memory address of the next value, or 0 after the tail
+     */
+    long nextMemoryAddress(long valueAddress) {
+        long next = memory.getLong(valueAddress - ADDRESSES + WORD_SIZE);
+        return next == 0 ? 0 : next + ADDRESSES;
+    }
+
     /**
      * Check if the list is empty
      *
@@ -268,8 +300,7 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
      * @return the next node
      */
     private MemoryNode<T> next(MemoryNode<T> node) {
-        byte[] bytes = memory.get(node.getNext(), ADDRESSES + classSize);
-        return nodeSerializer.deserialize(bytes);
+        return nodeSerializer.read(node.getNext());
     }
 
     /**
@@ -278,7 +309,7 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
      * @author micha
      */
     private final class NodeSerializer implements ByteSerializer<MemoryNode<T>> {
-        private final ByteBuffer byteBuffer = ByteBuffer.allocate(ADDRESSES + classSize);
+        private final ByteBuffer byteBuffer = ByteBuffer.allocate(ADDRESSES + classSize).order(ByteOrder.nativeOrder());
 
         /**
          * Serialize the node into a byte array
@@ -291,7 +322,12 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
             byteBuffer.clear();
             byteBuffer.putLong(input.getAddr());
             byteBuffer.putLong(input.getNext());
-            byteBuffer.put(serializer.serialize(input.getValue()));
+            //fixed width serializers reject the nulls nodes are padded with, so their values are left zeroed
+            if (input.getValue() == null && serializer instanceof FixedWidthSerializer) {
+                byteBuffer.put(new byte[classSize]);
+            } else {
+                byteBuffer.put(serializer.serialize(input.getValue()));
+            }
 
             return byteBuffer.array();
         }
@@ -304,13 +340,27 @@ public final class LinkedMemoryBlock<T> extends AbstractMemoryBlock<T> implement
          */
         @Override
         public MemoryNode<T> deserialize(byte[] output) {
-            byte[] addresses = Arrays.copyOfRange(output, 0, ADDRESSES);
-            byte[] bytes = Arrays.copyOfRange(output, ADDRESSES, output.length);
-            byteBuffer.clear();
-            byteBuffer.put(addresses);
-            T val = serializer.deserialize(bytes);
+            ByteBuffer addresses = ByteBuffer.wrap(output, 0, ADDRESSES).order(ByteOrder.nativeOrder());
+            T val = serializer.deserialize(Arrays.copyOfRange(output, ADDRESSES, output.length));
+
+            return new SingleLinkedMemoryNode<>(addresses.getLong(0), addresses.getLong(WORD_SIZE), val);
+        }
 
-            return new SingleLinkedMemoryNode<>(byteBuffer.getLong(0), byteBuffer.getLong(WORD_SIZE), val);
+        /**
+         * Read a node straight out of memory
+         * decoding the addresses in place and the value from a thread local buffer
+         *
+         * @param address the address of the node
+         * @return the node read
+         */
+        MemoryNode<T> read(long address) {
+            byte[] bytes = ThreadLocalBytes.get(classSize);
+            memory.get(address + ADDRESSES, bytes, 0, classSize);
+
+            return new SingleLinkedMemoryNode<>(
+                    memory.getLong(address),
+                    memory.getLong(address + WORD_SIZE),
+                    serializer.deserialize(bytes));
         }
     }
 }
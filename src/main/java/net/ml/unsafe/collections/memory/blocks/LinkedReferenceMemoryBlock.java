@@ -25,8 +25,14 @@ import java.util.stream.IntStream;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class LinkedReferenceMemoryBlock<T> extends AbstractMemoryBlock<T> implements MemoryBlock<T> {
     private Memory memory;
-    private MemoryBlock<Reference> refMemory;
+    private LinkedMemoryBlock<Reference> refMemory;
     private ByteSerializer<T> serializer;
+    private CompactedRegions regions;
+    private ScratchBuffer scratch;
+
+    //slot of the index the last compaction started at, so the next step walks on from it
+    private int cursorIndex = -1;
+    private long cursorSlot;
 
     /**
      * Copy constructor
@@ -47,21 +53,31 @@ public final class LinkedReferenceMemoryBlock<T> extends AbstractMemoryBlock<T>
     public LinkedReferenceMemoryBlock(int capacity, ByteSerializer<T> serializer, Memory memory) {
         this.serializer = Optional.ofNullable(serializer).orElse(ByteSerializerFactory.getSerializer());
         this.memory = Optional.ofNullable(memory).orElse(MemoryFactory.getMemory());
+        this.regions = new CompactedRegions(this.memory);
+        this.scratch = new ScratchBuffer(this.memory);
         //create an inner block with special serializer for references
         this.refMemory = new LinkedMemoryBlock<>(Reference.size(), capacity, new ReferenceSerializer(), this.memory);
     }
 
     /**
      * Release allocated memory from objects and references using unsafe
+     *
+     * Objects are only freed one by one when the memory releases them on free
      */
     @Override
     public void free() {
-        IntStream.range(0, size()).forEach(i -> {
-            Reference ref = refMemory.get(i);
-            if (ref.getAddr() > 0) memory.free(ref.getAddr());
-        });
+        if (memory.releasesOnFree()) {
+            IntStream.range(0, size()).forEach(i -> {
+                Reference ref = refMemory.get(i);
+                if (ref.getAddr() > 0) regions.free(ref.getAddr());
+            });
+        } else {
+            regions.clear();
+        }
 
         refMemory.free();
+        scratch.free();
+        cursorIndex = -1;
     }
 
     /**
@@ -97,6 +113,29 @@ public final class LinkedReferenceMemoryBlock<T> extends AbstractMemoryBlock<T>
         return refMemory.size();
     }
 
+    /**
+     * Relocate the objects of a range of indexes into a single allocation in index order
+     *
+     * @param index the first index to compact
+     * @param count the maximum number of indexes to compact
+     * @return the index after the last one compacted
+     */
+    @Override
+    public int compact(int index, int count) {
+        if (index >= refMemory.size()) return index;
+
+        if (cursorIndex < 0 || cursorIndex > index) {
+            cursorSlot = refMemory.getMemoryAddress(index);
+        } else {
+            for (int i = cursorIndex; i < index; ++i) {
+                cursorSlot = refMemory.nextMemoryAddress(cursorSlot);
+            }
+        }
+
+        cursorIndex = index;
+        return regions.compact(refMemory.size(), cursorSlot, refMemory::nextMemoryAddress, index, count);
+    }
+
     /**
      * Allocate memory for n objects using unsafe
      *
@@ -105,6 +144,7 @@ public final class LinkedReferenceMemoryBlock<T> extends AbstractMemoryBlock<T>
     @Override
     public void malloc(int capacity) {
         refMemory.malloc(capacity);
+        cursorIndex = -1;
     }
 
     /**
@@ -136,11 +176,8 @@ public final class LinkedReferenceMemoryBlock<T> extends AbstractMemoryBlock<T>
      */
     @Override
     public void put(int index, T o) {
-        byte[] bytes = serializer.serialize(o);
-        long addr = memory.malloc(bytes.length);
-        memory.put(addr, bytes);
-
-        refMemory.put(index, new Reference(addr, bytes.length));
+        refMemory.put(index, scratch.write(serializer, o));
+        if (index <= cursorIndex) cursorIndex = -1;
     }
 
     /**
@@ -155,12 +192,9 @@ public final class LinkedReferenceMemoryBlock<T> extends AbstractMemoryBlock<T>
         Reference ref = refMemory.get(index);
         T old = getFromRef(ref);
 
-        byte[] bytes = serializer.serialize(o);
-        long addr = memory.malloc(bytes.length);
-        memory.put(addr, bytes);
-        refMemory.replace(index, new Reference(addr, bytes.length));
+        refMemory.replace(index, scratch.write(serializer, o));
 
-        if (ref.getAddr() > 0) memory.free(ref.getAddr());
+        if (ref.getAddr() > 0) regions.free(ref.getAddr());
 
         return old;
     }
@@ -176,7 +210,8 @@ public final class LinkedReferenceMemoryBlock<T> extends AbstractMemoryBlock<T>
         T old = get(index);
 
         Reference ref = refMemory.remove(index);
-        memory.free(ref.getAddr());
+        regions.free(ref.getAddr());
+        if (index <= cursorIndex) cursorIndex = -1;
 
         return old;
     }
@@ -188,8 +223,8 @@ public final class LinkedReferenceMemoryBlock<T> extends AbstractMemoryBlock<T>
      * @return the value stored at the reference
      */
     private T getFromRef(Reference ref) {
-        return ref.getAddr() != 0 ?
-                serializer.deserialize(memory.get(ref.getAddr(), ref.getLength())) :
-                null;
+        if (ref.getAddr() == 0) return null;
+
+        return serializer.deserializeFrom(memory, ref.getAddr(), ref.getLength());
     }
 }
@@ -1,5 +1,6 @@
 package net.ml.unsafe.collections.memory.blocks;
 
+import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.function.Consumer;
@@ -88,6 +89,30 @@ public interface MemoryBlock<T> extends Iterable<T>, AutoCloseable {
      */
     int size();
 
+    /**
+     * Relocate the objects of a range of indexes next to each other in memory
+     *
+     * Bounds the work of a single call so compaction can run in steps alongside other
+     * operations, blocks without separately allocated objects have nothing to compact.
+     *
+     * @param index the first index to compact
+     * @param count the maximum number of indexes to compact
+     * @return the index after the last one compacted
+     */
+    default int compact(int index, int count) {
+        return size();
+    }
+
+    /**
+     * Write the raw memory of the block to a file, replacing it
+     *
+     * @param file the file to write the snapshot to
+     * @throws UnsupportedOperationException the block cannot be snapshot
+     */
+    default void snapshot(Path file) {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Frees memory when used in try with resources
      */
@@ -4,40 +4,60 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import net.ml.unsafe.collections.memory.ArenaMemory;
 import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.memory.MemoryFactory;
+import net.ml.unsafe.collections.serialize.BooleanSerializer;
 import net.ml.unsafe.collections.serialize.ByteSerializer;
-
+import net.ml.unsafe.collections.serialize.CharSerializer;
+import net.ml.unsafe.collections.serialize.DoubleSerializer;
+import net.ml.unsafe.collections.serialize.FixedWidthSerializer;
+import net.ml.unsafe.collections.serialize.FloatSerializer;
+import net.ml.unsafe.collections.serialize.IntSerializer;
+import net.ml.unsafe.collections.serialize.KryoSerializer;
+import net.ml.unsafe.collections.serialize.LongSerializer;
+import net.ml.unsafe.collections.serialize.ShortSerializer;
+import net.ml.unsafe.collections.serialize.struct.StructSerializer;
+
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class MemoryBlockBuilder {
-    private static final Map<Class, Integer> primitives = new HashMap<>();
+    private static final Map<Class, Supplier<FixedWidthSerializer<?>>> primitives = new HashMap<>();
 
     static {
-        primitives.put(int.class, Integer.BYTES);
-        primitives.put(char.class, Character.BYTES);
-        primitives.put(boolean.class, 1);
-        primitives.put(long.class, Long.BYTES);
-        primitives.put(double.class, Double.BYTES);
-        primitives.put(float.class, Float.BYTES);
-        primitives.put(short.class, Short.BYTES);
-        primitives.put(Integer.class, Integer.BYTES);
-        primitives.put(Character.class, Character.BYTES);
-        primitives.put(Boolean.class, 1);
-        primitives.put(Long.class, Long.BYTES);
-        primitives.put(Double.class, Double.BYTES);
-        primitives.put(Float.class, Float.BYTES);
-        primitives.put(Short.class, Short.BYTES);
+        primitives.put(int.class, IntSerializer::new);
+        primitives.put(char.class, CharSerializer::new);
+        primitives.put(boolean.class, BooleanSerializer::new);
+        primitives.put(long.class, LongSerializer::new);
+        primitives.put(double.class, DoubleSerializer::new);
+        primitives.put(float.class, FloatSerializer::new);
+        primitives.put(short.class, ShortSerializer::new);
+        primitives.put(Integer.class, IntSerializer::new);
+        primitives.put(Character.class, CharSerializer::new);
+        primitives.put(Boolean.class, BooleanSerializer::new);
+        primitives.put(Long.class, LongSerializer::new);
+        primitives.put(Double.class, DoubleSerializer::new);
+        primitives.put(Float.class, FloatSerializer::new);
+        primitives.put(Short.class, ShortSerializer::new);
     }
 
     private static <T> boolean isPrimitive(Class<T> type) {
         return primitives.containsKey(type);
     }
 
-    private static <T> int sizeOfPrimitive(Class<T> type) {
-        return primitives.get(type);
+    private static <T> boolean isFinal(Class<T> type) {
+        return Modifier.isFinal(type.getModifiers());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> FixedWidthSerializer<T> serializerOfPrimitive(Class<T> type) {
+        return (FixedWidthSerializer<T>) primitives.get(type).get();
     }
 
     public static <T> Builder<T> builder() {
@@ -53,28 +73,59 @@ public final class MemoryBlockBuilder {
         transient private boolean linked;
         transient private boolean concurrent;
         transient private boolean bounded;
+        transient private boolean recorded;
+        transient private boolean reclaimable;
+        transient private boolean arena;
+        //applied to blocks of fixed size objects only, references must start zeroed
+        transient private int allocationFlags;
         transient private Memory memory;
         transient private ByteSerializer<T> serializer;
 
         public MemoryBlock<T> build() {
-            if (Objects.nonNull(classType) && isPrimitive(classType))
-                classSize = sizeOfPrimitive(classType);
+            //primitives are stored in their exact width unless given a serializer of their own
+            if (Objects.nonNull(classType) && isPrimitive(classType)) {
+                FixedWidthSerializer<T> primitive = serializerOfPrimitive(classType);
+                if (Objects.isNull(serializer)) serializer = primitive;
+                classSize = serializer instanceof FixedWidthSerializer ?
+                        ((FixedWidthSerializer<T>) serializer).width() :
+                        primitive.width();
+            } else if (Objects.nonNull(classType) && StructSerializer.isStruct(classType)) {
+                //structs are stored in the exact width of their layout
+                if (Objects.isNull(serializer)) serializer = new StructSerializer<>(classType);
+                if (serializer instanceof FixedWidthSerializer) classSize = ((FixedWidthSerializer<T>) serializer).width();
+            } else if (Objects.nonNull(classType) && Objects.isNull(serializer) && isFinal(classType)) {
+                //final classes cannot hold subclasses, so objects are written without their class
+                serializer = KryoSerializer.<T>builder().type(classType).build();
+            }
+
+            //frees what the block still holds once it is dropped without being freed
+            Memory blockMemory = reclaimable ?
+                    MemoryReclaimer.reclaimable(Optional.ofNullable(memory).orElse(MemoryFactory.getMemory())) :
+                    memory;
+            //releases every object at once when the block is freed
+            ArenaMemory arenaMemory = arena ?
+                    new ArenaMemory(Optional.ofNullable(blockMemory).orElse(MemoryFactory.getMemory())) :
+                    null;
+            Memory objectMemory = arena ? arenaMemory : blockMemory;
 
             MemoryBlock<T> block = linked ?
                     classSize != 0 ?
-                        createLinkedBlock() :
-                        createLinkedReferenceBlock() :
+                        createLinkedBlock(objectMemory) :
+                        createLinkedReferenceBlock(objectMemory) :
                     classSize != 0 ?
-                        createArrayBlock() :
-                        createArrayReferenceBlock();
+                        createArrayBlock(objectMemory) :
+                        createArrayReferenceBlock(objectMemory);
 
+            if (arena) block = new ArenaMemoryBlock<>(block, arenaMemory);
             if (bounded) block = new BoundedMemoryBlock<>(block);
+            if (recorded) block = new FlightRecorderMemoryBlock<>(block);
             if (concurrent) block = new ReadWriteLockMemoryBlock<>(block);
+            if (reclaimable) block = MemoryReclaimer.register(block, blockMemory);
 
             return block;
         }
 
-        private LinkedReferenceMemoryBlock<T> createLinkedReferenceBlock() {
+        private LinkedReferenceMemoryBlock<T> createLinkedReferenceBlock(Memory memory) {
             return LinkedReferenceMemoryBlock.<T>builder()
                 .capacity(capacity)
                 .serializer(serializer)
@@ -82,7 +133,7 @@ public final class MemoryBlockBuilder {
                 .build();
         }
 
-        private ArrayReferenceMemoryBlock<T> createArrayReferenceBlock() {
+        private ArrayReferenceMemoryBlock<T> createArrayReferenceBlock(Memory memory) {
             return ArrayReferenceMemoryBlock.<T>builder()
                 .capacity(capacity)
                 .serializer(serializer)
@@ -90,16 +141,17 @@ public final class MemoryBlockBuilder {
                 .build();
         }
 
-        private ArrayMemoryBlock<T> createArrayBlock() {
+        private ArrayMemoryBlock<T> createArrayBlock(Memory memory) {
             return ArrayMemoryBlock.<T>builder()
                 .classSize(classSize)
                 .capacity(capacity)
                 .serializer(serializer)
                 .memory(memory)
+                .allocationFlags(allocationFlags)
                 .build();
         }
 
-        private LinkedMemoryBlock<T> createLinkedBlock() {
+        private LinkedMemoryBlock<T> createLinkedBlock(Memory memory) {
             return LinkedMemoryBlock.<T>builder()
                 .classSize(classSize)
                 .capacity(capacity)
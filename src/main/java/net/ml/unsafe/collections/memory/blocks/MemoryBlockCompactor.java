@@ -0,0 +1,90 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts a memory block in bounded steps
+ *
+ * Every step compacts the next range of indexes of the block, starting over from the first
+ * index once the end is reached, so each pause is bounded by the step size rather than the size
+ * of the block. Steps can be run by hand or scheduled on an executor, blocks compacted in the
+ * background must be thread safe.
+ *
+ * @author micha
+ */
+public final class MemoryBlockCompactor implements Runnable {
+    public static final int DEFAULT_STEP_SIZE = 1024;
+
+    private final MemoryBlock<?> block;
+    private final int stepSize;
+
+    private int index;
+
+    /**
+     * Constructor
+     *
+     * @param block the block to compact
+     */
+    public MemoryBlockCompactor(MemoryBlock<?> block) {
+        this(block, DEFAULT_STEP_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param block the block to compact
+     * @param stepSize the maximum number of indexes compacted per step
+     */
+    public MemoryBlockCompactor(MemoryBlock<?> block, int stepSize) {
+        if (stepSize <= 0)
+            throw new IllegalArgumentException("Step size must be positive: " + stepSize);
+
+        this.block = block;
+        this.stepSize = stepSize;
+    }
+
+    /**
+     * Compact the next range of indexes
+     *
+     * @return whether or not the end of the block was reached
+     */
+    public synchronized boolean step() {
+        index = block.compact(index, stepSize);
+
+        if (index >= block.size()) {
+            index = 0;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Compact the remaining indexes up to the end of the block
+     */
+    public void compact() {
+        while (!step());
+    }
+
+    /**
+     * Compact a step, used when scheduled
+     */
+    @Override
+    public void run() {
+        step();
+    }
+
+    /**
+     * Run a step of compaction periodically
+     *
+     * @param executor the executor to run the steps on
+     * @param delay the delay between the end of a step and the start of the next
+     * @param unit the unit of the delay
+     * @return the scheduled compaction, cancel to stop compacting
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor, long delay, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(this, delay, delay, unit);
+    }
+}
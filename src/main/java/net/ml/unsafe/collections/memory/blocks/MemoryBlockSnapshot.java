@@ -0,0 +1,193 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Raw snapshot of the memory of a block in a file
+ *
+ * The file starts with a header holding the class size, capacity and serializer id of the
+ * block followed by the bytes of the block exactly as they are in memory. Snapshots are
+ * written with bulk channel writes through a direct buffer and restored by mapping the file
+ * and copying straight out of the mapping, so neither side deserializes any object.
+ *
+ * @author micha
+ */
+final class MemoryBlockSnapshot {
+    private MemoryBlockSnapshot() {}
+
+    private static final int MAGIC = 0x554D424B;
+    private static final int VERSION = 1;
+    //magic, version, class size, capacity and serializer id length
+    private static final int FIXED_HEADER = 4 * Integer.BYTES + Short.BYTES;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_MAPPING = 1 << 30;
+
+    /**
+     * Write the memory of a block to a file, replacing it
+     *
+     * @param file the file to write
+     * @param header the header describing the block
+     * @param memory the memory of the block
+     * @param address the address of the block
+     */
+    static void write(Path file, Header header, Memory memory, long address) {
+        byte[] id = header.getSerializerId().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer head = ByteBuffer.allocate(FIXED_HEADER + id.length)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(header.getClassSize())
+                .putInt(header.getCapacity())
+                .putShort((short) id.length)
+                .put(id);
+        head.flip();
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, head);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long size = header.size();
+
+            for (long offset = 0; offset < size; offset += buffer.capacity()) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), size - offset));
+                memory.get(address + offset, buffer);
+                buffer.flip();
+                writeFully(channel, buffer);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Read the header of a snapshot
+     *
+     * @param file the snapshot file
+     * @return the header
+     */
+    static Header readHeader(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = readFully(channel, FIXED_HEADER);
+
+            if (head.getInt() != MAGIC)
+                throw new IOException("Not a memory block snapshot: " + file);
+
+            int version = head.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+
+            int classSize = head.getInt();
+            int capacity = head.getInt();
+            byte[] id = new byte[head.getShort() & 0xFFFF];
+            readFully(channel, id.length).get(id);
+
+            Header header = new Header(classSize, capacity, new String(id, StandardCharsets.UTF_8));
+
+            if (channel.size() != header.offset() + header.size())
+                throw new IOException("Truncated snapshot, expected " + header.size() + " bytes of data: " + file);
+
+            return header;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Copy the data of a snapshot into memory by mapping the file
+     *
+     * @param file the snapshot file
+     * @param header the header of the snapshot
+     * @param memory the memory to copy to
+     * @param address the address to copy to
+     */
+    static void read(Path file, Header header, Memory memory, long address) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = header.size();
+
+            for (long offset = 0; offset < size; offset += MAX_MAPPING) {
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY,
+                        header.offset() + offset, Math.min(MAX_MAPPING, size - offset));
+                memory.put(address + offset, mapping);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Write the remaining bytes of a buffer
+     *
+     * @param channel the channel to write to
+     * @param buffer the bytes to write
+     * @throws IOException unable to write
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read a number of bytes
+     *
+     * @param channel the channel to read from
+     * @param length the number of bytes to read
+     * @return the bytes read, flipped for reading
+     * @throws IOException unable to read or the channel ends first
+     */
+    private static ByteBuffer readFully(FileChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new IOException("Truncated snapshot header");
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Describes the block a snapshot was taken of
+     *
+     * @author micha
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Header {
+        private final int classSize;
+        private final int capacity;
+        private final String serializerId;
+
+        /**
+         * Get the number of bytes of data
+         *
+         * @return the number of bytes
+         */
+        long size() {
+            return (long) classSize * capacity;
+        }
+
+        /**
+         * Get the position of the data in the file
+         *
+         * @return the number of bytes before the data
+         */
+        long offset() {
+            return FIXED_HEADER + serializerId.getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ml.unsafe.collections.memory.AllocationFlags;
+import net.ml.unsafe.collections.memory.ForwardingMemory;
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Frees the memory of blocks which became unreachable without being freed
+ *
+ * A reclaimable block allocates through memory of its own which keeps every live allocation of
+ * the block. The block is registered with a phantom reference holding only that memory, so once
+ * the garbage collector finds the block unreachable a daemon thread frees whatever the block
+ * still had allocated. Counters tell how much memory was reclaimed this way versus freed
+ * explicitly, a growing reclaimed count points at blocks which should have been closed.
+ *
+ * Owners of blocks which cannot be reclaimable themselves, such as collections nesting blocks,
+ * register an action freeing their blocks instead, which is counted as a reclaimed block.
+ *
+ * @author micha
+ */
+@Slf4j
+public final class MemoryReclaimer {
+    private MemoryReclaimer() {}
+
+    private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    //keeps the phantom references reachable until they are processed
+    private static final Set<BlockReference> references = ConcurrentHashMap.newKeySet();
+
+    private static final LongAdder reclaimedBlocks = new LongAdder();
+    private static final LongAdder reclaimedAllocations = new LongAdder();
+    private static final LongAdder reclaimedBytes = new LongAdder();
+    private static final LongAdder freedAllocations = new LongAdder();
+    private static final LongAdder freedBytes = new LongAdder();
+
+    static {
+        Thread thread = new Thread(MemoryReclaimer::run, "memory-reclaimer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Get the number of unreachable blocks which were reclaimed
+     *
+     * @return the number of blocks
+     */
+    public static long reclaimedBlocks() {
+        return reclaimedBlocks.sum();
+    }
+
+    /**
+     * Get the number of allocations freed because their block became unreachable
+     *
+     * @return the number of allocations
+     */
+    public static long reclaimedAllocations() {
+        return reclaimedAllocations.sum();
+    }
+
+    /**
+     * Get the number of bytes freed because their block became unreachable
+     *
+     * @return the number of bytes
+     */
+    public static long reclaimedBytes() {
+        return reclaimedBytes.sum();
+    }
+
+    /**
+     * Get the number of allocations of reclaimable blocks freed explicitly
+     *
+     * @return the number of allocations
+     */
+    public static long freedAllocations() {
+        return freedAllocations.sum();
+    }
+
+    /**
+     * Get the number of bytes of reclaimable blocks freed explicitly
+     *
+     * @return the number of bytes
+     */
+    public static long freedBytes() {
+        return freedBytes.sum();
+    }
+
+    /**
+     * Reclaim the blocks already found unreachable without waiting for the daemon thread
+     *
+     * @return the number of blocks reclaimed
+     */
+    public static int reclaim() {
+        int reclaimed = 0;
+
+        for (Reference<?> ref = queue.poll(); ref != null; ref = queue.poll()) {
+            ((BlockReference) ref).reclaim();
+            ++reclaimed;
+        }
+
+        return reclaimed;
+    }
+
+    /**
+     * Wrap memory so the allocations made through it can be reclaimed
+     *
+     * @param memory the memory to allocate from
+     * @return the memory to build the block with
+     */
+    static Memory reclaimable(Memory memory) {
+        return new ReclaimableMemory(memory);
+    }
+
+    /**
+     * Register a block to be reclaimed once unreachable
+     *
+     * @param block the outermost block handed out
+     * @param memory the memory the block was built with, from {@link #reclaimable(Memory)}
+     * @param <T> the object type of the block
+     * @return the block
+     */
+    static <T> MemoryBlock<T> register(MemoryBlock<T> block, Memory memory) {
+        references.add(new BlockReference(block, ((ReclaimableMemory) memory)::reclaim));
+        return block;
+    }
+
+    /**
+     * Register an action freeing the blocks of an owner once the owner is unreachable
+     *
+     * The action must not reference the owner, or the owner never becomes unreachable
+     *
+     * @param owner the object owning the blocks
+     * @param action the action freeing the blocks
+     */
+    public static void register(Object owner, Runnable action) {
+        references.add(new BlockReference(owner, () -> {
+            action.run();
+            return 1;
+        }));
+    }
+
+    /**
+     * Reclaim blocks as they are found unreachable
+     */
+    private static void run() {
+        while (true) {
+            try {
+                ((BlockReference) queue.remove()).reclaim();
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Unable to reclaim a memory block", ex);
+            }
+        }
+    }
+
+    /**
+     * Phantom reference to a block holding only what is needed to free its memory
+     *
+     * @author micha
+     */
+    private static final class BlockReference extends PhantomReference<Object> {
+        private final IntSupplier reclaim;
+
+        /**
+         * Constructor
+         *
+         * @param block the block, or owner of blocks, to reference
+         * @param reclaim frees the memory, returning the number of allocations freed
+         */
+        BlockReference(Object block, IntSupplier reclaim) {
+            super(block, queue);
+            this.reclaim = reclaim;
+        }
+
+        /**
+         * Free whatever the block still had allocated
+         */
+        void reclaim() {
+            references.remove(this);
+
+            if (reclaim.getAsInt() > 0) reclaimedBlocks.increment();
+        }
+    }
+
+    /**
+     * Memory of a single block keeping its live allocations
+     *
+     * @author micha
+     */
+    private static final class ReclaimableMemory extends ForwardingMemory {
+        private final Map<Long, Integer> allocations = new ConcurrentHashMap<>();
+
+        /**
+         * Constructor
+         *
+         * @param memory the memory to allocate from
+         */
+        ReclaimableMemory(Memory memory) {
+            super(memory);
+        }
+
+        /**
+         * Allocate memory and keep the allocation
+         *
+         * @param size the number of bytes to allocate
+         * @return the start address of the allocated memory
+         */
+        @Override
+        public long malloc(int size) {
+            return malloc(size, AllocationFlags.ZEROED);
+        }
+
+        /**
+         * Allocate memory and keep the allocation
+         *
+         * @param size the number of bytes to allocate
+         * @param flags the {@link AllocationFlags} to allocate with
+         * @return the start address of the allocated memory
+         */
+        @Override
+        public long malloc(int size, int flags) {
+            long addr = memory.malloc(size, flags);
+            allocations.put(addr, size);
+            return addr;
+        }
+
+        /**
+         * Increase the size of a kept allocation
+         *
+         * @param address the address of the original memory allocation
+         * @param prevSize the previous number of bytes
+         * @param size the number of bytes to
+         * @return the address of the increased allocation
+         */
+        @Override
+        public long realloc(long address, int prevSize, int size) {
+            return realloc(address, prevSize, size, AllocationFlags.ZEROED);
+        }
+
+        /**
+         * Increase the size of a kept allocation
+         *
+         * @param address the address of the original memory allocation
+         * @param prevSize the previous number of bytes
+         * @param size the number of bytes to
+         * @param flags the {@link AllocationFlags} to allocate with
+         * @return the address of the increased allocation
+         */
+        @Override
+        public long realloc(long address, int prevSize, int size, int flags) {
+            long addr = memory.realloc(address, prevSize, size, flags);
+            allocations.remove(address);
+            allocations.put(addr, size);
+            return addr;
+        }
+
+        /**
+         * Release an allocation, counting it as freed explicitly
+         *
+         * @param address the address to release
+         */
+        @Override
+        public void free(long address) {
+            Integer size = allocations.remove(address);
+            memory.free(address);
+
+            if (size != null) {
+                freedAllocations.increment();
+                freedBytes.add(size);
+            }
+        }
+
+        /**
+         * Check if freeing an allocation releases its memory
+         *
+         * Freeing always stops keeping the allocation, whatever the underlying memory does
+         *
+         * @return true
+         */
+        @Override
+        public boolean releasesOnFree() {
+            return true;
+        }
+
+        /**
+         * Release every kept allocation, counting them as reclaimed
+         *
+         * @return the number of allocations released
+         */
+        int reclaim() {
+            int reclaimed = 0;
+
+            for (Map.Entry<Long, Integer> entry : allocations.entrySet()) {
+                memory.free(entry.getKey());
+                reclaimedAllocations.increment();
+                reclaimedBytes.add(entry.getValue());
+                ++reclaimed;
+            }
+
+            allocations.clear();
+            return reclaimed;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.util.Arrays;
+
+/**
+ * Allocates fixed size nodes from pages of contiguous nodes
+ *
+ * Nodes are carved out of the current page in order so neighbouring nodes share cache lines.
+ * Freed nodes form an intrusive free list, each holding the address of the next free node in
+ * its first word, and are reused before carving new ones. Pages are only returned to the
+ * memory all at once, so allocating and freeing a node never reaches the underlying allocator
+ * except to add a page.
+ *
+ * @author micha
+ */
+final class NodePool {
+    private static final int PAGE_SIZE = 4096;
+    private static final int MIN_PAGE_NODES = 16;
+
+    private final Memory memory;
+    private final int nodeSize;
+    private final int pageSize;
+
+    private long[] pages = new long[8];
+    private int pageCount;
+    private long next;
+    private long end;
+    private long freeList;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to allocate pages from
+     * @param nodeSize the number of bytes per node, at least a word
+     */
+    NodePool(Memory memory, int nodeSize) {
+        if (nodeSize < Long.BYTES)
+            throw new IllegalArgumentException("Nodes must hold at least a word: " + nodeSize);
+
+        this.memory = memory;
+        this.nodeSize = nodeSize;
+        this.pageSize = Math.max(PAGE_SIZE / nodeSize, MIN_PAGE_NODES) * nodeSize;
+    }
+
+    /**
+     * Allocate a node, reusing a freed one if any
+     *
+     * @return the address of the node
+     */
+    long malloc() {
+        if (freeList != 0) {
+            long addr = freeList;
+            freeList = memory.getLong(addr);
+            return addr;
+        }
+
+        if (next == end) addPage();
+
+        long addr = next;
+        next += nodeSize;
+        return addr;
+    }
+
+    /**
+     * Return a node to the free list
+     *
+     * @param address the address of the node
+     */
+    void free(long address) {
+        memory.putLong(address, freeList);
+        freeList = address;
+    }
+
+    /**
+     * Release every page, freeing all nodes at once
+     */
+    void freeAll() {
+        for (int i = 0; i < pageCount; ++i) {
+            memory.free(pages[i]);
+        }
+
+        pageCount = 0;
+        next = end = freeList = 0;
+    }
+
+    /**
+     * Allocate a new page to carve nodes from
+     */
+    private void addPage() {
+        if (pageCount == pages.length) pages = Arrays.copyOf(pages, pageCount * 2);
+
+        long page = memory.malloc(pageSize);
+        pages[pageCount++] = page;
+        next = page;
+        end = page + pageSize;
+    }
+}
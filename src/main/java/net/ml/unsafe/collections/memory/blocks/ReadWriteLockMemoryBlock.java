@@ -1,5 +1,6 @@
 package net.ml.unsafe.collections.memory.blocks;
 
+import java.nio.file.Path;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -181,4 +182,36 @@ public final class ReadWriteLockMemoryBlock<T> extends AbstractMemoryBlock<T> im
 
         return size;
     }
+
+    /**
+     * Relocate the objects of a range of indexes next to each other in memory using write lock
+     *
+     * @param index the first index to compact
+     * @param count the maximum number of indexes to compact
+     * @return the index after the last one compacted
+     */
+    @Override
+    public int compact(int index, int count) {
+        lock.writeLock().lock();
+        try {
+            return memory.compact(index, count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write the raw memory of the block to a file using read lock
+     *
+     * @param file the file to write the snapshot to
+     */
+    @Override
+    public void snapshot(Path file) {
+        lock.readLock().lock();
+        try {
+            memory.snapshot(file);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 }
@@ -0,0 +1,98 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import net.ml.unsafe.collections.memory.AllocationFlags;
+import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.memory.blocks.models.Reference;
+import net.ml.unsafe.collections.serialize.ByteSerializer;
+
+/**
+ * Native scratch space objects are serialized into before their size is known
+ *
+ * Objects are streamed into the scratch space, which doubles until the object fits,
+ * then copied into an allocation of their exact size so serializing never passes
+ * through a byte array. Memories without native addresses, and serializers which do not
+ * stream, would serialize the whole object again on every doubling, so objects are
+ * serialized to an array once and placed in their allocation directly.
+ * Copies of a block read back from its serialized form are never freed, so their scratch
+ * buffers are created without scratch space and always serialize to an array.
+ * Not thread safe, use a scratch buffer per block.
+ *
+ * @author micha
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ScratchBuffer {
+    private static final int MIN_SIZE = 256;
+
+    private Memory memory;
+
+    private transient boolean owned;
+    private transient long address;
+    private transient int size;
+
+    /**
+     * Constructor
+     *
+     * @param memory the memory to allocate from
+     */
+    ScratchBuffer(Memory memory) {
+        this.memory = memory;
+        this.owned = true;
+    }
+
+    /**
+     * Serialize an object into an allocation of its exact size
+     *
+     * @param serializer the serializer to write the object with
+     * @param o the object to write
+     * @param <T> the type of the object
+     * @return the reference to the allocation
+     */
+    <T> Reference write(ByteSerializer<T> serializer, T o) {
+        if (!owned || !memory.hasNativeAddresses() || !serializer.streamsTo(memory)) {
+            byte[] bytes = serializer.serialize(o);
+            long addr = memory.malloc(bytes.length, AllocationFlags.UNINITIALIZED);
+            memory.put(addr, bytes);
+            return new Reference(addr, bytes.length);
+        }
+
+        if (address == 0) {
+            size = MIN_SIZE;
+            address = memory.malloc(size, AllocationFlags.UNINITIALIZED);
+        }
+
+        int length;
+        while ((length = serializer.serializeTo(o, memory, address, size)) < 0) {
+            grow();
+        }
+
+        long addr = memory.malloc(length, AllocationFlags.UNINITIALIZED);
+        memory.copy(address, addr, length);
+        return new Reference(addr, length);
+    }
+
+    /**
+     * Release the scratch space, it is allocated again on the next write
+     */
+    void free() {
+        if (address == 0) return;
+
+        memory.free(address);
+        address = 0;
+        size = 0;
+    }
+
+    /**
+     * Double the size of the scratch space
+     *
+     * @throws OutOfMemoryError the scratch space cannot grow any further
+     */
+    private void grow() {
+        if (size > Integer.MAX_VALUE / 2) throw new OutOfMemoryError("Object too large to serialize");
+
+        memory.free(address);
+        size *= 2;
+        address = memory.malloc(size, AllocationFlags.UNINITIALIZED);
+    }
+}
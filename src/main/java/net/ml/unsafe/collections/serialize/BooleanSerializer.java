@@ -0,0 +1,65 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer for boolean values in a single byte
+ *
+ * @author micha
+ */
+public final class BooleanSerializer extends FixedWidthSerializer<Boolean> {
+    /**
+     * Constructor
+     */
+    public BooleanSerializer() {
+        super(1);
+    }
+
+    /**
+     * Write a boolean at the start of a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param value the value
+     */
+    @Override
+    protected void write(ByteBuffer buffer, Boolean value) {
+        buffer.put(0, (byte) (value ? 1 : 0));
+    }
+
+    /**
+     * Read a boolean from the start of a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    @Override
+    protected Boolean read(ByteBuffer buffer) {
+        return buffer.get(0) != 0;
+    }
+
+    /**
+     * Write a boolean into memory
+     *
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param value the value
+     */
+    @Override
+    protected void write(Memory memory, long address, Boolean value) {
+        memory.putByte(address, (byte) (value ? 1 : 0));
+    }
+
+    /**
+     * Read a boolean from memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @return the value
+     */
+    @Override
+    protected Boolean read(Memory memory, long address) {
+        return memory.getByte(address) != 0;
+    }
+}
@@ -1,11 +1,69 @@
 package net.ml.unsafe.collections.serialize;
 
+import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.util.ThreadLocalBytes;
+
 /**
  * Byte serializer interface
  *
- * Serialize and deserialize objects into byte arrays
+ * Serialize and deserialize objects into byte arrays, or straight into memory
+ * for serializers which can stream to memory without an intermediate array
  *
  * @author micha
  * @param <I> the serialized input type
  */
-public interface ByteSerializer<I> extends Serializer<I, byte[]>{}
+public interface ByteSerializer<I> extends Serializer<I, byte[]> {
+    /**
+     * Identify the wire format of the serializer, such as in snapshots
+     *
+     * Serializers of the same class writing different formats must return different ids
+     *
+     * @return the id of the serializer
+     */
+    default String id() {
+        return getClass().getName();
+    }
+
+    /**
+     * Check if objects are streamed straight into the memory rather than through a byte array
+     *
+     * Objects which are not streamed are serialized whole on every call to serialize to memory
+     *
+     * @param memory the memory to write to
+     * @return whether or not objects are streamed into the memory
+     */
+    default boolean streamsTo(Memory memory) {
+        return false;
+    }
+
+    /**
+     * Serialize an object into memory
+     *
+     * @param input the object to serialize
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param maxLength the maximum number of bytes to write
+     * @return the number of bytes written, or -1 if the object does not fit
+     */
+    default int serializeTo(I input, Memory memory, long address, int maxLength) {
+        byte[] bytes = serialize(input);
+        if (bytes.length > maxLength) return -1;
+
+        memory.put(address, bytes);
+        return bytes.length;
+    }
+
+    /**
+     * Deserialize an object out of memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @param length the number of bytes to read
+     * @return the deserialized object
+     */
+    default I deserializeFrom(Memory memory, long address, int length) {
+        byte[] bytes = ThreadLocalBytes.get(length);
+        memory.get(address, bytes, 0, length);
+        return deserialize(bytes);
+    }
+}
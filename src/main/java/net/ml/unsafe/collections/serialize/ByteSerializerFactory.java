@@ -18,6 +18,7 @@ public final class ByteSerializerFactory {
     static {
         registered.put(ByteSerializerType.DEFAULT.name(), KryoSerializer::new);
         registered.put(ByteSerializerType.KRYO_SERIALIZER.name(), KryoSerializer::new);
+        registered.put(ByteSerializerType.KRYO_POOLED_SERIALIZER.name(), KryoSerializer::pooled);
         registered.put(ByteSerializerType.ARRAY_STREAM_SERIALIZER.name(), ByteStreamSerializer::new);
     }
 
@@ -7,6 +7,7 @@ package net.ml.unsafe.collections.serialize;
  */
 public enum ByteSerializerType {
     KRYO_SERIALIZER,
+    KRYO_POOLED_SERIALIZER,
     ARRAY_STREAM_SERIALIZER,
     DEFAULT
 }
@@ -0,0 +1,65 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer for char values in 2 bytes
+ *
+ * @author micha
+ */
+public final class CharSerializer extends FixedWidthSerializer<Character> {
+    /**
+     * Constructor
+     */
+    public CharSerializer() {
+        super(Character.BYTES);
+    }
+
+    /**
+     * Write a char at the start of a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param value the value
+     */
+    @Override
+    protected void write(ByteBuffer buffer, Character value) {
+        buffer.putChar(0, value);
+    }
+
+    /**
+     * Read a char from the start of a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    @Override
+    protected Character read(ByteBuffer buffer) {
+        return buffer.getChar(0);
+    }
+
+    /**
+     * Write a char into memory
+     *
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param value the value
+     */
+    @Override
+    protected void write(Memory memory, long address, Character value) {
+        memory.putShort(address, (short) value.charValue());
+    }
+
+    /**
+     * Read a char from memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @return the value
+     */
+    @Override
+    protected Character read(Memory memory, long address) {
+        return (char) memory.getShort(address);
+    }
+}
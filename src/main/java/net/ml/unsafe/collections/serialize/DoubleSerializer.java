@@ -0,0 +1,65 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer for double values in 8 bytes
+ *
+ * @author micha
+ */
+public final class DoubleSerializer extends FixedWidthSerializer<Double> {
+    /**
+     * Constructor
+     */
+    public DoubleSerializer() {
+        super(Double.BYTES);
+    }
+
+    /**
+     * Write a double at the start of a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param value the value
+     */
+    @Override
+    protected void write(ByteBuffer buffer, Double value) {
+        buffer.putDouble(0, value);
+    }
+
+    /**
+     * Read a double from the start of a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    @Override
+    protected Double read(ByteBuffer buffer) {
+        return buffer.getDouble(0);
+    }
+
+    /**
+     * Write a double into memory
+     *
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param value the value
+     */
+    @Override
+    protected void write(Memory memory, long address, Double value) {
+        memory.putDouble(address, value);
+    }
+
+    /**
+     * Read a double from memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @return the value
+     */
+    @Override
+    protected Double read(Memory memory, long address) {
+        return memory.getDouble(address);
+    }
+}
@@ -0,0 +1,144 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * Serializer for values which always take the same number of bytes
+ *
+ * Values are laid out in the native byte order, so writing into memory goes through the typed
+ * accessors of the memory directly and the bytes match those of the byte array path. Nulls
+ * have no room of their own and are rejected, rather than read back as zero.
+ *
+ * @author micha
+ * @param <T> the type of value to serialize
+ */
+public abstract class FixedWidthSerializer<T> implements ByteSerializer<T> {
+    private final int width;
+
+    /**
+     * Constructor
+     *
+     * @param width the number of bytes of every value
+     */
+    protected FixedWidthSerializer(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Get the number of bytes of every value
+     *
+     * @return the number of bytes
+     */
+    public final int width() {
+        return width;
+    }
+
+    /**
+     * Serialize a value into a byte array of exactly the width
+     *
+     * @param input the value to serialize
+     * @return the bytes
+     *
+     * @throws NullPointerException the value is null
+     */
+    @Override
+    public final byte[] serialize(T input) {
+        Objects.requireNonNull(input, "Cannot serialize null in a fixed width");
+        ByteBuffer buffer = ByteBuffer.allocate(width).order(ByteOrder.nativeOrder());
+        write(buffer, input);
+        return buffer.array();
+    }
+
+    /**
+     * Deserialize a byte array into a value
+     *
+     * @param output the bytes to deserialize
+     * @return the value
+     */
+    @Override
+    public final T deserialize(byte[] output) {
+        return read(ByteBuffer.wrap(output).order(ByteOrder.nativeOrder()));
+    }
+
+    /**
+     * Values are always written straight into memory through its typed accessors
+     *
+     * @param memory the memory to write to
+     * @return true
+     */
+    @Override
+    public final boolean streamsTo(Memory memory) {
+        return true;
+    }
+
+    /**
+     * Write a value straight into memory
+     *
+     * @param input the value to serialize
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param maxLength the maximum number of bytes to write
+     * @return the width, or -1 if the value does not fit
+     *
+     * @throws NullPointerException the value is null
+     */
+    @Override
+    public final int serializeTo(T input, Memory memory, long address, int maxLength) {
+        Objects.requireNonNull(input, "Cannot serialize null in a fixed width");
+        if (maxLength < width) return -1;
+
+        write(memory, address, input);
+        return width;
+    }
+
+    /**
+     * Read a value straight out of memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @param length the number of bytes to read
+     * @return the value
+     */
+    @Override
+    public final T deserializeFrom(Memory memory, long address, int length) {
+        return read(memory, address);
+    }
+
+    /**
+     * Write a value at the start of a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param value the value, never null
+     */
+    protected abstract void write(ByteBuffer buffer, T value);
+
+    /**
+     * Read a value from the start of a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    protected abstract T read(ByteBuffer buffer);
+
+    /**
+     * Write a value into memory
+     *
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param value the value, never null
+     */
+    protected abstract void write(Memory memory, long address, T value);
+
+    /**
+     * Read a value from memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @return the value
+     */
+    protected abstract T read(Memory memory, long address);
+}
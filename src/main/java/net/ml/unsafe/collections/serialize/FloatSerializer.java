@@ -0,0 +1,65 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer for float values in 4 bytes
+ *
+ * @author micha
+ */
+public final class FloatSerializer extends FixedWidthSerializer<Float> {
+    /**
+     * Constructor
+     */
+    public FloatSerializer() {
+        super(Float.BYTES);
+    }
+
+    /**
+     * Write a float at the start of a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param value the value
+     */
+    @Override
+    protected void write(ByteBuffer buffer, Float value) {
+        buffer.putFloat(0, value);
+    }
+
+    /**
+     * Read a float from the start of a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    @Override
+    protected Float read(ByteBuffer buffer) {
+        return buffer.getFloat(0);
+    }
+
+    /**
+     * Write a float into memory
+     *
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param value the value
+     */
+    @Override
+    protected void write(Memory memory, long address, Float value) {
+        memory.putFloat(address, value);
+    }
+
+    /**
+     * Read a float from memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @return the value
+     */
+    @Override
+    protected Float read(Memory memory, long address) {
+        return memory.getFloat(address);
+    }
+}
@@ -0,0 +1,65 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer for int values in 4 bytes
+ *
+ * @author micha
+ */
+public final class IntSerializer extends FixedWidthSerializer<Integer> {
+    /**
+     * Constructor
+     */
+    public IntSerializer() {
+        super(Integer.BYTES);
+    }
+
+    /**
+     * Write a int at the start of a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param value the value
+     */
+    @Override
+    protected void write(ByteBuffer buffer, Integer value) {
+        buffer.putInt(0, value);
+    }
+
+    /**
+     * Read a int from the start of a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    @Override
+    protected Integer read(ByteBuffer buffer) {
+        return buffer.getInt(0);
+    }
+
+    /**
+     * Write a int into memory
+     *
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param value the value
+     */
+    @Override
+    protected void write(Memory memory, long address, Integer value) {
+        memory.putInt(address, value);
+    }
+
+    /**
+     * Read a int from memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @return the value
+     */
+    @Override
+    protected Integer read(Memory memory, long address) {
+        return memory.getInt(address);
+    }
+}
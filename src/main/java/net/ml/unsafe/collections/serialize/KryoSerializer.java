@@ -1,43 +1,158 @@
 package net.ml.unsafe.collections.serialize;
 
+import com.esotericsoftware.kryo.DefaultSerializer;
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import lombok.NoArgsConstructor;
+import com.esotericsoftware.kryo.util.UnsafeUtil;
+import lombok.Builder;
+import net.ml.unsafe.collections.memory.Memory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Kryo byte serializer
  *
+ * Keeps a kryo instance with reusable output and input buffers per thread so serializing
+ * small objects does not allocate streams, or borrows them from a shared bounded pool for
+ * virtual threads where a context per thread would be kept alive for every thread.
+ * Serializers bound to a type write objects without their class, for collections holding
+ * only that exact type, and keep contexts of their own configured with their registrations.
+ * Streams straight into and out of memory with native addresses through buffers over the
+ * address, which lay out bytes exactly as the byte array streams do. Kryo wraps addresses with
+ * a direct buffer constructor removed in java 14, later versions go through byte arrays instead.
+ * Serializers held by blocks nested in other objects are written as their configuration only,
+ * never their contexts, and memories as a reference to the same instance, never a copy, so a
+ * nested block read back allocates from the memory of the original. Like the addresses in the
+ * block, memory references are only valid within the process which wrote them.
+ *
  * @author micha
  * @param <T> the type of object to serialize
  */
-@NoArgsConstructor
+@DefaultSerializer(KryoSerializer.ConfigurationSerializer.class)
 public final class KryoSerializer<T> implements ByteSerializer<T> {
-    private static final ThreadLocal<Kryo> kryoThread = ThreadLocal.withInitial(Kryo::new);
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    //larger buffers are dropped after use rather than kept by the context
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1 << 16;
+    private static final byte[] EMPTY = new byte[0];
+    private static final boolean DIRECT_BUFFERS = hasDirectBuffers();
+
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final Contexts threadContexts = new ThreadLocalContexts(KryoSerializer::newKryo);
+    private static final Contexts pooledContexts = new PooledContexts(POOL_SIZE, KryoSerializer::newKryo);
+
+    private final Contexts contexts;
+    private final Class<T> type;
+    private final List<Class<?>> registrations;
+    private final boolean registrationRequired;
+    private final boolean pooled;
+    private final String id;
+
+    /**
+     * Constructor, using a context per thread
+     */
+    public KryoSerializer() {
+        this(threadContexts, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param contexts the source of contexts to serialize with
+     * @param type the type objects are written as, or null to write the class of each object
+     */
+    private KryoSerializer(Contexts contexts, Class<T> type) {
+        this.contexts = contexts;
+        this.type = type;
+        this.registrations = Collections.emptyList();
+        this.registrationRequired = false;
+        this.pooled = contexts == pooledContexts;
+        this.id = KryoSerializer.class.getName();
+    }
+
+    /**
+     * Constructor for serializers bound to a type
+     *
+     * Objects are written as exactly the type without any class information, so subclasses
+     * lose their own fields. Registrations are applied in order to every kryo instance so
+     * registered classes nested in objects are written as small ids rather than names.
+     *
+     * @param type the type of every object serialized
+     * @param registrations classes to register besides the type
+     * @param registrationRequired whether to fail on classes which are not registered
+     * @param pooled whether to borrow contexts from a pool rather than keep one per thread
+     */
+    @Builder
+    private KryoSerializer(Class<T> type, List<Class<?>> registrations, boolean registrationRequired, boolean pooled) {
+        this.type = Objects.requireNonNull(type, "type");
+        this.registrations = Optional.ofNullable(registrations).map(ArrayList::new).orElseGet(ArrayList::new);
+        this.registrationRequired = registrationRequired;
+        this.pooled = pooled;
+
+        List<Class<?>> classes = new ArrayList<>();
+        classes.add(type);
+        Optional.ofNullable(registrations).ifPresent(classes::addAll);
+        //objects are written without their class and registered classes as ids in order
+        this.id = classes.stream().map(Class::getName)
+                .collect(Collectors.joining(",", KryoSerializer.class.getName() + "[", "]"));
+
+        Supplier<Kryo> factory = () -> {
+            Kryo kryo = newKryo();
+            kryo.setRegistrationRequired(registrationRequired);
+            classes.forEach(kryo::register);
+            return kryo;
+        };
+
+        this.contexts = pooled ? new PooledContexts(POOL_SIZE, factory) : new ThreadLocalContexts(factory);
+    }
+
+    /**
+     * Create a serializer borrowing contexts from a shared pool, for use from virtual threads
+     *
+     * @param <T> the type of object to serialize
+     * @return the pooled serializer
+     */
+    public static <T> KryoSerializer<T> pooled() {
+        return new KryoSerializer<>(pooledContexts, null);
+    }
 
     /**
-     * Serialize an object into a byte array
+     * Serialize an object into a byte array sized exactly
      *
      * @param object the object to serialize
      * @return the serialized byte array
      */
     @Override
     public byte[] serialize(T object) {
-        ByteArrayOutputStream bytes;
+        Context context = contexts.borrow();
 
-        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
-             Output output = new Output(out)) {
-            kryoThread.get().writeClassAndObject(output, object);
-            bytes = out;
-        } catch(IOException ex) {
-            throw new RuntimeException(ex);
+        try {
+            Output output = context.output;
+            output.clear();
+            write(context.kryo, output, object);
+            return output.toBytes();
+        } finally {
+            context.trim();
+            contexts.release(context);
         }
-
-        return bytes.toByteArray();
     }
 
     /**
@@ -47,13 +162,432 @@ public final class KryoSerializer<T> implements ByteSerializer<T> {
      * @return the deserialized object
      */
     @Override
-    @SuppressWarnings("unchecked")
     public T deserialize(byte[] bytes) {
-        try (ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-             Input input = new Input(in)) {
-            return (T) kryoThread.get().readClassAndObject(input);
-        } catch(IOException ex) {
-            return null;
+        Context context = contexts.borrow();
+
+        try {
+            Input input = context.input;
+            input.setBuffer(bytes);
+            return read(context.kryo, input);
+        } finally {
+            context.input.setBuffer(EMPTY);
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Identify the wire format, which depends on the bound type and the registrations
+     *
+     * @return the id of the serializer
+     */
+    @Override
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Check if objects are streamed straight into the memory
+     *
+     * @param memory the memory to write to
+     * @return whether or not the memory has native addresses kryo can wrap in buffers
+     */
+    @Override
+    public boolean streamsTo(Memory memory) {
+        return DIRECT_BUFFERS && memory.hasNativeAddresses();
+    }
+
+    /**
+     * Serialize an object straight into memory when its addresses are native
+     *
+     * @param object the object to serialize
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param maxLength the maximum number of bytes to write
+     * @return the number of bytes written, or -1 if the object does not fit
+     */
+    @Override
+    public int serializeTo(T object, Memory memory, long address, int maxLength) {
+        if (!streamsTo(memory)) return ByteSerializer.super.serializeTo(object, memory, address, maxLength);
+
+        BoundedOutput output = new BoundedOutput(address, maxLength);
+        Context context = contexts.borrow();
+
+        try {
+            write(context.kryo, output, object);
+        } catch (BufferOverflow ex) {
+            return -1;
+        } finally {
+            contexts.release(context);
+        }
+
+        return output.position();
+    }
+
+    /**
+     * Deserialize an object straight out of memory when its addresses are native
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @param length the number of bytes to read
+     * @return the deserialized object
+     */
+    @Override
+    public T deserializeFrom(Memory memory, long address, int length) {
+        if (!streamsTo(memory)) return ByteSerializer.super.deserializeFrom(memory, address, length);
+
+        Context context = contexts.borrow();
+
+        try {
+            return read(context.kryo, new ByteBufferInput(address, length));
+        } finally {
+            contexts.release(context);
+        }
+    }
+
+    /**
+     * Check once if kryo can wrap native addresses in direct buffers on this java version
+     *
+     * @return whether or not buffers over addresses are available
+     */
+    private static boolean hasDirectBuffers() {
+        try {
+            return UnsafeUtil.getDirectBufferAt(0, 0) != null;
+        } catch (RuntimeException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Write an object, with its class unless bound to a type
+     *
+     * @param kryo the kryo instance to write with
+     * @param output the output to write to
+     * @param object the object to write
+     */
+    private void write(Kryo kryo, Output output, T object) {
+        if (type == null) {
+            kryo.writeClassAndObject(output, object);
+        } else {
+            kryo.writeObjectOrNull(output, object, type);
+        }
+    }
+
+    /**
+     * Read an object, with its class unless bound to a type
+     *
+     * @param kryo the kryo instance to read with
+     * @param input the input to read from
+     * @return the object read
+     */
+    @SuppressWarnings("unchecked")
+    private T read(Kryo kryo, Input input) {
+        return type == null ? (T) kryo.readClassAndObject(input) : kryo.readObjectOrNull(input, type);
+    }
+
+    /**
+     * Create a kryo instance writing memories by reference
+     *
+     * @return the kryo instance
+     */
+    private static Kryo newKryo() {
+        Kryo kryo = new Kryo();
+        kryo.addDefaultSerializer(Memory.class, MemoryReferenceSerializer.class);
+        return kryo;
+    }
+
+    /**
+     * Kryo instance with the buffers it serializes through
+     *
+     * @author micha
+     */
+    private static final class Context {
+        private final Kryo kryo;
+        private final Output output = new Output(INITIAL_BUFFER_SIZE, -1);
+        private final Input input = new Input();
+
+        /**
+         * Constructor
+         *
+         * @param kryo the kryo instance to serialize with
+         */
+        Context(Kryo kryo) {
+            this.kryo = kryo;
+        }
+
+        /**
+         * Drop the output buffer if an object grew it too large to keep around
+         */
+        void trim() {
+            if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE) {
+                output.setBuffer(new byte[INITIAL_BUFFER_SIZE], -1);
+            }
+        }
+    }
+
+    /**
+     * Source of contexts, each context used by one thread at a time
+     *
+     * @author micha
+     */
+    private interface Contexts {
+        /**
+         * Get a context to use
+         *
+         * @return the context
+         */
+        Context borrow();
+
+        /**
+         * Give back a context once done with it
+         *
+         * @param context the context
+         */
+        void release(Context context);
+    }
+
+    /**
+     * Keeps a context per thread
+     *
+     * @author micha
+     */
+    private static final class ThreadLocalContexts implements Contexts {
+        private final ThreadLocal<Context> context;
+
+        /**
+         * Constructor
+         *
+         * @param factory creates the kryo instance of each thread
+         */
+        ThreadLocalContexts(Supplier<Kryo> factory) {
+            this.context = ThreadLocal.withInitial(() -> new Context(factory.get()));
+        }
+
+        /**
+         * Get the context of the current thread
+         *
+         * @return the context
+         */
+        @Override
+        public Context borrow() {
+            return context.get();
+        }
+
+        /**
+         * Does nothing, the context stays with the thread
+         *
+         * @param context the context
+         */
+        @Override
+        public void release(Context context) {}
+    }
+
+    /**
+     * Keeps a bounded pool of idle contexts shared by all threads
+     *
+     * Contexts are created when the pool is empty and dropped when it is full,
+     * so memory held is bounded by the pool size rather than the number of threads
+     *
+     * @author micha
+     */
+    private static final class PooledContexts implements Contexts {
+        private final BlockingQueue<Context> pool;
+        private final Supplier<Kryo> factory;
+
+        /**
+         * Constructor
+         *
+         * @param size the maximum number of idle contexts kept
+         * @param factory creates the kryo instance of each context
+         */
+        PooledContexts(int size, Supplier<Kryo> factory) {
+            this.pool = new ArrayBlockingQueue<>(size);
+            this.factory = factory;
+        }
+
+        /**
+         * Take an idle context, creating one if there are none
+         *
+         * @return the context
+         */
+        @Override
+        public Context borrow() {
+            Context context = pool.poll();
+            return context != null ? context : new Context(factory.get());
+        }
+
+        /**
+         * Return the context to the pool, dropping it if the pool is full
+         *
+         * @param context the context
+         */
+        @Override
+        public void release(Context context) {
+            pool.offer(context);
+        }
+    }
+
+    /**
+     * Writes a serializer as its configuration, so a copy shares the static contexts or builds its own
+     *
+     * @author micha
+     */
+    @SuppressWarnings("rawtypes")
+    public static final class ConfigurationSerializer extends com.esotericsoftware.kryo.Serializer<KryoSerializer> {
+        /**
+         * Write the type, registrations and flags of a serializer
+         *
+         * @param kryo the kryo reference
+         * @param output the output to write to
+         * @param serializer the serializer to write
+         */
+        @Override
+        public void write(Kryo kryo, Output output, KryoSerializer serializer) {
+            output.writeBoolean(serializer.pooled);
+            kryo.writeClass(output, serializer.type);
+            output.writeBoolean(serializer.registrationRequired);
+            output.writeInt(serializer.registrations.size(), true);
+
+            for (Object registration : serializer.registrations) {
+                kryo.writeClass(output, (Class<?>) registration);
+            }
+        }
+
+        /**
+         * Build a serializer with the configuration read
+         *
+         * @param kryo the kryo reference
+         * @param input the input to read from
+         * @param type the serializer class
+         * @return the serializer
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public KryoSerializer read(Kryo kryo, Input input, Class<KryoSerializer> type) {
+            boolean pooled = input.readBoolean();
+            Registration bound = kryo.readClass(input);
+            boolean registrationRequired = input.readBoolean();
+            int count = input.readInt(true);
+
+            List<Class<?>> registrations = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                registrations.add(kryo.readClass(input).getType());
+            }
+
+            if (bound == null) return pooled ? KryoSerializer.pooled() : new KryoSerializer<>();
+
+            return KryoSerializer.builder()
+                    .type((Class<Object>) bound.getType())
+                    .registrations(registrations)
+                    .registrationRequired(registrationRequired)
+                    .pooled(pooled)
+                    .build();
+        }
+    }
+
+    /**
+     * Writes a memory as an id it is registered under, reading the id back as the same instance
+     *
+     * Memories are held weakly, so registering one never keeps it alive
+     *
+     * @author micha
+     */
+    public static final class MemoryReferenceSerializer extends com.esotericsoftware.kryo.Serializer<Memory> {
+        private static final Map<Memory, Integer> ids = Collections.synchronizedMap(new WeakHashMap<>());
+        private static final Map<Integer, WeakReference<Memory>> memories = new ConcurrentHashMap<>();
+        private static final AtomicInteger nextId = new AtomicInteger();
+
+        /**
+         * Write the id of a memory, registering it the first time
+         *
+         * @param kryo the kryo reference
+         * @param output the output to write to
+         * @param memory the memory to write
+         */
+        @Override
+        public void write(Kryo kryo, Output output, Memory memory) {
+            output.writeInt(ids.computeIfAbsent(memory, MemoryReferenceSerializer::register), true);
+        }
+
+        /**
+         * Read the memory registered under an id
+         *
+         * @param kryo the kryo reference
+         * @param input the input to read from
+         * @param type the memory class
+         * @return the memory
+         *
+         * @throws KryoException the memory is no longer reachable
+         */
+        @Override
+        public Memory read(Kryo kryo, Input input, Class<Memory> type) {
+            int id = input.readInt(true);
+            Memory memory = Optional.ofNullable(memories.get(id)).map(WeakReference::get).orElse(null);
+
+            if (memory == null) throw new KryoException("Memory " + id + " is no longer reachable");
+            return memory;
+        }
+
+        /**
+         * Register a memory under a new id, dropping the ids of memories no longer reachable
+         *
+         * @param memory the memory
+         * @return the id
+         */
+        private static int register(Memory memory) {
+            memories.values().removeIf(ref -> ref.get() == null);
+
+            int id = nextId.incrementAndGet();
+            memories.put(id, new WeakReference<>(memory));
+            return id;
+        }
+    }
+
+    /**
+     * Output over a fixed range of native memory which fails instead of growing
+     *
+     * @author micha
+     */
+    private static final class BoundedOutput extends ByteBufferOutput {
+        /**
+         * Constructor
+         *
+         * @param address the address to write at
+         * @param maxLength the maximum number of bytes to write
+         */
+        BoundedOutput(long address, int maxLength) {
+            super(address, maxLength);
+        }
+
+        /**
+         * Ensure the bytes fit in the range
+         *
+         * @param required the number of bytes about to be written
+         * @return false, the buffer is never flushed
+         *
+         * @throws BufferOverflow the bytes do not fit
+         */
+        @Override
+        protected boolean require(int required) {
+            if (capacity - position < required) throw new BufferOverflow();
+            return false;
+        }
+    }
+
+    /**
+     * Thrown when an object does not fit in its range of memory
+     *
+     * Extends the kryo exception so serializers rethrow it as is rather than wrapping it
+     *
+     * @author micha
+     */
+    private static final class BufferOverflow extends KryoException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor
+         */
+        BufferOverflow() {
+            super("Buffer overflow");
         }
     }
 }
@@ -0,0 +1,65 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer for long values in 8 bytes
+ *
+ * @author micha
+ */
+public final class LongSerializer extends FixedWidthSerializer<Long> {
+    /**
+     * Constructor
+     */
+    public LongSerializer() {
+        super(Long.BYTES);
+    }
+
+    /**
+     * Write a long at the start of a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param value the value
+     */
+    @Override
+    protected void write(ByteBuffer buffer, Long value) {
+        buffer.putLong(0, value);
+    }
+
+    /**
+     * Read a long from the start of a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    @Override
+    protected Long read(ByteBuffer buffer) {
+        return buffer.getLong(0);
+    }
+
+    /**
+     * Write a long into memory
+     *
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param value the value
+     */
+    @Override
+    protected void write(Memory memory, long address, Long value) {
+        memory.putLong(address, value);
+    }
+
+    /**
+     * Read a long from memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @return the value
+     */
+    @Override
+    protected Long read(Memory memory, long address) {
+        return memory.getLong(address);
+    }
+}
@@ -1,18 +1,23 @@
 package net.ml.unsafe.collections.serialize;
 
+import net.ml.unsafe.collections.memory.Memory;
 import net.ml.unsafe.collections.memory.blocks.models.Reference;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Optional;
 
 /**
  * Serializer for references
  *
+ * Lays references out in the native byte order so they can be read in place
+ * with the typed accessors of memory. Keeps no state, so blocks of references
+ * nested in other objects can be serialized along with their serializer.
+ *
  * @author micha
  */
 public final class ReferenceSerializer implements ByteSerializer<Reference> {
     private static final Reference EMPTY_REF = new Reference(0, 0);
-    private final ByteBuffer byteBuffer = ByteBuffer.allocate(Reference.size());
 
     /**
      * Serialize a reference to a byte array
@@ -24,10 +29,10 @@ public final class ReferenceSerializer implements ByteSerializer<Reference> {
     public byte[] serialize(Reference ref) {
         ref = Optional.ofNullable(ref).orElse(EMPTY_REF);
 
-        byteBuffer.clear();
-        byteBuffer.putLong(0, ref.getAddr());
-        byteBuffer.putInt(Reference.WORD_SIZE, ref.getLength());
-        return byteBuffer.array();
+        return ByteBuffer.allocate(Reference.size()).order(ByteOrder.nativeOrder())
+                .putLong(0, ref.getAddr())
+                .putInt(Reference.WORD_SIZE, ref.getLength())
+                .array();
     }
 
     /**
@@ -38,8 +43,50 @@ public final class ReferenceSerializer implements ByteSerializer<Reference> {
      */
     @Override
     public Reference deserialize(byte[] serial) {
-        byteBuffer.clear();
-        byteBuffer.put(serial);
-        return new Reference(byteBuffer.getLong(0), byteBuffer.getInt(Reference.WORD_SIZE));
+        ByteBuffer bytes = ByteBuffer.wrap(serial).order(ByteOrder.nativeOrder());
+        return new Reference(bytes.getLong(0), bytes.getInt(Reference.WORD_SIZE));
+    }
+
+    /**
+     * References are always written straight into memory through its typed accessors
+     *
+     * @param memory the memory to write to
+     * @return true
+     */
+    @Override
+    public boolean streamsTo(Memory memory) {
+        return true;
+    }
+
+    /**
+     * Write a reference straight into memory
+     *
+     * @param ref the reference to serialize
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param maxLength the maximum number of bytes to write
+     * @return the size of a reference, or -1 if it does not fit
+     */
+    @Override
+    public int serializeTo(Reference ref, Memory memory, long address, int maxLength) {
+        if (maxLength < Reference.size()) return -1;
+
+        ref = Optional.ofNullable(ref).orElse(EMPTY_REF);
+        memory.putLong(address, ref.getAddr());
+        memory.putInt(address + Reference.WORD_SIZE, ref.getLength());
+        return Reference.size();
+    }
+
+    /**
+     * Read a reference straight out of memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @param length the number of bytes to read
+     * @return the reference
+     */
+    @Override
+    public Reference deserializeFrom(Memory memory, long address, int length) {
+        return new Reference(memory.getLong(address), memory.getInt(address + Reference.WORD_SIZE));
     }
 }
@@ -0,0 +1,65 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializer for short values in 2 bytes
+ *
+ * @author micha
+ */
+public final class ShortSerializer extends FixedWidthSerializer<Short> {
+    /**
+     * Constructor
+     */
+    public ShortSerializer() {
+        super(Short.BYTES);
+    }
+
+    /**
+     * Write a short at the start of a buffer
+     *
+     * @param buffer the buffer to write to
+     * @param value the value
+     */
+    @Override
+    protected void write(ByteBuffer buffer, Short value) {
+        buffer.putShort(0, value);
+    }
+
+    /**
+     * Read a short from the start of a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     */
+    @Override
+    protected Short read(ByteBuffer buffer) {
+        return buffer.getShort(0);
+    }
+
+    /**
+     * Write a short into memory
+     *
+     * @param memory the memory to write to
+     * @param address the address to write at
+     * @param value the value
+     */
+    @Override
+    protected void write(Memory memory, long address, Short value) {
+        memory.putShort(address, value);
+    }
+
+    /**
+     * Read a short from memory
+     *
+     * @param memory the memory to read from
+     * @param address the address to read at
+     * @return the value
+     */
+    @Override
+    protected Short read(Memory memory, long address) {
+        return memory.getShort(address);
+    }
+}
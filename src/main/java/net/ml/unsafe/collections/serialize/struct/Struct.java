@@ -0,0 +1,17 @@
+package net.ml.unsafe.collections.serialize.struct;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class as laid out at fixed offsets by its {@link StructField} fields
+ *
+ * The class needs a no argument constructor, which may be private
+ *
+ * @author micha
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Struct {}
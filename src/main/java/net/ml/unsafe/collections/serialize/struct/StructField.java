@@ -0,0 +1,32 @@
+package net.ml.unsafe.collections.serialize.struct;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Places a field of a {@link Struct} in its layout
+ *
+ * Fields are laid out one after the other by their order, primitives in their own width
+ * and strings in a fixed number of UTF-8 bytes padded with zeros
+ *
+ * @author micha
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface StructField {
+    /**
+     * Get the position of the field in the layout, unique within the struct
+     *
+     * @return the position
+     */
+    int order();
+
+    /**
+     * Get the number of bytes of a string field, ignored for primitives
+     *
+     * @return the number of bytes
+     */
+    int length() default 0;
+}
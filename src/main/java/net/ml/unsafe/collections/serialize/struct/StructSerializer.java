@@ -0,0 +1,418 @@
+package net.ml.unsafe.collections.serialize.struct;
+
+import lombok.AllArgsConstructor;
+import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.serialize.FixedWidthSerializer;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializer for {@link Struct} classes writing each field at a fixed offset
+ *
+ * The layout is compiled once from the {@link StructField} fields of the class and its
+ * superclasses, so every object takes exactly the width of the layout and fields are read
+ * and written straight at their offset without any per object type information. A null
+ * string is written as zeros, which reads back empty.
+ *
+ * @author micha
+ * @param <T> the type of struct to serialize
+ */
+public final class StructSerializer<T> extends FixedWidthSerializer<T> {
+    private static final Map<Class<?>, Codec> codecs = new HashMap<>();
+
+    //codecs of the supported primitive field types
+    static {
+        codecs.put(int.class, new Codec(Integer.BYTES,
+                (b, i, f, o) -> b.putInt(i, f.getInt(o)),
+                (b, i, f, o) -> f.setInt(o, b.getInt(i)),
+                (m, a, f, o) -> m.putInt(a, f.getInt(o)),
+                (m, a, f, o) -> f.setInt(o, m.getInt(a))));
+        codecs.put(long.class, new Codec(Long.BYTES,
+                (b, i, f, o) -> b.putLong(i, f.getLong(o)),
+                (b, i, f, o) -> f.setLong(o, b.getLong(i)),
+                (m, a, f, o) -> m.putLong(a, f.getLong(o)),
+                (m, a, f, o) -> f.setLong(o, m.getLong(a))));
+        codecs.put(double.class, new Codec(Double.BYTES,
+                (b, i, f, o) -> b.putDouble(i, f.getDouble(o)),
+                (b, i, f, o) -> f.setDouble(o, b.getDouble(i)),
+                (m, a, f, o) -> m.putDouble(a, f.getDouble(o)),
+                (m, a, f, o) -> f.setDouble(o, m.getDouble(a))));
+        codecs.put(float.class, new Codec(Float.BYTES,
+                (b, i, f, o) -> b.putFloat(i, f.getFloat(o)),
+                (b, i, f, o) -> f.setFloat(o, b.getFloat(i)),
+                (m, a, f, o) -> m.putFloat(a, f.getFloat(o)),
+                (m, a, f, o) -> f.setFloat(o, m.getFloat(a))));
+        codecs.put(short.class, new Codec(Short.BYTES,
+                (b, i, f, o) -> b.putShort(i, f.getShort(o)),
+                (b, i, f, o) -> f.setShort(o, b.getShort(i)),
+                (m, a, f, o) -> m.putShort(a, f.getShort(o)),
+                (m, a, f, o) -> f.setShort(o, m.getShort(a))));
+        codecs.put(char.class, new Codec(Character.BYTES,
+                (b, i, f, o) -> b.putChar(i, f.getChar(o)),
+                (b, i, f, o) -> f.setChar(o, b.getChar(i)),
+                (m, a, f, o) -> m.putShort(a, (short) f.getChar(o)),
+                (m, a, f, o) -> f.setChar(o, (char) m.getShort(a))));
+        codecs.put(byte.class, new Codec(Byte.BYTES,
+                (b, i, f, o) -> b.put(i, f.getByte(o)),
+                (b, i, f, o) -> f.setByte(o, b.get(i)),
+                (m, a, f, o) -> m.putByte(a, f.getByte(o)),
+                (m, a, f, o) -> f.setByte(o, m.getByte(a))));
+        codecs.put(boolean.class, new Codec(1,
+                (b, i, f, o) -> b.put(i, (byte) (f.getBoolean(o) ? 1 : 0)),
+                (b, i, f, o) -> f.setBoolean(o, b.get(i) != 0),
+                (m, a, f, o) -> m.putByte(a, (byte) (f.getBoolean(o) ? 1 : 0)),
+                (m, a, f, o) -> f.setBoolean(o, m.getByte(a) != 0)));
+    }
+
+    private final Constructor<T> constructor;
+    private final Member[] members;
+    private final String id;
+
+    /**
+     * Constructor
+     *
+     * @param type the struct class
+     *
+     * @throws IllegalArgumentException the class has no valid layout or no argument constructor
+     */
+    public StructSerializer(Class<T> type) {
+        this(type, layout(type));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param type the struct class
+     * @param members the fields in the layout
+     */
+    private StructSerializer(Class<T> type, Member[] members) {
+        super(members[members.length - 1].offset + members[members.length - 1].codec.width);
+        this.members = members;
+        this.id = StructSerializer.class.getName() + "[" + type.getName() + ";" + width() + ";" +
+                Integer.toHexString(layoutHash(members)) + "]";
+
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException ex) {
+            throw new IllegalArgumentException("Struct has no argument constructor: " + type.getName(), ex);
+        }
+    }
+
+    /**
+     * Identify the wire format by the struct class and its layout
+     *
+     * @return the id of the serializer
+     */
+    @Override
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Check if a class declares a fixed layout
+     *
+     * @param type the class to check
+     * @return whether or not the class is a struct
+     */
+    public static boolean isStruct(Class<?> type) {
+        return type.isAnnotationPresent(Struct.class);
+    }
+
+    /**
+     * Write the fields of a struct at their offset in a buffer
+     *
+     * @param buffer the buffer to write to, zeroed
+     * @param value the struct
+     */
+    @Override
+    protected void write(ByteBuffer buffer, T value) {
+        try {
+            for (Member member : members) {
+                member.codec.bufferWrite.apply(buffer, member.offset, member.field, value);
+            }
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Read the fields of a struct from their offset in a buffer
+     *
+     * @param buffer the buffer to read from
+     * @return the struct
+     */
+    @Override
+    protected T read(ByteBuffer buffer) {
+        T value = newInstance();
+
+        try {
+            for (Member member : members) {
+                member.codec.bufferRead.apply(buffer, member.offset, member.field, value);
+            }
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        return value;
+    }
+
+    /**
+     * Write the fields of a struct at their offset in memory
+     *
+     * @param memory the memory to write to
+     * @param address the address of the struct
+     * @param value the struct
+     */
+    @Override
+    protected void write(Memory memory, long address, T value) {
+        try {
+            for (Member member : members) {
+                member.codec.memoryWrite.apply(memory, address + member.offset, member.field, value);
+            }
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Read the fields of a struct from their offset in memory
+     *
+     * @param memory the memory to read from
+     * @param address the address of the struct
+     * @return the struct
+     */
+    @Override
+    protected T read(Memory memory, long address) {
+        T value = newInstance();
+
+        try {
+            for (Member member : members) {
+                member.codec.memoryRead.apply(memory, address + member.offset, member.field, value);
+            }
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        return value;
+    }
+
+    /**
+     * Create an empty struct to read fields into
+     *
+     * @return the struct
+     */
+    private T newInstance() {
+        try {
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException("Unable to create struct " + constructor.getDeclaringClass().getName(), ex);
+        }
+    }
+
+    /**
+     * Compile the layout of a struct from its annotated fields
+     *
+     * @param type the struct class
+     * @return the fields ordered by offset
+     *
+     * @throws IllegalArgumentException the struct has no fields or a field cannot be laid out
+     */
+    private static Member[] layout(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.isAnnotationPresent(StructField.class)) fields.add(field);
+            }
+        }
+
+        if (fields.isEmpty())
+            throw new IllegalArgumentException("Struct has no struct fields: " + type.getName());
+
+        fields.sort(Comparator.comparingInt(field -> field.getAnnotation(StructField.class).order()));
+
+        Member[] members = new Member[fields.size()];
+        int offset = 0;
+
+        for (int i = 0; i < members.length; ++i) {
+            Field field = fields.get(i);
+            StructField annotation = field.getAnnotation(StructField.class);
+
+            if (i > 0 && annotation.order() == fields.get(i - 1).getAnnotation(StructField.class).order())
+                throw new IllegalArgumentException("Duplicate struct field order " + annotation.order() + ": " + field);
+            if (Modifier.isStatic(field.getModifiers()))
+                throw new IllegalArgumentException("Static fields are not part of a struct: " + field);
+
+            field.setAccessible(true);
+            members[i] = new Member(field, offset, codec(field, annotation));
+            offset = Math.addExact(offset, members[i].codec.width);
+        }
+
+        return members;
+    }
+
+    /**
+     * Hash the name, type, offset and width of every field in a layout
+     *
+     * @param members the fields in the layout
+     * @return the hash, stable across runs
+     */
+    private static int layoutHash(Member[] members) {
+        StringBuilder layout = new StringBuilder();
+
+        for (Member member : members) {
+            layout.append(member.field.getName()).append(':').append(member.field.getType().getName())
+                    .append('@').append(member.offset).append('+').append(member.codec.width).append(';');
+        }
+
+        return layout.toString().hashCode();
+    }
+
+    /**
+     * Get the codec of a field
+     *
+     * @param field the field
+     * @param annotation the layout of the field
+     * @return the codec
+     *
+     * @throws IllegalArgumentException the type of the field is not supported
+     */
+    private static Codec codec(Field field, StructField annotation) {
+        if (field.getType() == String.class) {
+            if (annotation.length() <= 0)
+                throw new IllegalArgumentException("String struct fields need a length: " + field);
+
+            return stringCodec(annotation.length());
+        }
+
+        Codec codec = codecs.get(field.getType());
+        if (codec == null) throw new IllegalArgumentException("Unsupported struct field type: " + field);
+
+        return codec;
+    }
+
+    /**
+     * Create a codec for strings of a fixed number of UTF-8 bytes
+     *
+     * @param length the number of bytes
+     * @return the codec
+     */
+    private static Codec stringCodec(int length) {
+        return new Codec(length,
+                (b, i, f, o) -> ((ByteBuffer) b.duplicate().position(i)).put(encode((String) f.get(o), length, f)),
+                (b, i, f, o) -> {
+                    byte[] bytes = new byte[length];
+                    ((ByteBuffer) b.duplicate().position(i)).get(bytes);
+                    f.set(o, decode(bytes));
+                },
+                (m, a, f, o) -> m.put(a, encode((String) f.get(o), length, f)),
+                (m, a, f, o) -> f.set(o, decode(m.get(a, length))));
+    }
+
+    /**
+     * Encode a string into a fixed number of bytes padded with zeros
+     *
+     * @param value the string, null encoded as empty
+     * @param length the number of bytes
+     * @param field the field of the string
+     * @return the bytes
+     *
+     * @throws IllegalArgumentException the string does not fit
+     */
+    private static byte[] encode(String value, int length, Field field) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+
+        if (bytes.length > length)
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes does not fit in " + length + ": " + field);
+
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Decode a string up to its padding
+     *
+     * @param bytes the bytes of the string
+     * @return the string
+     */
+    private static String decode(byte[] bytes) {
+        int length = 0;
+        while (length < bytes.length && bytes[length] != 0) ++length;
+
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Field placed at an offset of the layout
+     *
+     * @author micha
+     */
+    @AllArgsConstructor
+    private static final class Member {
+        private final Field field;
+        private final int offset;
+        private final Codec codec;
+    }
+
+    /**
+     * Reads and writes a field of one type
+     *
+     * @author micha
+     */
+    @AllArgsConstructor
+    private static final class Codec {
+        private final int width;
+        private final BufferAccess bufferWrite;
+        private final BufferAccess bufferRead;
+        private final MemoryAccess memoryWrite;
+        private final MemoryAccess memoryRead;
+    }
+
+    /**
+     * Copies a field between an object and a buffer
+     *
+     * @author micha
+     */
+    @FunctionalInterface
+    private interface BufferAccess {
+        /**
+         * Copy the field
+         *
+         * @param buffer the buffer
+         * @param index the index of the field in the buffer
+         * @param field the field
+         * @param object the struct
+         * @throws IllegalAccessException the field is not accessible
+         */
+        void apply(ByteBuffer buffer, int index, Field field, Object object) throws IllegalAccessException;
+    }
+
+    /**
+     * Copies a field between an object and memory
+     *
+     * @author micha
+     */
+    @FunctionalInterface
+    private interface MemoryAccess {
+        /**
+         * Copy the field
+         *
+         * @param memory the memory
+         * @param address the address of the field in memory
+         * @param field the field
+         * @param object the struct
+         * @throws IllegalAccessException the field is not accessible
+         */
+        void apply(Memory memory, long address, Field field, Object object) throws IllegalAccessException;
+    }
+}
@@ -0,0 +1,38 @@
+package net.ml.unsafe.collections.util;
+
+/**
+ * Per thread scratch byte arrays for reading out of memory without allocating
+ *
+ * One array is kept per exact size so it can be handed straight to a deserializer,
+ * the contents are only valid until the same thread asks for the same size again
+ *
+ * @author micha
+ */
+public final class ThreadLocalBytes {
+    //cannot construct
+    private ThreadLocalBytes() {}
+
+    private static final int MAX_CACHED_SIZE = 1 << 10;
+    private static final ThreadLocal<byte[][]> buffers =
+            ThreadLocal.withInitial(() -> new byte[MAX_CACHED_SIZE + 1][]);
+
+    /**
+     * Get the scratch array of the size for the current thread
+     *
+     * @param size the number of bytes
+     * @return the scratch array, or a new array if too large to cache
+     */
+    public static byte[] get(int size) {
+        if (size > MAX_CACHED_SIZE) return new byte[size];
+
+        byte[][] cache = buffers.get();
+        byte[] bytes = cache[size];
+
+        if (bytes == null) {
+            bytes = new byte[size];
+            cache[size] = bytes;
+        }
+
+        return bytes;
+    }
+}
@@ -15,24 +15,43 @@ public final class UnsafeSingleton {
 
     private static final String UNSAFE_FIELD = "theUnsafe";
     private static final Unsafe unsafe;
+    private static final RuntimeException failure;
 
     static {
+        Unsafe instance = null;
+        RuntimeException error = null;
+
         try {
             //setup the unsafe
             Field f = Unsafe.class.getDeclaredField(UNSAFE_FIELD);
             f.setAccessible(true);
-            unsafe = (Unsafe) f.get(null);
-        } catch (IllegalAccessException | NoSuchFieldException ex) {
-            throw new RuntimeException(ex);
+            instance = (Unsafe) f.get(null);
+        } catch (IllegalAccessException | NoSuchFieldException | SecurityException ex) {
+            error = new RuntimeException(ex);
         }
+
+        unsafe = instance;
+        failure = error;
+    }
+
+    /**
+     * Check if the unsafe could be obtained
+     *
+     * @return whether or not the unsafe is available
+     */
+    public static boolean isAvailable() {
+        return unsafe != null;
     }
 
     /**
      * Get the unsafe
      *
      * @return the unsafe
+     *
+     * @throws RuntimeException the unsafe is not available
      */
     public static Unsafe getUnsafe() {
+        if (unsafe == null) throw failure;
         return unsafe;
     }
 }
@@ -0,0 +1,544 @@
+package net.ml.unsafe.collections.memory;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ * Manages chunks of memory with the foreign function and memory api instead of unsafe
+ *
+ * Allocations are made with the native allocator through linked downcalls so addresses stay
+ * native and can be mixed with the other memory types, data is accessed through a single
+ * segment spanning the address space which keeps the bounds checks trivial for the jit.
+ *
+ * Only part of the multi release jar on java 22 and later, where the api is final, see {@link MemoryType#SEGMENT}.
+ *
+ * @author micha
+ */
+public final class SegmentMemory implements Memory {
+    private static final MemorySegment ALL = MemorySegment.NULL.reinterpret(Long.MAX_VALUE);
+
+    private static final MethodHandle CALLOC;
+    private static final MethodHandle REALLOC;
+    private static final MethodHandle FREE;
+
+    //handles taking the segment and an offset as coordinates
+    private static final VarHandle INT_HANDLE = ValueLayout.JAVA_INT.varHandle();
+    private static final VarHandle LONG_HANDLE = ValueLayout.JAVA_LONG.varHandle();
+
+    static {
+        Linker linker = Linker.nativeLinker();
+
+        CALLOC = linker.downcallHandle(linker.defaultLookup().find("calloc").orElseThrow(),
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG));
+        REALLOC = linker.downcallHandle(linker.defaultLookup().find("realloc").orElseThrow(),
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        FREE = linker.downcallHandle(linker.defaultLookup().find("free").orElseThrow(),
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+    }
+
+    /**
+     * Allocate zeroed memory with the native allocator
+     *
+     * @param size the number of bytes to allocate
+     * @return the start address of the allocated memory
+     */
+    @Override
+    public long malloc(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("Cannot allocate negative memory: " + size);
+
+        try {
+            return checkAllocated((MemorySegment) CALLOC.invokeExact(1L, (long) size), size);
+        } catch (Throwable ex) {
+            throw rethrow(ex);
+        }
+    }
+
+    /**
+     * Increase the size of a memory allocation with the native allocator
+     *
+     * @param address the address of the original memory allocation
+     * @param prevSize the previous number of bytes
+     * @param size the number of bytes to
+     * @return the address of the increased allocation
+     */
+    @Override
+    public long realloc(long address, int prevSize, int size) {
+        long addr;
+
+        try {
+            addr = checkAllocated((MemorySegment) REALLOC.invokeExact(MemorySegment.ofAddress(address), (long) size), size);
+        } catch (Throwable ex) {
+            throw rethrow(ex);
+        }
+
+        if (size > prevSize) fill(addr + prevSize, size - prevSize, (byte) 0);
+        return addr;
+    }
+
+    /**
+     * Release the allocated memory with the native allocator
+     *
+     * @param address the address to release
+     */
+    @Override
+    public void free(long address) {
+        try {
+            FREE.invokeExact(MemorySegment.ofAddress(address));
+        } catch (Throwable ex) {
+            throw rethrow(ex);
+        }
+    }
+
+    /**
+     * Addresses come from the native allocator but are not reported as native pointers, so
+     * serializers go through byte arrays rather than wrapping the addresses in buffers,
+     * which has not been verified against this memory
+     *
+     * @return false
+     */
+    @Override
+    public boolean hasNativeAddresses() {
+        return false;
+    }
+
+    /**
+     * Place the bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes) {
+        put(address, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Place a range of bytes into memory
+     *
+     * @param address the address to store the bytes
+     * @param bytes the array holding the bytes to store
+     * @param offset the index of the first byte in the array
+     * @param length the number of bytes to store
+     */
+    @Override
+    public void put(long address, byte[] bytes, int offset, int length) {
+        MemorySegment.copy(bytes, offset, ALL, ValueLayout.JAVA_BYTE, address, length);
+    }
+
+    /**
+     * Place the remaining bytes of a buffer into memory, advancing its position
+     *
+     * @param address the address to store the bytes
+     * @param buffer the buffer holding the bytes to store
+     */
+    @Override
+    public void put(long address, ByteBuffer buffer) {
+        int length = buffer.remaining();
+
+        MemorySegment.copy(MemorySegment.ofBuffer(buffer), 0, ALL, address, length);
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Swap the bytes of two addresses a word at a time
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to swap
+     */
+    @Override
+    public void swap(long addressA, long addressB, int size) {
+        int i = 0;
+
+        for (; i <= size - Long.BYTES; i += Long.BYTES) {
+            long tmp = getLong(addressB + i);
+            putLong(addressB + i, getLong(addressA + i));
+            putLong(addressA + i, tmp);
+        }
+
+        for (; i < size; ++i) {
+            byte tmp = getByte(addressB + i);
+            putByte(addressB + i, getByte(addressA + i));
+            putByte(addressA + i, tmp);
+        }
+    }
+
+    /**
+     * Copy the bytes of one address into another
+     *
+     * @param addressA the address to copy from
+     * @param addressB the address to copy to
+     * @param size the number of bytes to copy
+     */
+    @Override
+    public void copy(long addressA, long addressB, int size) {
+        MemorySegment.copy(ALL, addressA, ALL, addressB, size);
+    }
+
+    /**
+     * Move the bytes of one address into another where the two ranges may overlap
+     *
+     * @param addressA the address to move from
+     * @param addressB the address to move to
+     * @param size the number of bytes to move
+     */
+    @Override
+    public void move(long addressA, long addressB, int size) {
+        //segment copies handle overlapping ranges like memmove
+        copy(addressA, addressB, size);
+    }
+
+    /**
+     * Set every byte in a range to a value
+     *
+     * @param address the start address of the range
+     * @param size the number of bytes to set
+     * @param value the value to set
+     */
+    @Override
+    public void fill(long address, int size, byte value) {
+        ALL.asSlice(address, size).fill(value);
+    }
+
+    /**
+     * Check if the bytes of two addresses are equal
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return whether or not the bytes are equal
+     */
+    @Override
+    public boolean equals(long addressA, long addressB, int size) {
+        return mismatch(addressA, addressB, size) < 0;
+    }
+
+    /**
+     * Compare the bytes of two addresses lexicographically as unsigned values
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return negative, zero or positive as the first bytes are less, equal or greater than the second
+     */
+    @Override
+    public int compare(long addressA, long addressB, int size) {
+        long i = mismatch(addressA, addressB, size);
+        if (i < 0) return 0;
+
+        return Integer.compare(Byte.toUnsignedInt(getByte(addressA + i)), Byte.toUnsignedInt(getByte(addressB + i)));
+    }
+
+    /**
+     * Get the bytes at the address
+     *
+     * @param address the start address of the bytes
+     * @param size the number of bytes to retrieve
+     * @return the bytes retrieved
+     */
+    @Override
+    public byte[] get(long address, int size) {
+        byte[] bytes = new byte[size];
+        get(address, bytes, 0, size);
+        return bytes;
+    }
+
+    /**
+     * Get the bytes at the address into an existing array
+     *
+     * @param address the start address of the bytes
+     * @param bytes the array to hold the retrieved bytes
+     * @param offset the index in the array of the first byte retrieved
+     * @param length the number of bytes to retrieve
+     */
+    @Override
+    public void get(long address, byte[] bytes, int offset, int length) {
+        MemorySegment.copy(ALL, ValueLayout.JAVA_BYTE, address, bytes, offset, length);
+    }
+
+    /**
+     * Get the bytes at the address into the remaining space of a buffer, advancing its position
+     *
+     * @param address the start address of the bytes
+     * @param buffer the buffer to hold the retrieved bytes
+     */
+    @Override
+    public void get(long address, ByteBuffer buffer) {
+        if (buffer.isReadOnly()) throw new ReadOnlyBufferException();
+
+        int length = buffer.remaining();
+
+        MemorySegment.copy(ALL, address, MemorySegment.ofBuffer(buffer), 0, length);
+        buffer.position(buffer.position() + length);
+    }
+
+    /**
+     * Get the byte at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public byte getByte(long address) {
+        return ALL.get(ValueLayout.JAVA_BYTE, address);
+    }
+
+    /**
+     * Place a byte into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putByte(long address, byte value) {
+        ALL.set(ValueLayout.JAVA_BYTE, address, value);
+    }
+
+    /**
+     * Get the short at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public short getShort(long address) {
+        return ALL.get(ValueLayout.JAVA_SHORT_UNALIGNED, address);
+    }
+
+    /**
+     * Place a short into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putShort(long address, short value) {
+        ALL.set(ValueLayout.JAVA_SHORT_UNALIGNED, address, value);
+    }
+
+    /**
+     * Get the int at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getInt(long address) {
+        return ALL.get(ValueLayout.JAVA_INT_UNALIGNED, address);
+    }
+
+    /**
+     * Place an int into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putInt(long address, int value) {
+        ALL.set(ValueLayout.JAVA_INT_UNALIGNED, address, value);
+    }
+
+    /**
+     * Get the long at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLong(long address) {
+        return ALL.get(ValueLayout.JAVA_LONG_UNALIGNED, address);
+    }
+
+    /**
+     * Place a long into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLong(long address, long value) {
+        ALL.set(ValueLayout.JAVA_LONG_UNALIGNED, address, value);
+    }
+
+    /**
+     * Get the float at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public float getFloat(long address) {
+        return ALL.get(ValueLayout.JAVA_FLOAT_UNALIGNED, address);
+    }
+
+    /**
+     * Place a float into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putFloat(long address, float value) {
+        ALL.set(ValueLayout.JAVA_FLOAT_UNALIGNED, address, value);
+    }
+
+    /**
+     * Get the double at the address
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public double getDouble(long address) {
+        return ALL.get(ValueLayout.JAVA_DOUBLE_UNALIGNED, address);
+    }
+
+    /**
+     * Place a double into memory
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putDouble(long address, double value) {
+        ALL.set(ValueLayout.JAVA_DOUBLE_UNALIGNED, address, value);
+    }
+
+    /**
+     * Get the int at the address with volatile semantics, the address must be aligned
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public int getIntVolatile(long address) {
+        return (int) INT_HANDLE.getVolatile(ALL, address);
+    }
+
+    /**
+     * Place an int into memory with volatile semantics, the address must be aligned
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntVolatile(long address, int value) {
+        INT_HANDLE.setVolatile(ALL, address, value);
+    }
+
+    /**
+     * Place an int into memory with release semantics, the address must be aligned
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putIntOrdered(long address, int value) {
+        INT_HANDLE.setRelease(ALL, address, value);
+    }
+
+    /**
+     * Atomically replace an int if it holds the expected value, the address must be aligned
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapInt(long address, int expected, int value) {
+        return (boolean) INT_HANDLE.compareAndSet(ALL, address, expected, value);
+    }
+
+    /**
+     * Get the long at the address with volatile semantics, the address must be aligned
+     *
+     * @param address the address of the value
+     * @return the value retrieved
+     */
+    @Override
+    public long getLongVolatile(long address) {
+        return (long) LONG_HANDLE.getVolatile(ALL, address);
+    }
+
+    /**
+     * Place a long into memory with volatile semantics, the address must be aligned
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongVolatile(long address, long value) {
+        LONG_HANDLE.setVolatile(ALL, address, value);
+    }
+
+    /**
+     * Place a long into memory with release semantics, the address must be aligned
+     *
+     * @param address the address to store the value
+     * @param value the value to store
+     */
+    @Override
+    public void putLongOrdered(long address, long value) {
+        LONG_HANDLE.setRelease(ALL, address, value);
+    }
+
+    /**
+     * Atomically replace a long if it holds the expected value, the address must be aligned
+     *
+     * @param address the address of the value
+     * @param expected the value expected at the address
+     * @param value the value to store
+     * @return whether or not the value was replaced
+     */
+    @Override
+    public boolean compareAndSwapLong(long address, long expected, long value) {
+        return (boolean) LONG_HANDLE.compareAndSet(ALL, address, expected, value);
+    }
+
+    /**
+     * Find the first differing byte of two ranges
+     *
+     * @param addressA the first address in memory
+     * @param addressB the second address in memory
+     * @param size the number of bytes to compare
+     * @return the offset of the first differing byte, or -1 if the ranges are equal
+     */
+    private static long mismatch(long addressA, long addressB, int size) {
+        //compare distinct slices, mismatching a segment against itself reports no mismatch
+        return ALL.asSlice(addressA, size).mismatch(ALL.asSlice(addressB, size));
+    }
+
+    /**
+     * Check the result of the native allocator
+     *
+     * @param segment the segment returned by the allocator
+     * @param size the number of bytes requested
+     * @return the address of the allocation
+     */
+    private static long checkAllocated(MemorySegment segment, int size) {
+        if (segment.address() == 0 && size > 0)
+            throw new OutOfMemoryError("Unable to allocate " + size + " bytes");
+
+        return segment.address();
+    }
+
+    /**
+     * Rethrow a failure of a downcall unchecked
+     *
+     * @param ex the failure
+     * @return never returns, declared to be thrown by the caller
+     */
+    private static RuntimeException rethrow(Throwable ex) {
+        if (ex instanceof RuntimeException runtime) throw runtime;
+        if (ex instanceof Error error) throw error;
+        throw new IllegalStateException(ex);
+    }
+}
@@ -9,9 +9,12 @@ import java.util.Map;
 
 @Slf4j
 public abstract class SafeTest {
+    //shared so every block allocated by a test is checked for leaks
+    private static final Memory tracked = new TrackedMemory(new LoggedMemory(new GCMemory()));
+
     @BeforeClass
     public static void setupMemory() {
-        MemoryFactory.register(MemoryType.DEFAULT.name(), () -> new TrackedMemory(new LoggedMemory(new GCMemory())));
+        MemoryFactory.register(MemoryType.DEFAULT.name(), () -> tracked);
     }
 
     @AfterClass
@@ -6,16 +6,22 @@ import net.ml.unsafe.collections.SafeTest;
 import net.ml.unsafe.collections.list.MemoryBlockArrayList;
 import net.ml.unsafe.collections.memory.GCMemory;
 import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.memory.MemoryFactory;
+import net.ml.unsafe.collections.memory.TrackedMemory;
+import net.ml.unsafe.collections.memory.UnsafeMemory;
 import net.ml.unsafe.collections.memory.blocks.ArrayMemoryBlock;
 import net.ml.unsafe.collections.memory.blocks.ArrayReferenceMemoryBlock;
 import net.ml.unsafe.collections.memory.blocks.MemoryBlock;
 import net.ml.unsafe.collections.memory.blocks.MemoryBlockBuilder;
+import net.ml.unsafe.collections.memory.blocks.MemoryReclaimer;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
 @Slf4j
@@ -110,6 +116,59 @@ public class MemoryBlockHashMapTests extends SafeTest {
         }
     }
 
+    @Test
+    public void resizeTest() {
+        try (MemoryBlock<List<Map.Entry<Integer, Integer>>> memory =
+                     ArrayReferenceMemoryBlock.<List<Map.Entry<Integer, Integer>>>builder().build()) {
+            Map<Integer, Integer> map = new MemoryBlockHashMap<>(memory, 2);
+
+            IntStream.range(0, 100).forEach(i -> map.put(i, i * 2));
+            IntStream.range(0, 100).filter(i -> i % 2 == 0).forEach(map::remove);
+
+            Assert.assertEquals(50, map.size());
+            Assert.assertEquals(Integer.valueOf(198), map.get(99));
+            Assert.assertNull(map.get(98));
+            Assert.assertTrue(memory.size() >= 64);
+
+            map.clear();
+            Assert.assertNull(map.get(99));
+            map.put(1, 1);
+            Assert.assertEquals(Integer.valueOf(1), map.get(1));
+            map.clear();
+        }
+    }
+
+    @Test
+    public void reclaimTest() throws InterruptedException {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        //buckets allocate from the default memory
+        TrackedMemory buckets = (TrackedMemory) MemoryFactory.getMemory();
+        int bucketAllocations = buckets.memoryMap().size();
+        long reclaimed = MemoryReclaimer.reclaimedBlocks();
+
+        dropMap(memory);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (memory.hasMemoryLeaks() && System.nanoTime() < deadline) {
+            System.gc();
+            MemoryReclaimer.reclaim();
+            Thread.sleep(10);
+        }
+
+        Assert.assertFalse(memory.hasMemoryLeaks());
+        Assert.assertEquals(bucketAllocations, buckets.memoryMap().size());
+        Assert.assertTrue(MemoryReclaimer.reclaimedBlocks() > reclaimed);
+    }
+
+    private static void dropMap(Memory memory) {
+        Map<Integer, Integer> map = new MemoryBlockHashMap<>(
+                ArrayReferenceMemoryBlock.<List<Map.Entry<Integer, Integer>>>builder().memory(memory).build(),
+                16, 0.75f, true);
+        IntStream.range(0, 32).forEach(i -> map.put(i, i));
+
+        Assert.assertEquals(Integer.valueOf(31), map.get(31));
+    }
+
     @Test
     public void test2() {
         Map<Integer, Integer> map = new HashMap<>();
@@ -0,0 +1,81 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AccountedMemoryTests extends SafeTest {
+    @Test
+    public void countTest() {
+        AccountedMemory memory = new AccountedMemory(new UnsafeMemory());
+        long addrA = memory.malloc(Integer.BYTES);
+        long addrB = memory.malloc(1000);
+
+        AllocationStats stats = memory.stats();
+        Assert.assertEquals(Integer.BYTES + 1000, stats.getBytes());
+        Assert.assertEquals(2, stats.getAllocations());
+        Assert.assertEquals(1, stats.allocations(AllocationStats.sizeClassOf(Integer.BYTES)));
+        Assert.assertEquals(1, stats.allocations(10));
+        Assert.assertTrue(memory.hasMemoryLeaks());
+
+        memory.free(addrA);
+        memory.free(addrB);
+
+        stats = memory.stats();
+        Assert.assertEquals(0, stats.getBytes());
+        Assert.assertEquals(0, stats.getAllocations());
+        Assert.assertEquals(Integer.BYTES + 1000, stats.getPeakBytes());
+        Assert.assertFalse(memory.hasMemoryLeaks());
+    }
+
+    @Test
+    public void spikeTest() {
+        AccountedMemory memory = new AccountedMemory(new UnsafeMemory());
+        long[] addresses = new long[100];
+
+        for (int i = 0; i < addresses.length; ++i) {
+            addresses[i] = memory.malloc(Long.BYTES);
+        }
+
+        //a single short spike between snapshots
+        memory.free(memory.malloc(1 << 20));
+
+        for (long addr : addresses) {
+            memory.free(addr);
+        }
+
+        Assert.assertEquals(addresses.length * Long.BYTES + (1 << 20), memory.stats().getPeakBytes());
+    }
+
+    @Test
+    public void reallocationTest() {
+        AccountedMemory memory = new AccountedMemory(new UnsafeMemory());
+        byte[] bytes = { 0x0, 0x4, 0x0, 0x1 };
+        long addr = memory.malloc(Integer.BYTES);
+        memory.put(addr, bytes);
+
+        long newAddr = memory.realloc(addr, Integer.BYTES, Long.BYTES * 4);
+        Assert.assertArrayEquals(bytes, memory.get(newAddr, Integer.BYTES));
+        Assert.assertEquals(Long.BYTES * 4, memory.stats().getBytes());
+        Assert.assertEquals(1, memory.stats().allocations(AllocationStats.sizeClassOf(Long.BYTES * 4)));
+
+        memory.free(newAddr);
+        Assert.assertEquals(0, memory.stats().getBytes());
+    }
+
+    @Test
+    public void samplingTest() {
+        AccountedMemory memory = new AccountedMemory(new UnsafeMemory(), 1);
+        long addr = memory.malloc(Integer.BYTES);
+
+        Throwable site = memory.sampledAllocations().get(addr);
+        Assert.assertNotNull(site);
+        Assert.assertEquals("samplingTest", site.getStackTrace()[0].getMethodName());
+
+        long newAddr = memory.realloc(addr, Integer.BYTES, 1 << 16);
+        Assert.assertNotNull(memory.sampledAllocations().get(newAddr));
+
+        memory.free(newAddr);
+        Assert.assertTrue(memory.sampledAllocations().isEmpty());
+    }
+}
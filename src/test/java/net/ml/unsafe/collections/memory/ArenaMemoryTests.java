@@ -0,0 +1,85 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.list.MemoryBlockArrayList;
+import net.ml.unsafe.collections.memory.blocks.MemoryBlockBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class ArenaMemoryTests extends SafeTest {
+    private static final int CHUNK_SIZE = 256;
+
+    @Test
+    public void allocationTest() {
+        TrackedMemory tracked = new TrackedMemory(new UnsafeMemory());
+
+        try (ArenaMemory memory = new ArenaMemory(tracked, CHUNK_SIZE)) {
+            long a = memory.malloc(3);
+            long b = memory.malloc(Long.BYTES);
+
+            Assert.assertEquals(a + Long.BYTES, b);
+            Assert.assertEquals(2 * Long.BYTES, memory.allocated());
+            Assert.assertEquals(1, tracked.memoryMap().size());
+
+            memory.putLong(b, 42);
+            memory.free(b);
+            Assert.assertEquals(42, memory.getLong(b));
+
+            long large = memory.malloc(CHUNK_SIZE * 2);
+            Assert.assertEquals(2, tracked.memoryMap().size());
+            memory.putLong(large + CHUNK_SIZE, 7);
+
+            for (int i = 0; i < CHUNK_SIZE; ++i) {
+                memory.malloc(Long.BYTES);
+            }
+
+            Assert.assertTrue(tracked.memoryMap().size() > 3);
+        }
+
+        Assert.assertFalse(tracked.hasMemoryLeaks());
+    }
+
+    @Test
+    public void reallocationTest() {
+        TrackedMemory tracked = new TrackedMemory(new UnsafeMemory());
+
+        try (ArenaMemory memory = new ArenaMemory(tracked, CHUNK_SIZE)) {
+            long addr = memory.malloc(Long.BYTES);
+            memory.putLong(addr, 42);
+
+            //last allocation grows in place
+            Assert.assertEquals(addr, memory.realloc(addr, Long.BYTES, 2 * Long.BYTES));
+            Assert.assertEquals(0, memory.getLong(addr + Long.BYTES));
+
+            memory.malloc(Long.BYTES);
+            long moved = memory.realloc(addr, 2 * Long.BYTES, 4 * Long.BYTES);
+            Assert.assertNotEquals(addr, moved);
+            Assert.assertEquals(42, memory.getLong(moved));
+        }
+
+        Assert.assertFalse(tracked.hasMemoryLeaks());
+    }
+
+    @Test
+    public void arenaBlockTest() {
+        TrackedMemory tracked = new TrackedMemory(new UnsafeMemory());
+        List<String> list = new MemoryBlockArrayList<>(MemoryBlockBuilder.<String>builder()
+                .memory(tracked)
+                .arena(true)
+                .build());
+
+        for (int cycle = 0; cycle < 3; ++cycle) {
+            for (int i = 0; i < 1000; ++i) {
+                list.add("value " + i);
+            }
+
+            Assert.assertEquals("value 999", list.get(999));
+
+            list.clear();
+            Assert.assertTrue(list.isEmpty());
+            Assert.assertFalse(tracked.hasMemoryLeaks());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+public class BudgetedMemoryTests extends SafeTest {
+    private static final int LIMIT = 64;
+
+    @Test
+    public void failFastTest() {
+        BudgetedMemory memory = BudgetedMemory.builder()
+                .memory(new UnsafeMemory())
+                .limit(LIMIT)
+                .build();
+
+        long addr = memory.malloc(LIMIT);
+        Assert.assertEquals(LIMIT, memory.used());
+
+        try {
+            memory.malloc(1);
+            Assert.fail();
+        } catch (OutOfMemoryError ex) {
+            Assert.assertEquals(LIMIT, memory.used());
+        }
+
+        memory.free(addr);
+        Assert.assertEquals(0, memory.used());
+    }
+
+    @Test
+    public void reallocationTest() {
+        BudgetedMemory memory = BudgetedMemory.builder()
+                .memory(new UnsafeMemory())
+                .limit(LIMIT)
+                .build();
+
+        byte[] bytes = { 0x0, 0x4, 0x0, 0x1 };
+        long addr = memory.malloc(Integer.BYTES);
+        memory.put(addr, bytes);
+
+        long newAddr = memory.realloc(addr, Integer.BYTES, LIMIT);
+        Assert.assertArrayEquals(bytes, memory.get(newAddr, Integer.BYTES));
+        Assert.assertEquals(LIMIT, memory.used());
+
+        try {
+            memory.realloc(newAddr, LIMIT, LIMIT + 1);
+            Assert.fail();
+        } catch (OutOfMemoryError ex) {
+            Assert.assertEquals(LIMIT, memory.used());
+        }
+
+        newAddr = memory.realloc(newAddr, LIMIT, Integer.BYTES);
+        Assert.assertEquals(Integer.BYTES, memory.used());
+
+        memory.free(newAddr);
+    }
+
+    @Test
+    public void blockTest() throws InterruptedException {
+        BudgetedMemory memory = BudgetedMemory.builder()
+                .memory(new UnsafeMemory())
+                .limit(LIMIT)
+                .policy(BudgetedMemory.Policy.BLOCK)
+                .timeout(Duration.ofSeconds(10))
+                .build();
+
+        long addr = memory.malloc(LIMIT);
+
+        Thread freer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            memory.free(addr);
+        });
+
+        freer.start();
+        long blocked = memory.malloc(LIMIT);
+        freer.join();
+
+        Assert.assertEquals(LIMIT, memory.used());
+        memory.free(blocked);
+    }
+
+    @Test(expected = OutOfMemoryError.class)
+    public void blockTimeoutTest() {
+        BudgetedMemory memory = BudgetedMemory.builder()
+                .memory(new UnsafeMemory())
+                .limit(LIMIT)
+                .policy(BudgetedMemory.Policy.BLOCK)
+                .timeout(Duration.ofMillis(10))
+                .build();
+
+        long addr = memory.malloc(LIMIT);
+
+        try {
+            memory.malloc(1);
+        } finally {
+            memory.free(addr);
+        }
+    }
+
+    @Test
+    public void evictTest() {
+        Deque<Long> allocations = new ArrayDeque<>();
+        BudgetedMemory[] holder = new BudgetedMemory[1];
+
+        BudgetedMemory memory = BudgetedMemory.builder()
+                .memory(new UnsafeMemory())
+                .limit(LIMIT)
+                .watermark(LIMIT / 2)
+                .policy(BudgetedMemory.Policy.EVICT)
+                .evictor(bytes -> {
+                    for (long evicted = 0; evicted < bytes && !allocations.isEmpty(); evicted += Long.BYTES) {
+                        holder[0].free(allocations.removeFirst());
+                    }
+                })
+                .build();
+        holder[0] = memory;
+
+        for (int i = 0; i < LIMIT; ++i) {
+            allocations.addLast(memory.malloc(Long.BYTES));
+            Assert.assertTrue(memory.used() <= LIMIT / 2);
+        }
+
+        while (!allocations.isEmpty()) {
+            memory.free(allocations.removeFirst());
+        }
+
+        Assert.assertEquals(0, memory.used());
+    }
+}
@@ -0,0 +1,96 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DirectBufferMemoryTests extends SafeTest {
+    private static final Memory memory = new DirectBufferMemory();
+
+    @Test
+    public void allocationTest() {
+        long addr = memory.malloc(Integer.BYTES);
+
+        Assert.assertTrue(addr > 0);
+        Assert.assertArrayEquals(new byte[Integer.BYTES], memory.get(addr, Integer.BYTES));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void storageTest() {
+        long addrA = memory.malloc(Integer.BYTES * 2);
+        long addrB = addrA + Integer.BYTES;
+        byte[] aBytes = { 0x0, 0x4, 0x0, 0x0 };
+        byte[] bBytes = { 0x0, 0x0, 0x1, 0x0 };
+
+        memory.put(addrA, aBytes);
+        memory.put(addrB, bBytes);
+        Assert.assertArrayEquals(aBytes, memory.get(addrA, Integer.BYTES));
+        Assert.assertArrayEquals(bBytes, memory.get(addrB, Integer.BYTES));
+
+        memory.swap(addrA, addrB, Integer.BYTES);
+        Assert.assertArrayEquals(bBytes, memory.get(addrA, Integer.BYTES));
+        Assert.assertArrayEquals(aBytes, memory.get(addrB, Integer.BYTES));
+
+        memory.free(addrA);
+    }
+
+    @Test
+    public void reallocationTest() {
+        byte[] bytes = { 0x0, 0x4, 0x0, 0x1 };
+        long addr = memory.malloc(Integer.BYTES);
+        memory.put(addr, bytes);
+
+        long newAddr = memory.realloc(addr, Integer.BYTES, Long.BYTES);
+        Assert.assertArrayEquals(bytes, memory.get(newAddr, Integer.BYTES));
+        Assert.assertArrayEquals(new byte[Integer.BYTES], memory.get(newAddr + Integer.BYTES, Integer.BYTES));
+
+        memory.free(newAddr);
+    }
+
+    @Test
+    public void primitiveTest() {
+        long addr = memory.malloc(Long.BYTES * 2);
+
+        memory.putLong(addr, Long.MIN_VALUE);
+        memory.putDouble(addr + Long.BYTES, Math.PI);
+        Assert.assertEquals(Long.MIN_VALUE, memory.getLong(addr));
+        Assert.assertEquals(Math.PI, memory.getDouble(addr + Long.BYTES), 0);
+
+        Assert.assertTrue(memory.compareAndSwapLong(addr, Long.MIN_VALUE, 1L));
+        Assert.assertEquals(1L, memory.getLongVolatile(addr));
+
+        memory.fill(addr, Long.BYTES * 2, (byte) 0xFF);
+        Assert.assertEquals(-1L, memory.getLong(addr + Long.BYTES));
+        Assert.assertTrue(memory.equals(addr, addr + Long.BYTES, Long.BYTES));
+
+        memory.putByte(addr, (byte) 0x1);
+        Assert.assertTrue(memory.compare(addr, addr + Long.BYTES, Long.BYTES) < 0);
+
+        memory.free(addr);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidAddressTest() {
+        long addr = memory.malloc(Integer.BYTES);
+        memory.free(addr);
+
+        memory.get(addr, Integer.BYTES);
+    }
+
+    @Test
+    public void slabTest() {
+        Memory slabs = MemoryFactory.getMemory(MemoryType.BUFFER);
+        long addrA = slabs.malloc(Integer.BYTES);
+        long addrB = slabs.malloc(Integer.BYTES);
+
+        slabs.putInt(addrA, 1);
+        slabs.putInt(addrB, 2);
+        Assert.assertEquals(1, slabs.getInt(addrA));
+        Assert.assertEquals(2, slabs.getInt(addrB));
+
+        slabs.free(addrA);
+        slabs.free(addrB);
+    }
+}
@@ -0,0 +1,98 @@
+package net.ml.unsafe.collections.memory;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.memory.blocks.MemoryBlock;
+import net.ml.unsafe.collections.memory.blocks.MemoryBlockBuilder;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class FlightRecorderMemoryTests extends SafeTest {
+    private static final int MIN_SIZE = 1 << 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue(MemoryFactory.isRegistered(MemoryType.FLIGHT_RECORDED.name()));
+    }
+
+    @Test
+    public void allocationTest() throws IOException {
+        Memory memory = new FlightRecorderMemory(new UnsafeMemory(), MIN_SIZE);
+        long small;
+        long large;
+
+        try (Recording recording = new Recording()) {
+            recording.enable("net.ml.unsafe.collections.Malloc");
+            recording.enable("net.ml.unsafe.collections.Realloc");
+            recording.start();
+
+            small = memory.malloc(Integer.BYTES);
+            large = memory.malloc(MIN_SIZE);
+            large = memory.realloc(large, MIN_SIZE, MIN_SIZE * 2);
+
+            recording.stop();
+
+            List<RecordedEvent> events = read(recording);
+            Assert.assertEquals(2, events.size());
+
+            Assert.assertEquals("net.ml.unsafe.collections.Malloc", events.get(0).getEventType().getName());
+            Assert.assertEquals(MIN_SIZE, events.get(0).getInt("size"));
+
+            Assert.assertEquals("net.ml.unsafe.collections.Realloc", events.get(1).getEventType().getName());
+            Assert.assertEquals(large, events.get(1).getLong("address"));
+            Assert.assertEquals(MIN_SIZE * 2, events.get(1).getInt("size"));
+        }
+
+        memory.free(small);
+        memory.free(large);
+    }
+
+    @Test
+    public void blockOperationTest() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable("net.ml.unsafe.collections.BlockOperation").withThreshold(Duration.ZERO);
+            recording.start();
+
+            try (MemoryBlock<String> block = MemoryBlockBuilder.<String>builder()
+                    .capacity(1)
+                    .recorded(true)
+                    .build()) {
+                block.put(0, "flight");
+                Assert.assertEquals("flight", block.get(0));
+            }
+
+            recording.stop();
+
+            List<String> operations = read(recording).stream()
+                    .map(event -> event.getString("operation"))
+                    .collect(Collectors.toList());
+
+            Assert.assertTrue(operations.contains("put"));
+            Assert.assertTrue(operations.contains("get"));
+        }
+    }
+
+    private List<RecordedEvent> read(Recording recording) throws IOException {
+        Path file = folder.newFile().toPath();
+        recording.dump(file);
+
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("net.ml.unsafe.collections"))
+                .collect(Collectors.toList());
+    }
+}
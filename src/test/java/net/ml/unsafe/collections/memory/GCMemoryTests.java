@@ -0,0 +1,74 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GCMemoryTests extends SafeTest {
+    private static final Memory memory = new GCMemory();
+
+    @Test
+    public void storageTest() {
+        long addr = memory.malloc(Long.BYTES * 2);
+        byte[] bytes = { 0x0, 0x4, 0x0, 0x1 };
+
+        Assert.assertArrayEquals(new byte[Long.BYTES * 2], memory.get(addr, Long.BYTES * 2));
+
+        memory.put(addr + 1, bytes);
+        Assert.assertArrayEquals(bytes, memory.get(addr + 1, bytes.length));
+
+        memory.putLong(addr + Long.BYTES, Long.MIN_VALUE);
+        Assert.assertEquals(Long.MIN_VALUE, memory.getLong(addr + Long.BYTES));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void uniqueAddressTest() {
+        long addrA = memory.malloc(Integer.BYTES);
+        memory.free(addrA);
+        long addrB = memory.malloc(Integer.BYTES);
+
+        Assert.assertNotEquals(addrA, addrB);
+
+        memory.free(addrB);
+    }
+
+    @Test
+    public void largeAllocationTest() {
+        int size = GCMemory.PAGE_SIZE + 1;
+        long addr = memory.malloc(size);
+
+        memory.putByte(addr + size - 1, (byte) 0x1);
+        Assert.assertEquals(0x1, memory.getByte(addr + size - 1));
+
+        memory.free(addr);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void freedAddressTest() {
+        long addr = memory.malloc(Integer.BYTES);
+        memory.free(addr);
+
+        memory.getInt(addr);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void overrunTest() {
+        long addr = memory.malloc(Long.BYTES);
+
+        try {
+            memory.put(addr, new byte[Long.BYTES + 1]);
+        } finally {
+            memory.free(addr);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doubleFreeTest() {
+        long addr = memory.malloc(Integer.BYTES);
+        memory.free(addr);
+
+        memory.free(addr);
+    }
+}
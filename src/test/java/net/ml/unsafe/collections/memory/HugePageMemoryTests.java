@@ -0,0 +1,53 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HugePageMemoryTests extends SafeTest {
+    private static final int THRESHOLD = 1 << 12;
+    private static final Memory memory = new HugePageMemory(new UnsafeMemory(), THRESHOLD, true);
+
+    @Test
+    public void largeAllocationTest() {
+        long addr = memory.malloc(THRESHOLD);
+
+        if (HugePageMemory.isAvailable())
+            Assert.assertEquals(0, addr % HugePageMemory.HUGE_PAGE_SIZE);
+
+        Assert.assertArrayEquals(new byte[Long.BYTES], memory.get(addr + THRESHOLD - Long.BYTES, Long.BYTES));
+
+        memory.putLong(addr + THRESHOLD - Long.BYTES, Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, memory.getLong(addr + THRESHOLD - Long.BYTES));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void smallAllocationTest() {
+        long addr = memory.malloc(Integer.BYTES);
+
+        memory.putInt(addr, Integer.MIN_VALUE);
+        Assert.assertEquals(Integer.MIN_VALUE, memory.getInt(addr));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void reallocationTest() {
+        byte[] bytes = { 0x0, 0x4, 0x0, 0x1 };
+        long addr = memory.malloc(Integer.BYTES);
+        memory.put(addr, bytes);
+
+        long mapped = memory.realloc(addr, Integer.BYTES, THRESHOLD);
+        Assert.assertArrayEquals(bytes, memory.get(mapped, Integer.BYTES));
+
+        long grown = memory.realloc(mapped, THRESHOLD, THRESHOLD * 2);
+        if (HugePageMemory.isAvailable()) Assert.assertEquals(mapped, grown);
+
+        Assert.assertArrayEquals(bytes, memory.get(grown, Integer.BYTES));
+        Assert.assertArrayEquals(new byte[Integer.BYTES], memory.get(grown + THRESHOLD, Integer.BYTES));
+
+        memory.free(grown);
+    }
+}
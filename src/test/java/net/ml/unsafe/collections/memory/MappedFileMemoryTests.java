@@ -0,0 +1,138 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.memory.blocks.ArrayMemoryBlock;
+import net.ml.unsafe.collections.memory.blocks.MemoryBlock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MappedFileMemoryTests extends SafeTest {
+    private static final int SEGMENT_SIZE = 1 << 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private MappedFileMemory memory;
+
+    @Before
+    public void openMemory() throws IOException {
+        file = folder.newFile().toPath();
+        memory = new MappedFileMemory(file, SEGMENT_SIZE);
+    }
+
+    @After
+    public void closeMemory() {
+        memory.close();
+    }
+
+    @Test
+    public void storageTest() {
+        long addrA = memory.malloc(Integer.BYTES);
+        long addrB = memory.malloc(Integer.BYTES);
+        byte[] aBytes = { 0x0, 0x4, 0x0, 0x0 };
+        byte[] bBytes = { 0x0, 0x0, 0x1, 0x0 };
+
+        memory.put(addrA, aBytes);
+        memory.put(addrB, bBytes);
+
+        Assert.assertArrayEquals(aBytes, memory.get(addrA, Integer.BYTES));
+        Assert.assertArrayEquals(bBytes, memory.get(addrB, Integer.BYTES));
+
+        memory.free(addrA);
+        memory.free(addrB);
+    }
+
+    @Test
+    public void reuseTest() {
+        long addr = memory.malloc(Long.BYTES);
+        memory.putLong(addr, -1L);
+        memory.free(addr);
+
+        long reused = memory.malloc(Long.BYTES);
+
+        Assert.assertEquals(addr, reused);
+        Assert.assertEquals(0L, memory.getLong(reused));
+
+        memory.free(reused);
+    }
+
+    @Test
+    public void segmentGrowthTest() {
+        int size = SEGMENT_SIZE / 4;
+        long[] addrs = new long[8];
+
+        for (int i = 0; i < addrs.length; ++i) {
+            addrs[i] = memory.malloc(size);
+            memory.putInt(addrs[i] + size - Integer.BYTES, i);
+        }
+
+        for (int i = 0; i < addrs.length; ++i) {
+            Assert.assertEquals(i, memory.getInt(addrs[i] + size - Integer.BYTES));
+            memory.free(addrs[i]);
+        }
+    }
+
+    @Test
+    public void largeReuseTest() throws IOException {
+        long addr = memory.malloc(SEGMENT_SIZE * 2);
+        memory.putLong(addr, -1L);
+        long fileSize = Files.size(file);
+
+        memory.free(addr);
+        long reused = memory.malloc(SEGMENT_SIZE + 1);
+
+        Assert.assertEquals(fileSize, Files.size(file));
+        Assert.assertEquals(0L, memory.getLong(reused));
+        Assert.assertEquals(0L, memory.getLong(reused + SEGMENT_SIZE + 1 - Long.BYTES));
+
+        memory.free(reused);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedTest() {
+        long addr = memory.malloc(Long.BYTES);
+        memory.close();
+
+        memory.putLong(addr, 1L);
+        Assert.assertEquals(1L, memory.getLong(addr));
+        memory.malloc(Long.BYTES);
+    }
+
+    @Test
+    public void largeAllocationTest() {
+        long addr = memory.malloc(SEGMENT_SIZE * 2);
+        memory.putLong(addr + SEGMENT_SIZE * 2 - Long.BYTES, 42L);
+
+        long newAddr = memory.realloc(addr, SEGMENT_SIZE * 2, SEGMENT_SIZE * 3);
+
+        Assert.assertNotEquals(addr, newAddr);
+        Assert.assertEquals(42L, memory.getLong(newAddr + SEGMENT_SIZE * 2 - Long.BYTES));
+        Assert.assertEquals(0L, memory.getLong(newAddr + SEGMENT_SIZE * 3 - Long.BYTES));
+
+        memory.free(newAddr);
+    }
+
+    @Test
+    public void arrayBlockTest() {
+        try (MemoryBlock<Integer> block = ArrayMemoryBlock.<Integer>builder()
+                .classSize(Integer.BYTES + 1)
+                .capacity(SEGMENT_SIZE)
+                .memory(memory)
+                .build()) {
+            block.put(0, 1);
+            block.put(SEGMENT_SIZE - 1, 2);
+
+            Assert.assertEquals(Integer.valueOf(1), block.get(0));
+            Assert.assertEquals(Integer.valueOf(2), block.get(SEGMENT_SIZE - 1));
+        }
+    }
+}
@@ -5,6 +5,8 @@ import net.ml.unsafe.collections.SafeTest;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 @Slf4j
 public class MemoryTests extends SafeTest {
     private static final Memory memory = new UnsafeMemory();
@@ -30,6 +32,63 @@ public class MemoryTests extends SafeTest {
         memory.free(newAddr);
     }
 
+    @Test
+    public void allocationFlagsTest() {
+        int size = 3 * 4096 + 1;
+        long addr = memory.malloc(size, AllocationFlags.UNINITIALIZED | AllocationFlags.PRE_TOUCH);
+        memory.fill(addr, size, (byte) 1);
+
+        long newAddr = memory.realloc(addr, size, size * 2, AllocationFlags.UNINITIALIZED);
+        Assert.assertEquals(1, memory.getByte(newAddr + size - 1));
+
+        newAddr = memory.realloc(newAddr, size * 2, size * 3, AllocationFlags.ZEROED);
+        Assert.assertEquals(0, memory.getByte(newAddr + size * 3 - 1));
+
+        memory.free(newAddr);
+
+        addr = memory.malloc(size, AllocationFlags.PRE_TOUCH);
+        Assert.assertEquals(0, memory.getByte(addr + size - 1));
+        memory.free(addr);
+    }
+
+    @Test
+    public void decoratorFlagsTest() {
+        int size = 8192;
+        int[] flags = new int[1];
+        Memory inner = new ForwardingMemory(memory) {
+            @Override
+            public long malloc(int size, int f) {
+                flags[0] = f;
+                return super.malloc(size, f);
+            }
+        };
+
+        Memory[] decorators = {
+                new LoggedMemory(inner), new TrackedMemory(inner), new AccountedMemory(inner),
+                new RecordedMemory(inner), new FlightRecorderMemory(inner), new HugePageMemory(inner),
+                new SlabMemory(inner), new ThreadCachedMemory(inner)
+        };
+
+        for (Memory decorator : decorators) {
+            flags[0] = AllocationFlags.ZEROED;
+            long addr = decorator.malloc(size, AllocationFlags.UNINITIALIZED);
+
+            Assert.assertEquals(decorator.getClass().getSimpleName(), AllocationFlags.UNINITIALIZED, flags[0]);
+            decorator.free(addr);
+        }
+    }
+
+    @Test
+    public void decoratorReleasesOnFreeTest() {
+        try (ArenaMemory arena = new ArenaMemory(memory)) {
+            Assert.assertFalse(new LoggedMemory(arena).releasesOnFree());
+            Assert.assertFalse(new TrackedMemory(arena).releasesOnFree());
+            Assert.assertFalse(new RecordedMemory(arena).releasesOnFree());
+            Assert.assertTrue(new SlabMemory(arena).releasesOnFree());
+            Assert.assertTrue(new AccountedMemory(arena).releasesOnFree());
+        }
+    }
+
     @Test
     public void storageTest() {
         long addr = memory.malloc(Integer.BYTES * 2);
@@ -47,4 +106,112 @@ public class MemoryTests extends SafeTest {
 
         memory.free(addr);
     }
+
+    @Test
+    public void rangeStorageTest() {
+        long addr = memory.malloc(Integer.BYTES);
+        byte[] bytes = { 0x7, 0x0, 0x4, 0x0, 0x1, 0x7 };
+        byte[] loaded = new byte[bytes.length];
+
+        memory.put(addr, bytes, 1, Integer.BYTES);
+        memory.get(addr, loaded, 1, Integer.BYTES);
+
+        Assert.assertArrayEquals(new byte[] { 0x0, 0x0, 0x4, 0x0, 0x1, 0x0 }, loaded);
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void bufferStorageTest() {
+        long addr = memory.malloc(Long.BYTES);
+        ByteBuffer heap = ByteBuffer.allocate(Long.BYTES).putLong(0, 42L);
+        ByteBuffer direct = ByteBuffer.allocateDirect(Long.BYTES);
+
+        memory.put(addr, heap);
+        memory.get(addr, direct);
+
+        Assert.assertFalse(heap.hasRemaining());
+        Assert.assertFalse(direct.hasRemaining());
+        Assert.assertEquals(42L, direct.getLong(0));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void moveTest() {
+        long addr = memory.malloc(Long.BYTES + 2);
+        byte[] bytes = { 0x1, 0x2, 0x3, 0x4, 0x5, 0x6, 0x7, 0x8 };
+
+        memory.put(addr, bytes);
+        memory.move(addr, addr + 2, bytes.length);
+
+        Assert.assertArrayEquals(bytes, memory.get(addr + 2, bytes.length));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void fillTest() {
+        long addr = memory.malloc(Integer.BYTES);
+
+        memory.fill(addr, Integer.BYTES, (byte) 0x7f);
+
+        Assert.assertArrayEquals(new byte[] { 0x7f, 0x7f, 0x7f, 0x7f }, memory.get(addr, Integer.BYTES));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void compareTest() {
+        int size = Long.BYTES + 3;
+        long addrA = memory.malloc(size);
+        long addrB = memory.malloc(size);
+
+        Assert.assertTrue(memory.equals(addrA, addrB, size));
+        Assert.assertEquals(0, memory.compare(addrA, addrB, size));
+
+        memory.put(addrB + Long.BYTES + 1, new byte[] { (byte) 0x80 });
+        memory.put(addrA + 1, new byte[] { 0x1 });
+
+        Assert.assertFalse(memory.equals(addrA, addrB, size));
+        Assert.assertTrue(memory.compare(addrA, addrB, size) > 0);
+        Assert.assertTrue(memory.compare(addrA + 2, addrB + 2, size - 2) < 0);
+
+        memory.free(addrA);
+        memory.free(addrB);
+    }
+
+    @Test
+    public void primitiveTest() {
+        long addr = memory.malloc(Long.BYTES + Integer.BYTES + Short.BYTES);
+
+        memory.putLong(addr, Long.MIN_VALUE + 7);
+        memory.putInt(addr + Long.BYTES, -42);
+        memory.putShort(addr + Long.BYTES + Integer.BYTES, (short) 513);
+
+        Assert.assertEquals(Long.MIN_VALUE + 7, memory.getLong(addr));
+        Assert.assertEquals(-42, memory.getInt(addr + Long.BYTES));
+        Assert.assertEquals((short) 513, memory.getShort(addr + Long.BYTES + Integer.BYTES));
+
+        memory.putDouble(addr, 1.5d);
+        Assert.assertEquals(1.5d, memory.getDouble(addr), 0);
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void atomicTest() {
+        long addr = memory.malloc(Long.BYTES);
+
+        memory.putLongOrdered(addr, 1L);
+        Assert.assertTrue(memory.compareAndSwapLong(addr, 1L, 2L));
+        Assert.assertFalse(memory.compareAndSwapLong(addr, 1L, 3L));
+        Assert.assertEquals(2L, memory.getLongVolatile(addr));
+
+        memory.putIntVolatile(addr, 5);
+        Assert.assertTrue(memory.compareAndSwapInt(addr, 5, 6));
+        Assert.assertEquals(6, memory.getIntVolatile(addr));
+
+        memory.free(addr);
+    }
 }
@@ -0,0 +1,112 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class RecordedMemoryTests extends SafeTest {
+    @Test
+    public void recordTest() {
+        try (RecordedMemory memory = new RecordedMemory(new UnsafeMemory(), 16, false)) {
+            long addr = memory.malloc(Integer.BYTES);
+            memory.put(addr, new byte[Integer.BYTES]);
+            long newAddr = memory.realloc(addr, Integer.BYTES, Long.BYTES);
+            memory.free(newAddr);
+
+            List<MemoryEvent> events = memory.lastEvents(16);
+            Assert.assertEquals(3, events.size());
+
+            Assert.assertEquals(MemoryEvent.Op.MALLOC, events.get(0).getOp());
+            Assert.assertEquals(addr, events.get(0).getAddress());
+            Assert.assertEquals(Integer.BYTES, events.get(0).getSize());
+
+            Assert.assertEquals(MemoryEvent.Op.REALLOC, events.get(1).getOp());
+            Assert.assertEquals(newAddr, events.get(1).getAddress());
+            Assert.assertEquals(addr, events.get(1).getOtherAddress());
+
+            Assert.assertEquals(MemoryEvent.Op.FREE, events.get(2).getOp());
+            Assert.assertEquals(Thread.currentThread().getId(), events.get(2).getThreadId());
+        }
+    }
+
+    @Test
+    public void accessTest() {
+        try (RecordedMemory memory = new RecordedMemory(new UnsafeMemory(), 16, true)) {
+            long addr = memory.malloc(Long.BYTES);
+            memory.put(addr, new byte[Integer.BYTES]);
+            memory.get(addr, Long.BYTES);
+            memory.free(addr);
+
+            List<MemoryEvent> events = memory.lastEvents(2);
+            Assert.assertEquals(MemoryEvent.Op.GET, events.get(0).getOp());
+            Assert.assertEquals(Long.BYTES, events.get(0).getSize());
+            Assert.assertEquals(MemoryEvent.Op.FREE, events.get(1).getOp());
+        }
+    }
+
+    @Test
+    public void typedAccessTest() {
+        try (RecordedMemory memory = new RecordedMemory(new UnsafeMemory(), 16, true)) {
+            long addr = memory.malloc(Long.BYTES);
+            memory.putInt(addr, 7);
+            memory.getLongVolatile(addr);
+            memory.compareAndSwapLong(addr, 7, 8);
+            memory.free(addr);
+
+            List<MemoryEvent> events = memory.lastEvents(4);
+            Assert.assertEquals(MemoryEvent.Op.PUT, events.get(0).getOp());
+            Assert.assertEquals(Integer.BYTES, events.get(0).getSize());
+            Assert.assertEquals(MemoryEvent.Op.GET, events.get(1).getOp());
+            Assert.assertEquals(Long.BYTES, events.get(1).getSize());
+            Assert.assertEquals(MemoryEvent.Op.PUT, events.get(2).getOp());
+            Assert.assertEquals(addr, events.get(2).getAddress());
+        }
+    }
+
+    @Test
+    public void typedUnrecordedTest() {
+        try (RecordedMemory memory = new RecordedMemory(new UnsafeMemory(), 16, false)) {
+            long addr = memory.malloc(Long.BYTES);
+            memory.putLong(addr, 7);
+
+            Assert.assertEquals(7, memory.getLong(addr));
+            Assert.assertEquals(1, memory.recorded());
+            memory.free(addr);
+        }
+    }
+
+    @Test
+    public void ringMemoryTest() {
+        TrackedMemory tracked = new TrackedMemory(new UnsafeMemory());
+
+        try (RecordedMemory memory = new RecordedMemory(tracked, 16, false)) {
+            Assert.assertTrue(tracked.hasMemoryLeaks());
+            Assert.assertEquals(0, memory.recorded());
+        }
+
+        Assert.assertFalse(tracked.hasMemoryLeaks());
+    }
+
+    @Test
+    public void wrapTest() {
+        try (RecordedMemory memory = new RecordedMemory(new UnsafeMemory(), 4, false)) {
+            long[] addresses = new long[10];
+
+            for (int i = 0; i < addresses.length; ++i) {
+                addresses[i] = memory.malloc(i + 1);
+            }
+
+            List<MemoryEvent> events = memory.lastEvents(10);
+            Assert.assertEquals(10, memory.recorded());
+            Assert.assertEquals(4, events.size());
+            Assert.assertEquals(6, events.get(0).getSequence());
+            Assert.assertEquals(10, events.get(3).getSize());
+
+            for (long addr : addresses) {
+                memory.free(addr);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class SegmentMemoryTests extends SafeTest {
+    private Memory memory;
+
+    @Before
+    public void setup() {
+        //segment memory is only available on java 22 and later, where it must be registered
+        Assume.assumeTrue(javaVersion() >= 22);
+        Assert.assertTrue(MemoryFactory.isRegistered(MemoryType.SEGMENT.name()));
+        memory = MemoryFactory.getMemory(MemoryType.SEGMENT);
+    }
+
+    @Test
+    public void nativeAddressesTest() {
+        Assert.assertFalse(memory.hasNativeAddresses());
+    }
+
+    @Test
+    public void storageTest() {
+        long addrA = memory.malloc(Integer.BYTES);
+        long addrB = memory.malloc(Integer.BYTES);
+        byte[] aBytes = { 0x0, 0x4, 0x0, 0x0 };
+        byte[] bBytes = { 0x0, 0x0, 0x1, 0x0 };
+
+        Assert.assertArrayEquals(new byte[Integer.BYTES], memory.get(addrA, Integer.BYTES));
+
+        memory.put(addrA, aBytes);
+        memory.put(addrB, ByteBuffer.wrap(bBytes));
+        Assert.assertArrayEquals(aBytes, memory.get(addrA, Integer.BYTES));
+        Assert.assertArrayEquals(bBytes, memory.get(addrB, Integer.BYTES));
+
+        memory.swap(addrA, addrB, Integer.BYTES);
+        Assert.assertArrayEquals(bBytes, memory.get(addrA, Integer.BYTES));
+        Assert.assertArrayEquals(aBytes, memory.get(addrB, Integer.BYTES));
+
+        memory.free(addrA);
+        memory.free(addrB);
+    }
+
+    @Test
+    public void reallocationTest() {
+        byte[] bytes = { 0x0, 0x4, 0x0, 0x1 };
+        long addr = memory.malloc(Integer.BYTES);
+        memory.put(addr, bytes);
+
+        long newAddr = memory.realloc(addr, Integer.BYTES, Long.BYTES);
+        Assert.assertArrayEquals(bytes, memory.get(newAddr, Integer.BYTES));
+        Assert.assertArrayEquals(new byte[Integer.BYTES], memory.get(newAddr + Integer.BYTES, Integer.BYTES));
+
+        memory.free(newAddr);
+    }
+
+    @Test
+    public void primitiveTest() {
+        long addr = memory.malloc(Long.BYTES * 2);
+
+        memory.putLong(addr, Long.MIN_VALUE);
+        memory.putDouble(addr + Long.BYTES, Math.PI);
+        Assert.assertEquals(Long.MIN_VALUE, memory.getLong(addr));
+        Assert.assertEquals(Math.PI, memory.getDouble(addr + Long.BYTES), 0);
+
+        Assert.assertTrue(memory.compareAndSwapLong(addr, Long.MIN_VALUE, 1L));
+        Assert.assertFalse(memory.compareAndSwapLong(addr, Long.MIN_VALUE, 2L));
+        Assert.assertEquals(1L, memory.getLongVolatile(addr));
+
+        memory.fill(addr, Long.BYTES * 2, (byte) 0xFF);
+        Assert.assertTrue(memory.equals(addr, addr + Long.BYTES, Long.BYTES));
+
+        memory.putByte(addr, (byte) 0x1);
+        Assert.assertTrue(memory.compare(addr, addr + Long.BYTES, Long.BYTES) < 0);
+
+        memory.free(addr);
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    }
+}
@@ -0,0 +1,113 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SlabMemoryTests extends SafeTest {
+    private static final Memory memory = new SlabMemory(new UnsafeMemory());
+
+    @Test
+    public void allocationTest() {
+        long addr = memory.malloc(Integer.BYTES);
+
+        Assert.assertTrue(addr > 0);
+        Assert.assertArrayEquals(new byte[Integer.BYTES], memory.get(addr, Integer.BYTES));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void reuseTest() {
+        long addr = memory.malloc(Long.BYTES);
+        memory.put(addr, new byte[] { 0x1, 0x2, 0x3, 0x4, 0x5, 0x6, 0x7, 0x8 });
+        memory.free(addr);
+
+        long reused = memory.malloc(Long.BYTES);
+
+        Assert.assertEquals(addr, reused);
+        Assert.assertArrayEquals(new byte[Long.BYTES], memory.get(reused, Long.BYTES));
+
+        memory.free(reused);
+    }
+
+    @Test
+    public void largeAllocationTest() {
+        int size = SlabMemory.MAX_SLAB_SIZE + 1;
+        long addr = memory.malloc(size);
+        byte[] bytes = new byte[size];
+        bytes[size - 1] = 0x1;
+
+        memory.put(addr, bytes);
+        Assert.assertArrayEquals(bytes, memory.get(addr, size));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void reallocationTest() {
+        byte[] bytes = { 0x0, 0x4, 0x0, 0x1 };
+        long addr = memory.malloc(Integer.BYTES);
+        memory.put(addr, bytes);
+
+        long sameAddr = memory.realloc(addr, Integer.BYTES, Long.BYTES);
+        Assert.assertEquals(addr, sameAddr);
+
+        long newAddr = memory.realloc(sameAddr, Long.BYTES, SlabMemory.MAX_SLAB_SIZE * 2);
+        Assert.assertNotEquals(addr, newAddr);
+        Assert.assertArrayEquals(bytes, memory.get(newAddr, Integer.BYTES));
+        Assert.assertArrayEquals(new byte[Integer.BYTES], memory.get(newAddr + Integer.BYTES, Integer.BYTES));
+
+        memory.free(newAddr);
+    }
+
+    @Test
+    public void storageTest() {
+        long addrA = memory.malloc(Integer.BYTES);
+        long addrB = memory.malloc(Integer.BYTES);
+        byte[] aBytes = { 0x0, 0x4, 0x0, 0x0 };
+        byte[] bBytes = { 0x0, 0x0, 0x1, 0x0 };
+
+        memory.put(addrA, aBytes);
+        memory.put(addrB, bBytes);
+
+        Assert.assertArrayEquals(aBytes, memory.get(addrA, Integer.BYTES));
+        Assert.assertArrayEquals(bBytes, memory.get(addrB, Integer.BYTES));
+
+        memory.free(addrA);
+        memory.free(addrB);
+    }
+
+    @Test
+    public void trimTest() {
+        int chunkSize = 1 << 13;
+        int slots = chunkSize / (Long.BYTES + Long.BYTES);
+        TrackedMemory tracked = new TrackedMemory(new UnsafeMemory());
+
+        try (SlabMemory slab = new SlabMemory(tracked, chunkSize)) {
+            long[] addresses = new long[slots * 3];
+            for (int i = 0; i < addresses.length; ++i) {
+                addresses[i] = slab.malloc(Long.BYTES);
+            }
+
+            //a single live slot keeps its chunk
+            for (int i = 1; i < addresses.length; ++i) {
+                slab.free(addresses[i]);
+            }
+            slab.putLong(addresses[0], 42L);
+
+            Assert.assertEquals(2L * chunkSize, slab.trim());
+            Assert.assertEquals(0, slab.trim());
+            Assert.assertEquals(42L, slab.getLong(addresses[0]));
+
+            slab.free(addresses[0]);
+            Assert.assertEquals(chunkSize, slab.trim());
+            Assert.assertFalse(tracked.hasMemoryLeaks());
+
+            long addr = slab.malloc(Long.BYTES);
+            Assert.assertEquals(0L, slab.getLong(addr));
+        }
+
+        Assert.assertFalse(tracked.hasMemoryLeaks());
+    }
+}
@@ -0,0 +1,176 @@
+package net.ml.unsafe.collections.memory;
+
+import net.ml.unsafe.collections.SafeTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ThreadCachedMemoryTests extends SafeTest {
+    private static final int BATCH_SIZE = 4;
+    private static final int SIZE = 1 << 10;
+    private static final ThreadCachedMemory memory = new ThreadCachedMemory(new UnsafeMemory(), BATCH_SIZE);
+
+    @Test
+    public void reuseTest() {
+        long addr = memory.malloc(Long.BYTES);
+        memory.putLong(addr, Long.MAX_VALUE);
+        memory.free(addr);
+
+        long reused = memory.malloc(Long.BYTES);
+
+        Assert.assertEquals(addr, reused);
+        Assert.assertEquals(0, memory.getLong(reused));
+
+        memory.free(reused);
+    }
+
+    @Test
+    public void sharedPoolTest() throws InterruptedException {
+        Set<Long> freed = new HashSet<>();
+
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < BATCH_SIZE; ++i) {
+                long addr = memory.malloc(SIZE);
+                freed.add(addr);
+                memory.free(addr);
+            }
+
+            memory.flush();
+        });
+
+        thread.start();
+        thread.join();
+
+        long addr = memory.malloc(SIZE);
+        Assert.assertTrue(freed.contains(addr));
+
+        memory.free(addr);
+    }
+
+    @Test
+    public void trimTest() throws InterruptedException {
+        TrackedMemory tracked = new TrackedMemory(new UnsafeMemory());
+
+        try (ThreadCachedMemory cached = new ThreadCachedMemory(tracked, BATCH_SIZE)) {
+            //finishes without flushing its cache
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < BATCH_SIZE * 3; ++i) {
+                    cached.free(cached.malloc(SIZE << (i % 3)));
+                }
+            });
+
+            thread.start();
+            thread.join();
+
+            cached.free(cached.malloc(Long.BYTES));
+            Assert.assertTrue(tracked.hasMemoryLeaks());
+
+            Assert.assertTrue(cached.trim() > 0);
+            Assert.assertFalse(tracked.hasMemoryLeaks());
+
+            long addr = cached.malloc(Long.BYTES);
+            cached.putLong(addr, Long.MAX_VALUE);
+            cached.free(addr);
+        }
+
+        Assert.assertFalse(tracked.hasMemoryLeaks());
+    }
+
+    @Test
+    public void concurrentTrimTest() throws InterruptedException {
+        Set<Long> live = ConcurrentHashMap.newKeySet();
+        AtomicInteger doubleFrees = new AtomicInteger();
+        Memory counted = new ForwardingMemory(new UnsafeMemory()) {
+            @Override
+            public long malloc(int size) {
+                long addr = super.malloc(size);
+                live.add(addr);
+                return addr;
+            }
+
+            @Override
+            public void free(long address) {
+                if (live.remove(address)) {
+                    super.free(address);
+                } else {
+                    doubleFrees.incrementAndGet();
+                }
+            }
+        };
+
+        try (ThreadCachedMemory cached = new ThreadCachedMemory(counted, BATCH_SIZE)) {
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread trimmer = new Thread(() -> {
+                while (running.get()) cached.trim();
+            });
+            trimmer.start();
+
+            //threads finish without flushing while others start and the trimmer reclaims them
+            for (int round = 0; round < 32; ++round) {
+                Thread[] threads = new Thread[8];
+
+                for (int i = 0; i < threads.length; ++i) {
+                    threads[i] = new Thread(() -> {
+                        long[] addresses = new long[BATCH_SIZE * 3];
+                        for (int j = 0; j < addresses.length; ++j) addresses[j] = cached.malloc(SIZE);
+                        for (long addr : addresses) cached.free(addr);
+                    });
+                    threads[i].start();
+                }
+
+                for (Thread thread : threads) thread.join();
+            }
+
+            running.set(false);
+            trimmer.join();
+        }
+
+        Assert.assertEquals(0, doubleFrees.get());
+        Assert.assertTrue(live.isEmpty());
+    }
+
+    @Test
+    public void batchTest() {
+        long[] addresses = new long[BATCH_SIZE * 3];
+
+        for (int i = 0; i < addresses.length; ++i) {
+            addresses[i] = memory.malloc(Integer.BYTES);
+            memory.putInt(addresses[i], i);
+        }
+
+        for (int i = 0; i < addresses.length; ++i) {
+            Assert.assertEquals(i, memory.getInt(addresses[i]));
+            memory.free(addresses[i]);
+        }
+
+        for (int i = 0; i < addresses.length; ++i) {
+            addresses[i] = memory.malloc(Integer.BYTES);
+            Assert.assertEquals(0, memory.getInt(addresses[i]));
+        }
+
+        for (long addr : addresses) {
+            memory.free(addr);
+        }
+    }
+
+    @Test
+    public void reallocationTest() {
+        byte[] bytes = { 0x0, 0x4, 0x0, 0x1 };
+        long addr = memory.malloc(Integer.BYTES);
+        memory.put(addr, bytes);
+
+        long sameAddr = memory.realloc(addr, Integer.BYTES, Long.BYTES);
+        Assert.assertEquals(addr, sameAddr);
+
+        long newAddr = memory.realloc(sameAddr, Long.BYTES, ThreadCachedMemory.MAX_CACHED_SIZE * 2);
+        Assert.assertArrayEquals(bytes, memory.get(newAddr, Integer.BYTES));
+        Assert.assertArrayEquals(new byte[Integer.BYTES], memory.get(newAddr + Integer.BYTES, Integer.BYTES));
+
+        memory.free(newAddr);
+    }
+}
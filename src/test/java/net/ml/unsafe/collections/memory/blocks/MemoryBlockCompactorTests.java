@@ -0,0 +1,142 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.memory.ForwardingMemory;
+import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.memory.TrackedMemory;
+import net.ml.unsafe.collections.memory.UnsafeMemory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MemoryBlockCompactorTests extends SafeTest {
+    private static final int SIZE = 100;
+
+    @Test
+    public void arrayReferenceBlockTest() {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        compactTest(ArrayReferenceMemoryBlock.<String>builder().capacity(SIZE).memory(memory).build(), memory);
+    }
+
+    @Test
+    public void linkedReferenceBlockTest() {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        compactTest(LinkedReferenceMemoryBlock.<String>builder().capacity(SIZE).memory(memory).build(), memory);
+    }
+
+    @Test
+    public void linkedReferenceBlockStepTest() {
+        int size = 1 << 13;
+        int step = 64;
+        AtomicLong reads = new AtomicLong();
+        Memory memory = new ForwardingMemory(new UnsafeMemory()) {
+            @Override
+            public long getLong(long address) {
+                reads.incrementAndGet();
+                return super.getLong(address);
+            }
+        };
+
+        try (MemoryBlock<String> block = LinkedReferenceMemoryBlock.<String>builder().memory(memory).build()) {
+            for (int i = 0; i < size; ++i) {
+                block.put(i, "value " + i);
+            }
+
+            for (int i = 0; i < size; i += 2) {
+                block.replace(i, "replaced " + i);
+            }
+
+            //steps walk on from the previous one instead of from the head, linear in the size
+            reads.set(0);
+            new MemoryBlockCompactor(block, step).compact();
+            Assert.assertTrue("reads: " + reads.get(), reads.get() < 4L * size);
+
+            for (int i = 0; i < size; ++i) {
+                Assert.assertEquals(i % 2 == 0 ? "replaced " + i : "value " + i, block.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void arrayBlockTest() {
+        try (MemoryBlock<Integer> block = ArrayMemoryBlock.<Integer>builder().classSize(Integer.BYTES).build()) {
+            block.put(0, 1);
+            new MemoryBlockCompactor(block).compact();
+            Assert.assertEquals(1, (int) block.get(0));
+        }
+    }
+
+    @Test
+    public void scheduleTest() throws Exception {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        try (MemoryBlock<String> block = new ReadWriteLockMemoryBlock<>(
+                ArrayReferenceMemoryBlock.<String>builder().capacity(SIZE).memory(memory).build())) {
+            fill(block);
+
+            ScheduledFuture<?> future = new MemoryBlockCompactor(block, 10).schedule(executor, 1, TimeUnit.MILLISECONDS);
+
+            for (int i = 0; i < SIZE; ++i) {
+                block.replace(i, "replaced " + i);
+            }
+
+            Thread.sleep(50);
+            future.cancel(false);
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            for (int i = 0; i < SIZE; ++i) {
+                Assert.assertEquals("replaced " + i, block.get(i));
+            }
+        }
+
+        Assert.assertFalse(memory.hasMemoryLeaks());
+    }
+
+    private static void compactTest(MemoryBlock<String> block, TrackedMemory memory) {
+        try (MemoryBlock<String> compacted = block) {
+            fill(compacted);
+
+            //churn the values so they are scattered
+            for (int i = 0; i < SIZE; i += 2) {
+                compacted.replace(i, "replaced " + i);
+            }
+
+            int scattered = memory.memoryMap().size();
+            MemoryBlockCompactor compactor = new MemoryBlockCompactor(compacted, 10);
+
+            Assert.assertFalse(compactor.step());
+            compactor.compact();
+
+            int allocations = memory.memoryMap().size();
+            Assert.assertTrue(allocations < scattered - SIZE / 2);
+
+            //already compacted values stay in place
+            compactor.compact();
+            Assert.assertEquals(allocations, memory.memoryMap().size());
+
+            for (int i = 0; i < SIZE; ++i) {
+                Assert.assertEquals(i % 2 == 0 ? "replaced " + i : "value " + i, compacted.get(i));
+            }
+
+            //values freed from a region release it once empty
+            for (int i = 0; i < SIZE; ++i) {
+                compacted.replace(i, "again " + i);
+            }
+        }
+
+        Assert.assertFalse(memory.hasMemoryLeaks());
+    }
+
+    private static void fill(MemoryBlock<String> block) {
+        for (int i = 0; i < SIZE; ++i) {
+            block.replace(i, "value " + i);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.memory.UnsafeMemory;
+import net.ml.unsafe.collections.serialize.ByteStreamSerializer;
+import net.ml.unsafe.collections.serialize.KryoSerializer;
+import net.ml.unsafe.collections.serialize.LongSerializer;
+import net.ml.unsafe.collections.serialize.struct.Struct;
+import net.ml.unsafe.collections.serialize.struct.StructField;
+import net.ml.unsafe.collections.serialize.struct.StructSerializer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MemoryBlockSnapshotTests extends SafeTest {
+    private static final int SIZE = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshotTest() throws IOException {
+        Path file = folder.newFile().toPath();
+
+        try (MemoryBlock<Long> block = MemoryBlockBuilder.<Long>builder()
+                .classType(Long.class)
+                .capacity(SIZE)
+                .bounded(true)
+                .build()) {
+            for (int i = 0; i < SIZE; ++i) {
+                block.put(i, (long) i * i);
+            }
+
+            block.snapshot(file);
+        }
+
+        try (MemoryBlock<Long> restored = ArrayMemoryBlock.restore(file, new LongSerializer(), new UnsafeMemory())) {
+            Assert.assertEquals(SIZE, restored.size());
+
+            for (int i = 0; i < SIZE; ++i) {
+                Assert.assertEquals((long) i * i, (long) restored.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void serializerMismatchTest() throws IOException {
+        Path file = folder.newFile().toPath();
+
+        try (MemoryBlock<Long> block = ArrayMemoryBlock.<Long>builder().classSize(Long.BYTES).build()) {
+            block.snapshot(file);
+        }
+
+        ArrayMemoryBlock.restore(file, new ByteStreamSerializer<Long>(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void boundSerializerMismatchTest() throws IOException {
+        Path file = folder.newFile().toPath();
+
+        try (MemoryBlock<Long> block = ArrayMemoryBlock.<Long>builder()
+                .classSize(16)
+                .serializer(KryoSerializer.<Long>builder().type(Long.class).build())
+                .build()) {
+            block.put(0, 42L);
+            block.snapshot(file);
+        }
+
+        try (MemoryBlock<Long> restored = ArrayMemoryBlock.restore(file,
+                KryoSerializer.<Long>builder().type(Long.class).build(), null)) {
+            Assert.assertEquals(42L, (long) restored.get(0));
+        }
+
+        ArrayMemoryBlock.restore(file, new KryoSerializer<Long>(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void structMismatchTest() throws IOException {
+        Path file = folder.newFile().toPath();
+
+        try (MemoryBlock<Point> block = MemoryBlockBuilder.<Point>builder()
+                .classType(Point.class)
+                .capacity(1)
+                .build()) {
+            block.put(0, new Point(1, 2));
+            block.snapshot(file);
+        }
+
+        try (MemoryBlock<Point> restored = ArrayMemoryBlock.restore(file, new StructSerializer<>(Point.class), null)) {
+            Assert.assertEquals(2, restored.get(0).y);
+        }
+
+        //the same layout under another struct class
+        ArrayMemoryBlock.restore(file, new StructSerializer<>(Size.class), null);
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void truncatedTest() throws IOException {
+        Path file = folder.newFile().toPath();
+
+        try (MemoryBlock<Long> block = ArrayMemoryBlock.<Long>builder().classSize(Long.BYTES).build()) {
+            block.snapshot(file);
+        }
+
+        Files.write(file, new byte[] { 1, 2, 3 });
+        ArrayMemoryBlock.restore(file, null, null);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void referenceBlockTest() throws IOException {
+        try (MemoryBlock<Long> block = ArrayReferenceMemoryBlock.<Long>builder().build()) {
+            block.snapshot(folder.newFile().toPath());
+        }
+    }
+
+    @Struct
+    private static final class Point {
+        @StructField(order = 0)
+        private int x;
+        @StructField(order = 1)
+        private int y;
+
+        Point() { }
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    @Struct
+    private static final class Size {
+        @StructField(order = 0)
+        private int width;
+        @StructField(order = 1)
+        private int height;
+    }
+}
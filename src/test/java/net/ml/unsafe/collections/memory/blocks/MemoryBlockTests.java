@@ -1,9 +1,15 @@
 package net.ml.unsafe.collections.memory.blocks;
 
 import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.memory.AllocationFlags;
+import net.ml.unsafe.collections.memory.UnsafeMemory;
+import net.ml.unsafe.collections.serialize.ByteSerializer;
+import net.ml.unsafe.collections.serialize.model.Container;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class MemoryBlockTests extends SafeTest {
     @Test
     public void swapArrayBlockTest() {
@@ -35,6 +41,84 @@ public class MemoryBlockTests extends SafeTest {
         reallocationTest(ArrayMemoryBlock.<Integer>builder().classSize(Integer.BYTES).capacity(3).build());
     }
 
+    @Test
+    public void uninitializedArrayBlockTest() {
+        try (MemoryBlock<Integer> memory = MemoryBlockBuilder.<Integer>builder()
+                .classType(Integer.class)
+                .capacity(3)
+                .allocationFlags(AllocationFlags.UNINITIALIZED)
+                .memory(new UnsafeMemory())
+                .build()) {
+            memory.realloc(1024);
+
+            for (int i = 0; i < memory.size(); ++i) {
+                memory.put(i, i);
+            }
+
+            Assert.assertEquals(1023, (int) memory.get(1023));
+        }
+    }
+
+    @Test
+    public void primitiveArrayBlockTest() {
+        try (MemoryBlock<Long> memory = MemoryBlockBuilder.<Long>builder()
+                .classType(Long.class)
+                .capacity(3)
+                .build()) {
+            memory.put(0, Long.MIN_VALUE);
+            memory.put(1, Long.MAX_VALUE);
+            memory.put(2, -1L);
+
+            Assert.assertEquals(Long.MIN_VALUE, (long) memory.get(0));
+            Assert.assertEquals(Long.MAX_VALUE, (long) memory.get(1));
+            Assert.assertEquals(-1L, (long) memory.get(2));
+        }
+    }
+
+    @Test
+    public void primitiveLinkedBlockTest() {
+        try (MemoryBlock<Integer> memory = MemoryBlockBuilder.<Integer>builder()
+                .classType(Integer.class)
+                .capacity(3)
+                .linked(true)
+                .build()) {
+            memory.realloc(5);
+            memory.put(1, 7);
+
+            Assert.assertEquals(0, (int) memory.get(0));
+            Assert.assertEquals(7, (int) memory.get(1));
+            Assert.assertEquals(0, (int) memory.get(5));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void classTypeReferenceBlockTest() {
+        try (MemoryBlock<Container<Integer>> memory = MemoryBlockBuilder.<Container<Integer>>builder()
+                .classType((Class<Container<Integer>>) (Class<?>) Container.class)
+                .build()) {
+            memory.realloc(2);
+            memory.put(0, new Container<>(1, (short) 2, 3));
+
+            Assert.assertEquals(new Container<>(1, (short) 2, 3), memory.get(0));
+            Assert.assertNull(memory.get(1));
+        }
+    }
+
+    @Test
+    public void classTypeSubclassTest() {
+        try (MemoryBlock<Base> memory = MemoryBlockBuilder.<Base>builder()
+                .classType(Base.class)
+                .build()) {
+            memory.realloc(1);
+            memory.put(0, new Sub(1, 2));
+
+            Base value = memory.get(0);
+            Assert.assertTrue(value instanceof Sub);
+            Assert.assertEquals(2, ((Sub) value).y);
+        }
+    }
+
     @Test
     public void swapLinkedBlockTest() {
         swapTest(LinkedMemoryBlock.<Integer>builder().classSize(Integer.BYTES).build());
@@ -95,6 +179,36 @@ public class MemoryBlockTests extends SafeTest {
         reallocationTest(ArrayReferenceMemoryBlock.<Integer>builder().capacity(3).build());
     }
 
+    @Test
+    public void serializeOnceReferenceBlockTest() {
+        AtomicInteger serialized = new AtomicInteger();
+        ByteSerializer<byte[]> serializer = new ByteSerializer<byte[]>() {
+            @Override
+            public byte[] serialize(byte[] input) {
+                serialized.incrementAndGet();
+                return input.clone();
+            }
+
+            @Override
+            public byte[] deserialize(byte[] output) {
+                return output.clone();
+            }
+        };
+
+        try (MemoryBlock<byte[]> memory = ArrayReferenceMemoryBlock.<byte[]>builder()
+                .capacity(1)
+                .serializer(serializer)
+                .memory(new UnsafeMemory())
+                .build()) {
+            byte[] value = new byte[1 << 16];
+            value[value.length - 1] = 7;
+            memory.put(0, value);
+
+            Assert.assertEquals(1, serialized.get());
+            Assert.assertArrayEquals(value, memory.get(0));
+        }
+    }
+
     @Test
     public void swapLinkedReferenceBlockTest() {
         swapTest(LinkedReferenceMemoryBlock.<Integer>builder().build());
@@ -204,4 +318,25 @@ public class MemoryBlockTests extends SafeTest {
             Assert.assertEquals(contentOne, memory.get(1));
         }
     }
+
+    private static class Base {
+        int x;
+
+        Base() {}
+
+        Base(int x) {
+            this.x = x;
+        }
+    }
+
+    private static final class Sub extends Base {
+        int y;
+
+        Sub() {}
+
+        Sub(int x, int y) {
+            super(x);
+            this.y = y;
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.list.MemoryBlockArrayList;
+import net.ml.unsafe.collections.memory.TrackedMemory;
+import net.ml.unsafe.collections.memory.UnsafeMemory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class MemoryReclaimerTests extends SafeTest {
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void reclaimArrayBlockTest() throws InterruptedException {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        long reclaimed = MemoryReclaimer.reclaimedBytes();
+
+        dropList(MemoryBlockBuilder.<Integer>builder()
+                .classType(Integer.class)
+                .memory(memory)
+                .reclaimable(true));
+
+        awaitReclaimed(memory);
+        Assert.assertTrue(MemoryReclaimer.reclaimedBytes() > reclaimed);
+    }
+
+    @Test
+    public void reclaimReferenceBlockTest() throws InterruptedException {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        long reclaimed = MemoryReclaimer.reclaimedAllocations();
+
+        dropList(MemoryBlockBuilder.<Integer>builder()
+                .memory(memory)
+                .concurrent(true)
+                .reclaimable(true));
+
+        awaitReclaimed(memory);
+        Assert.assertTrue(MemoryReclaimer.reclaimedAllocations() > reclaimed + 100);
+    }
+
+    @Test
+    public void explicitFreeTest() {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        long freed = MemoryReclaimer.freedBytes();
+
+        try (MemoryBlock<Integer> block = MemoryBlockBuilder.<Integer>builder()
+                .classType(Integer.class)
+                .capacity(16)
+                .memory(memory)
+                .reclaimable(true)
+                .build()) {
+            block.put(0, 1);
+            Assert.assertEquals(1, (int) block.get(0));
+        }
+
+        Assert.assertFalse(memory.hasMemoryLeaks());
+        Assert.assertEquals(freed + 16 * Integer.BYTES, MemoryReclaimer.freedBytes());
+    }
+
+    @Test
+    public void nestedBlockTest() throws InterruptedException {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        TrackedMemory nestedMemory = new TrackedMemory(new UnsafeMemory());
+
+        //nested blocks are stored as handles and not reclaimed with their holder, a hash map walks its buckets instead
+        List<Integer> nested = new MemoryBlockArrayList<>(MemoryBlockBuilder.<Integer>builder()
+                .classType(Integer.class)
+                .memory(nestedMemory)
+                .build());
+        nested.add(1);
+        dropNested(MemoryBlockBuilder.<List<Integer>>builder()
+                .memory(memory)
+                .reclaimable(true), nested);
+
+        awaitReclaimed(memory);
+        Assert.assertTrue(nestedMemory.hasMemoryLeaks());
+        Assert.assertEquals(1, (int) nested.get(0));
+
+        nested.clear();
+        Assert.assertFalse(nestedMemory.hasMemoryLeaks());
+    }
+
+    private static void dropNested(MemoryBlockBuilder.Builder<List<Integer>> builder, List<Integer> nested) {
+        List<List<Integer>> list = new MemoryBlockArrayList<>(builder.build());
+        list.add(nested);
+
+        Assert.assertEquals(1, (int) list.get(0).get(0));
+    }
+
+    private static void dropList(MemoryBlockBuilder.Builder<Integer> builder) {
+        List<Integer> list = new MemoryBlockArrayList<>(builder.build());
+
+        for (int i = 0; i < 128; ++i) {
+            list.add(i);
+        }
+
+        Assert.assertEquals(127, (int) list.get(127));
+    }
+
+    private static void awaitReclaimed(TrackedMemory memory) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT;
+
+        while (memory.hasMemoryLeaks() && System.nanoTime() < deadline) {
+            System.gc();
+            MemoryReclaimer.reclaim();
+            Thread.sleep(10);
+        }
+
+        Assert.assertFalse(memory.hasMemoryLeaks());
+    }
+}
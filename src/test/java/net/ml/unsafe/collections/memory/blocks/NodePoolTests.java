@@ -0,0 +1,77 @@
+package net.ml.unsafe.collections.memory.blocks;
+
+import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.memory.TrackedMemory;
+import net.ml.unsafe.collections.memory.UnsafeMemory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NodePoolTests extends SafeTest {
+    private static final int NODE_SIZE = 20;
+
+    @Test
+    public void reuseTest() {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        NodePool pool = new NodePool(memory, NODE_SIZE);
+
+        long a = pool.malloc();
+        long b = pool.malloc();
+        Assert.assertEquals(a + NODE_SIZE, b);
+
+        pool.free(a);
+        Assert.assertEquals(a, pool.malloc());
+        Assert.assertEquals(1, memory.memoryMap().size());
+
+        pool.freeAll();
+        Assert.assertFalse(memory.hasMemoryLeaks());
+    }
+
+    @Test
+    public void pagesTest() {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+        NodePool pool = new NodePool(memory, NODE_SIZE);
+
+        for (int i = 0; i < 10_000; ++i) {
+            pool.malloc();
+        }
+
+        Assert.assertTrue(memory.memoryMap().size() > 1);
+
+        pool.freeAll();
+        Assert.assertFalse(memory.hasMemoryLeaks());
+    }
+
+    @Test
+    public void linkedBlockTest() {
+        TrackedMemory memory = new TrackedMemory(new UnsafeMemory());
+
+        try (MemoryBlock<Integer> block = LinkedMemoryBlock.<Integer>builder()
+                .classSize(Integer.BYTES)
+                .memory(memory)
+                .build()) {
+            for (int i = 0; i < 100; ++i) {
+                block.put(i, i);
+            }
+
+            int pages = memory.memoryMap().size();
+
+            //removing the tail then appending reuses the freed node
+            Assert.assertEquals(99, (int) block.remove(99));
+            block.replace(98, -98);
+            block.put(99, -99);
+
+            Assert.assertEquals(pages, memory.memoryMap().size());
+            Assert.assertEquals(-98, (int) block.get(98));
+            Assert.assertEquals(-99, (int) block.get(99));
+
+            block.free();
+            Assert.assertFalse(memory.hasMemoryLeaks());
+
+            block.put(0, 1);
+            Assert.assertEquals(1, block.size());
+            Assert.assertEquals(1, (int) block.get(0));
+        }
+
+        Assert.assertFalse(memory.hasMemoryLeaks());
+    }
+}
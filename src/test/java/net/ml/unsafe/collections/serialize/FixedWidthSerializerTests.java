@@ -0,0 +1,76 @@
+package net.ml.unsafe.collections.serialize;
+
+import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.memory.MemoryFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FixedWidthSerializerTests {
+    private final Memory memory = MemoryFactory.getMemory();
+
+    @Test
+    public void intSerializerTest() {
+        roundTripTest(new IntSerializer(), Integer.BYTES, Integer.MIN_VALUE, 0);
+    }
+
+    @Test
+    public void longSerializerTest() {
+        roundTripTest(new LongSerializer(), Long.BYTES, Long.MAX_VALUE, 0L);
+    }
+
+    @Test
+    public void doubleSerializerTest() {
+        roundTripTest(new DoubleSerializer(), Double.BYTES, -Math.PI, 0d);
+    }
+
+    @Test
+    public void floatSerializerTest() {
+        roundTripTest(new FloatSerializer(), Float.BYTES, Float.MAX_VALUE, 0f);
+    }
+
+    @Test
+    public void shortSerializerTest() {
+        roundTripTest(new ShortSerializer(), Short.BYTES, Short.MIN_VALUE, (short) 0);
+    }
+
+    @Test
+    public void charSerializerTest() {
+        roundTripTest(new CharSerializer(), Character.BYTES, Character.MAX_VALUE, (char) 0);
+    }
+
+    @Test
+    public void booleanSerializerTest() {
+        roundTripTest(new BooleanSerializer(), 1, true, false);
+    }
+
+    private <T> void roundTripTest(FixedWidthSerializer<T> serializer, int width, T value, T zero) {
+        Assert.assertEquals(width, serializer.width());
+
+        byte[] bytes = serializer.serialize(value);
+        Assert.assertEquals(width, bytes.length);
+        Assert.assertEquals(value, serializer.deserialize(bytes));
+
+        long addr = memory.malloc(width);
+        try {
+            Assert.assertEquals(-1, serializer.serializeTo(value, memory, addr, width - 1));
+            Assert.assertEquals(width, serializer.serializeTo(value, memory, addr, width));
+            Assert.assertArrayEquals(bytes, memory.get(addr, width));
+            Assert.assertEquals(value, serializer.deserializeFrom(memory, addr, width));
+
+            //nulls have no room of their own
+            try {
+                serializer.serializeTo(null, memory, addr, width);
+                Assert.fail("Null written in a fixed width");
+            } catch (NullPointerException ignored) { }
+
+            Assert.assertEquals(value, serializer.deserializeFrom(memory, addr, width));
+        } finally {
+            memory.free(addr);
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullSerializeTest() {
+        new IntSerializer().serialize(null);
+    }
+}
@@ -1,9 +1,21 @@
 package net.ml.unsafe.collections.serialize;
 
+import com.esotericsoftware.kryo.KryoException;
+import net.ml.unsafe.collections.memory.GCMemory;
+import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.memory.MemoryFactory;
+import net.ml.unsafe.collections.memory.MemoryType;
 import net.ml.unsafe.collections.serialize.model.Container;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class KryoSerializerTests {
     private final ByteSerializer<Container<Integer>> serializer =
             ByteSerializerFactory.getSerializer(ByteSerializerType.KRYO_SERIALIZER);
@@ -18,4 +30,163 @@ public class KryoSerializerTests {
         Assert.assertTrue(bytes.length > 0);
         Assert.assertEquals(content, serializer.deserialize(bytes));
     }
+
+    @Test
+    public void serializeToTest() {
+        Memory memory = MemoryFactory.getMemory(MemoryType.UNSAFE);
+        Container<Integer> content = new Container<>(1, (short) 2, 3);
+        byte[] expected = serializer.serialize(content);
+
+        long addr = memory.malloc(64);
+        try {
+            int length = serializer.serializeTo(content, memory, addr, 64);
+            Assert.assertEquals(expected.length, length);
+
+            byte[] bytes = new byte[length];
+            memory.get(addr, bytes, 0, length);
+            Assert.assertArrayEquals(expected, bytes);
+
+            Assert.assertEquals(content, serializer.deserializeFrom(memory, addr, length));
+        } finally {
+            memory.free(addr);
+        }
+    }
+
+    @Test
+    public void directBufferFallbackTest() {
+        Memory memory = MemoryFactory.getMemory(MemoryType.UNSAFE);
+        Container<Integer> content = new Container<>(1, (short) 2, 3);
+
+        //kryo cannot wrap addresses in direct buffers from java 14, so those go through byte arrays
+        Assert.assertEquals(javaVersion() < 14, serializer.streamsTo(memory));
+        Assert.assertFalse(serializer.streamsTo(new GCMemory()));
+
+        long addr = memory.malloc(64);
+        try {
+            int length = serializer.serializeTo(content, memory, addr, 64);
+            Assert.assertEquals(content, serializer.deserializeFrom(memory, addr, length));
+        } finally {
+            memory.free(addr);
+        }
+    }
+
+    @Test
+    public void serializeToOverflowTest() {
+        Memory memory = MemoryFactory.getMemory(MemoryType.UNSAFE);
+        Container<Integer> content = new Container<>(1, (short) 2, 3);
+        int length = serializer.serialize(content).length;
+
+        long addr = memory.malloc(length);
+        try {
+            Assert.assertEquals(-1, serializer.serializeTo(content, memory, addr, length - 1));
+            Assert.assertEquals(length, serializer.serializeTo(content, memory, addr, length));
+        } finally {
+            memory.free(addr);
+        }
+    }
+
+    @Test
+    public void pooledSerializerTest() throws Exception {
+        ByteSerializer<Container<Integer>> pooled =
+                ByteSerializerFactory.getSerializer(ByteSerializerType.KRYO_POOLED_SERIALIZER);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 64; ++i) {
+                Container<Integer> content = new Container<>(i, (short) i, i);
+                results.add(executor.submit(() -> content.equals(pooled.deserialize(pooled.serialize(content)))));
+            }
+
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void largeSerializerTest() {
+        ByteSerializer<int[]> arrays = ByteSerializerFactory.getSerializer(ByteSerializerType.KRYO_SERIALIZER);
+        int[] large = new int[1 << 17];
+        large[large.length - 1] = 1;
+
+        byte[] bytes = arrays.serialize(large);
+        Assert.assertArrayEquals(large, arrays.deserialize(bytes));
+
+        //output buffer is trimmed back, smaller objects are sized exactly
+        int[] small = {1, 2, 3};
+        Assert.assertArrayEquals(small, arrays.deserialize(arrays.serialize(small)));
+        Assert.assertTrue(arrays.serialize(small).length < 64);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void boundSerializerTest() {
+        ByteSerializer<Container<Integer>> bound = KryoSerializer.<Container<Integer>>builder()
+                .type((Class<Container<Integer>>) (Class<?>) Container.class)
+                .build();
+        Container<Integer> content = new Container<>(1, (short) 2, 3);
+
+        byte[] bytes = bound.serialize(content);
+
+        Assert.assertTrue(bytes.length < serializer.serialize(content).length);
+        Assert.assertEquals(content, bound.deserialize(bytes));
+        Assert.assertNull(bound.deserialize(bound.serialize(null)));
+    }
+
+    @Test(expected = KryoException.class)
+    @SuppressWarnings("unchecked")
+    public void registrationRequiredTest() {
+        ByteSerializer<Container<StringBuilder>> bound = KryoSerializer.<Container<StringBuilder>>builder()
+                .type((Class<Container<StringBuilder>>) (Class<?>) Container.class)
+                .registrationRequired(true)
+                .build();
+
+        bound.serialize(new Container<>(1, (short) 2, new StringBuilder("unregistered")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void registrationsTest() {
+        ByteSerializer<Container<StringBuilder>> bound = KryoSerializer.<Container<StringBuilder>>builder()
+                .type((Class<Container<StringBuilder>>) (Class<?>) Container.class)
+                .registrations(Collections.singletonList(StringBuilder.class))
+                .registrationRequired(true)
+                .pooled(true)
+                .build();
+
+        Container<StringBuilder> content = new Container<>(1, (short) 2, new StringBuilder("registered"));
+        Assert.assertEquals("registered", bound.deserialize(bound.serialize(content)).z.toString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void nestedSerializerTest() {
+        ByteSerializer<Object> outer = new KryoSerializer<>();
+        KryoSerializer<Container<StringBuilder>> bound = KryoSerializer.<Container<StringBuilder>>builder()
+                .type((Class<Container<StringBuilder>>) (Class<?>) Container.class)
+                .registrations(Collections.singletonList(StringBuilder.class))
+                .registrationRequired(true)
+                .build();
+        Container<StringBuilder> content = new Container<>(1, (short) 2, new StringBuilder("nested"));
+        //contexts are in use while the serializer is written
+        bound.serialize(content);
+
+        KryoSerializer<Container<StringBuilder>> copy =
+                (KryoSerializer<Container<StringBuilder>>) outer.deserialize(outer.serialize(bound));
+        ByteSerializer<Container<Integer>> unbound =
+                (ByteSerializer<Container<Integer>>) outer.deserialize(outer.serialize(serializer));
+
+        Assert.assertEquals(bound.id(), copy.id());
+        Assert.assertEquals("nested", copy.deserialize(bound.serialize(content)).z.toString());
+        Assert.assertEquals(serializer.id(), unbound.id());
+        Assert.assertEquals(new Container<>(1, (short) 2, 3), unbound.deserialize(serializer.serialize(new Container<>(1, (short) 2, 3))));
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    }
 }
@@ -0,0 +1,144 @@
+package net.ml.unsafe.collections.serialize.struct;
+
+import net.ml.unsafe.collections.SafeTest;
+import net.ml.unsafe.collections.memory.Memory;
+import net.ml.unsafe.collections.memory.MemoryFactory;
+import net.ml.unsafe.collections.memory.blocks.MemoryBlock;
+import net.ml.unsafe.collections.memory.blocks.MemoryBlockBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StructSerializerTests extends SafeTest {
+    private static final int QUOTE_SIZE = 8 + 8 + 4 + 8 + 2 + 1;
+
+    private final StructSerializer<Quote> serializer = new StructSerializer<>(Quote.class);
+
+    @Test
+    public void layoutTest() {
+        Assert.assertEquals(QUOTE_SIZE, serializer.width());
+        Assert.assertEquals(QUOTE_SIZE, serializer.serialize(new Quote("ABC", 10.5, 100, 42L, 'B', true)).length);
+    }
+
+    @Test
+    public void serializerTest() {
+        Quote quote = new Quote("ABC", 10.5, 100, 42L, 'B', true);
+
+        Assert.assertEquals(quote, serializer.deserialize(serializer.serialize(quote)));
+    }
+
+    @Test
+    public void memoryTest() {
+        Memory memory = MemoryFactory.getMemory();
+        Quote quote = new Quote("\u20acUR", -1.25, Integer.MAX_VALUE, Long.MIN_VALUE, 'S', false);
+
+        long addr = memory.malloc(QUOTE_SIZE);
+        try {
+            Assert.assertEquals(QUOTE_SIZE, serializer.serializeTo(quote, memory, addr, QUOTE_SIZE));
+            Assert.assertArrayEquals(serializer.serialize(quote), memory.get(addr, QUOTE_SIZE));
+            Assert.assertEquals(quote, serializer.deserializeFrom(memory, addr, QUOTE_SIZE));
+
+            //null strings have no room of their own
+            serializer.serializeTo(new Quote(null, 0, 0, 0, 'B', false), memory, addr, QUOTE_SIZE);
+            Assert.assertEquals("", serializer.deserializeFrom(memory, addr, QUOTE_SIZE).symbol);
+        } finally {
+            memory.free(addr);
+        }
+    }
+
+    @Test
+    public void blockTest() {
+        try (MemoryBlock<Quote> block = MemoryBlockBuilder.<Quote>builder()
+                .classType(Quote.class)
+                .capacity(16)
+                .build()) {
+            for (int i = 0; i < block.size(); ++i) {
+                block.put(i, new Quote("Q" + i, i, i, i, 'B', i % 2 == 0));
+            }
+
+            for (int i = 0; i < block.size(); ++i) {
+                Assert.assertEquals(new Quote("Q" + i, i, i, i, 'B', i % 2 == 0), block.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stringOverflowTest() {
+        serializer.serialize(new Quote("ABCDEFGHI", 0, 0, 0, 'B', false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedFieldTest() {
+        new StructSerializer<>(Unsupported.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateOrderTest() {
+        new StructSerializer<>(Duplicate.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyLayoutTest() {
+        new StructSerializer<>(Empty.class);
+    }
+
+    @Struct
+    private static final class Quote {
+        @StructField(order = 0, length = 8)
+        private String symbol;
+        @StructField(order = 1)
+        private double price;
+        @StructField(order = 2)
+        private int quantity;
+        @StructField(order = 3)
+        private long timestamp;
+        @StructField(order = 4)
+        private char side;
+        @StructField(order = 5)
+        private boolean last;
+
+        private transient int ignored;
+
+        private Quote() {}
+
+        private Quote(String symbol, double price, int quantity, long timestamp, char side, boolean last) {
+            this.symbol = symbol;
+            this.price = price;
+            this.quantity = quantity;
+            this.timestamp = timestamp;
+            this.side = side;
+            this.last = last;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Quote)) return false;
+            Quote quote = (Quote) o;
+            return symbol.equals(quote.symbol) && price == quote.price && quantity == quote.quantity &&
+                    timestamp == quote.timestamp && side == quote.side && last == quote.last;
+        }
+
+        @Override
+        public int hashCode() {
+            return symbol.hashCode();
+        }
+    }
+
+    @Struct
+    private static final class Unsupported {
+        @StructField(order = 0)
+        private Object value;
+    }
+
+    @Struct
+    private static final class Duplicate {
+        @StructField(order = 0)
+        private int a;
+        @StructField(order = 0)
+        private int b;
+    }
+
+    @Struct
+    private static final class Empty {
+        private int unmarked;
+    }
+}